@@ -0,0 +1,27 @@
+package com.example.demo.controller;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 過期時間解析基準
+ * parseExpireAt 依序嘗試四種 ISO-8601 格式，越後面的格式要先付出越多次解析失敗的例外成本
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParseExpireAtBenchmark {
+
+    @Param({"2025-09-27T12:00:00+08:00", "2025-09-27T12:00:00", "2025-09-27T12:00:00+08:00[Asia/Taipei]", "not-a-date"})
+    public String raw;
+
+    @Benchmark
+    public LocalDateTime parseExpireAt() {
+        return UrlController.parseExpireAt(raw);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.demo.event;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 舊版 JSON 訪問日誌時間轉換基準
+ * 涵蓋 epoch 毫秒與三種 ISO 字串格式
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoerceToLocalDateTimeBenchmark {
+
+    @Param({"epoch", "offset", "zoned", "local"})
+    public String format;
+
+    private Object raw;
+
+    @Setup
+    public void setUp() {
+        raw = switch (format) {
+            case "epoch" -> 1758945600000L;
+            case "offset" -> "2025-09-27T12:00:00+08:00";
+            case "zoned" -> "2025-09-27T12:00:00+08:00[Asia/Taipei]";
+            default -> "2025-09-27T12:00:00";
+        };
+    }
+
+    @Benchmark
+    public LocalDateTime coerceToLocalDateTime() {
+        return AccessEventMessageConverter.coerceToLocalDateTime(raw);
+    }
+}
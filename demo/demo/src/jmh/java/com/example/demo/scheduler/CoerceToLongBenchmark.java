@@ -0,0 +1,39 @@
+package com.example.demo.scheduler;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 點擊增量轉換基準
+ * Redis 雜湊值依序列化方式可能是 Long、Integer、字串或位元組陣列
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoerceToLongBenchmark {
+
+    @Param({"long", "integer", "string", "bytes"})
+    public String type;
+
+    private Object raw;
+
+    @Setup
+    public void setUp() {
+        raw = switch (type) {
+            case "long" -> 12345L;
+            case "integer" -> 12345;
+            case "string" -> "12345";
+            default -> "12345".getBytes(StandardCharsets.UTF_8);
+        };
+    }
+
+    @Benchmark
+    public Long coerceToLong() {
+        return ClickCountSyncScheduler.coerceToLong(raw);
+    }
+}
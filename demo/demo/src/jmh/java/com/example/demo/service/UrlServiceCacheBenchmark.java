@@ -0,0 +1,112 @@
+package com.example.demo.service;
+
+import com.example.demo.cache.CachedUrl;
+import com.example.demo.cache.HotKeyDetector;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.cache.ShortCodeBloomFilter;
+import com.example.demo.metrics.ShortUrlMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * getOriginalUrlFromCache 基準
+ * 本地快取命中：真實的 Caffeine 快取；本地快取未命中：由記憶體中的 Redis 樁回應 pipeline 結果
+ * 布隆過濾器未建立（一律放行），不涉及任何網路 I/O
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UrlServiceCacheBenchmark {
+
+    private static final String URL = "https://example.com/landing?utm_source=newsletter";
+
+    private UrlService hitService;
+    private UrlService missService;
+
+    @Setup
+    public void setUp() {
+        LocalUrlCache localUrlCache = new LocalUrlCache();
+        HotKeyDetector hotKeyDetector = new HotKeyDetector();
+        ReflectionTestUtils.setField(hotKeyDetector, "enabled", true);
+        ReflectionTestUtils.setField(hotKeyDetector, "capacity", 1000);
+        ReflectionTestUtils.setField(hotKeyDetector, "sampleRate", 16);
+        ReflectionTestUtils.invokeMethod(hotKeyDetector, "init");
+        ReflectionTestUtils.setField(localUrlCache, "listenerContainer", new RedisMessageListenerContainer());
+        ReflectionTestUtils.setField(localUrlCache, "hotKeyDetector", hotKeyDetector);
+        ReflectionTestUtils.setField(localUrlCache, "maxSize", 100_000L);
+        ReflectionTestUtils.setField(localUrlCache, "ttlSeconds", 3600L);
+        ReflectionTestUtils.setField(localUrlCache, "negativeMaxSize", 100_000L);
+        ReflectionTestUtils.setField(localUrlCache, "negativeTtlSeconds", 30L);
+        ReflectionTestUtils.invokeMethod(localUrlCache, "init");
+        localUrlCache.put("abc123", new CachedUrl(URL, CachedUrl.NEVER));
+
+        hitService = service(localUrlCache);
+        missService = service(new AlwaysMissLocalUrlCache());
+    }
+
+    @Benchmark
+    public String localHit() {
+        return hitService.getOriginalUrlFromCache("abc123");
+    }
+
+    @Benchmark
+    public String localMissRedisHit() {
+        return missService.getOriginalUrlFromCache("abc123");
+    }
+
+    private static UrlService service(LocalUrlCache localUrlCache) {
+        RedisCircuitBreaker breaker = new RedisCircuitBreaker();
+        ReflectionTestUtils.setField(breaker, "failureThreshold", 3);
+        ReflectionTestUtils.setField(breaker, "openMs", 5000L);
+
+        UrlService service = new UrlService();
+        ReflectionTestUtils.setField(service, "localUrlCache", localUrlCache);
+        ReflectionTestUtils.setField(service, "shortCodeBloomFilter", new ShortCodeBloomFilter());
+        ReflectionTestUtils.setField(service, "redisCircuitBreaker", breaker);
+        ReflectionTestUtils.setField(service, "redisTemplate", new InMemoryRedisTemplate());
+        ReflectionTestUtils.setField(service, "metrics", new ShortUrlMetrics(new SimpleMeterRegistry()));
+        return service;
+    }
+
+    /**
+     * 一律未命中的本地快取，讓每次呼叫都走 Redis 路徑
+     */
+    private static final class AlwaysMissLocalUrlCache extends LocalUrlCache {
+        @Override
+        public CachedUrl get(String shortCode) {
+            return null;
+        }
+
+        @Override
+        public boolean isKnownMissing(String shortCode) {
+            return false;
+        }
+
+        @Override
+        public void put(String shortCode, CachedUrl cachedUrl) {
+        }
+    }
+
+    /**
+     * 以固定的 GET / PTTL 結果回應 pipeline 的 Redis 樁
+     */
+    private static final class InMemoryRedisTemplate extends RedisTemplate<String, Object> {
+
+        private static final List<Object> RESULT = List.of(URL, 60_000L);
+
+        @Override
+        public List<Object> executePipelined(SessionCallback<?> session) {
+            return RESULT;
+        }
+    }
+}
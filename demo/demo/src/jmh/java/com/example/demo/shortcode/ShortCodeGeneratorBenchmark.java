@@ -0,0 +1,71 @@
+package com.example.demo.shortcode;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 短代碼生成基準
+ * 號段生成器使用記憶體中的號段來源，只量測本地分配與編碼；另量測隨機生成器與編碼器本身
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShortCodeGeneratorBenchmark {
+
+    private SegmentShortCodeGenerator segmentGenerator;
+    private RandomShortCodeGenerator randomGenerator;
+    private ShortCodeCodec scrambledCodec;
+    private ShortCodeCodec plainCodec;
+    private long id;
+
+    @Setup
+    public void setUp() {
+        AtomicLong next = new AtomicLong(1);
+        IdSegmentSource source = step -> {
+            long start = next.getAndAdd(step);
+            return new IdRange(start, start + step);
+        };
+        segmentGenerator = new SegmentShortCodeGenerator();
+        ReflectionTestUtils.setField(segmentGenerator, "segmentSource", source);
+        ReflectionTestUtils.setField(segmentGenerator, "step", 1000);
+        ReflectionTestUtils.setField(segmentGenerator, "prefetchRatio", 0.2);
+        ReflectionTestUtils.setField(segmentGenerator, "scramble", true);
+        ReflectionTestUtils.setField(segmentGenerator, "scrambleKey", 42L);
+        segmentGenerator.init();
+
+        randomGenerator = new RandomShortCodeGenerator();
+        scrambledCodec = new ShortCodeCodec(true, 42L);
+        plainCodec = new ShortCodeCodec(false, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        segmentGenerator.shutdown();
+    }
+
+    @Benchmark
+    public String segmentNextCode() {
+        return segmentGenerator.nextCode();
+    }
+
+    @Benchmark
+    public String randomNextCode() {
+        return randomGenerator.nextCode();
+    }
+
+    @Benchmark
+    public String encodeScrambled() {
+        return scrambledCodec.encode(++id & 0xFFFFFFFFL);
+    }
+
+    @Benchmark
+    public String encodePlain() {
+        return plainCodec.encode(++id & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.loadtest;
+
+import org.apache.qpid.server.SystemLauncher;
+import org.apache.qpid.server.model.SystemConfig;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 負載測試用的本地替身
+ * 在隨機空閒埠上啟動內嵌 Redis 與進程內的 Qpid AMQP 0-9-1 broker（記憶體儲存），
+ * 資料庫由 H2（MySQL 相容模式）取代；整個進程只啟動一次，JVM 結束時關閉
+ */
+final class LocalStack {
+
+    static final String AMQP_USER = "guest";
+    static final String AMQP_PASSWORD = "guest";
+    static final String AMQP_VIRTUAL_HOST = "default";
+
+    private static LocalStack instance;
+
+    private final RedisServer redis;
+    private final SystemLauncher broker;
+    private final int redisPort;
+    private final int amqpPort;
+
+    private LocalStack() throws Exception {
+        redisPort = freePort();
+        redis = RedisServer.newRedisServer()
+                .port(redisPort)
+                .bind("127.0.0.1")
+                .setting("save \"\"")
+                .setting("appendonly no")
+                .build();
+        redis.start();
+
+        amqpPort = freePort();
+        Path workDir = Files.createTempDirectory("qpid-loadtest");
+        Map<String, Object> context = new HashMap<>();
+        context.put("qpid.amqp_port", amqpPort);
+        context.put("qpid.work_dir", workDir.toString());
+        Map<String, Object> attributes = new HashMap<>();
+        attributes.put(SystemConfig.TYPE, "Memory");
+        attributes.put(SystemConfig.INITIAL_CONFIGURATION_LOCATION,
+                LocalStack.class.getResource("/qpid-loadtest-config.json").toExternalForm());
+        attributes.put(SystemConfig.STARTUP_LOGGED_TO_SYSTEM_OUT, false);
+        attributes.put(SystemConfig.CONTEXT, context);
+        broker = new SystemLauncher();
+        broker.startup(attributes);
+    }
+
+    /**
+     * 取得（必要時啟動）本地替身
+     *
+     * @return LocalStack 已啟動的替身
+     */
+    static synchronized LocalStack start() {
+        if (instance == null) {
+            try {
+                instance = new LocalStack();
+            } catch (Exception e) {
+                throw new IllegalStateException("failed to start local stand-ins", e);
+            }
+            Runtime.getRuntime().addShutdownHook(new Thread(instance::stop, "local-stack-shutdown"));
+        }
+        return instance;
+    }
+
+    int redisPort() {
+        return redisPort;
+    }
+
+    int amqpPort() {
+        return amqpPort;
+    }
+
+    private void stop() {
+        broker.shutdown();
+        try {
+            redis.stop();
+        } catch (IOException e) {
+            // 進程即將結束，忽略
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            socket.setReuseAddress(true);
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
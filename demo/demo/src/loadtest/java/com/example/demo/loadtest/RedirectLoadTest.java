@@ -0,0 +1,498 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.consumer.AccessLogConsumer;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.publisher.AccessEventPublisher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 端對端負載測試
+ * 以真實的 Tomcat、H2、內嵌 Redis 與進程內 AMQP broker 啟動整個應用，透過 HTTP 執行混合工作負載：
+ * 重定向（短碼熱度服從 Zipfian 分佈）、不存在的短碼（404）與建立短網址
+ * 報告各操作的吞吐量與延遲分位數（p50 / p99 / p999），以及從點擊到 url_access_log 出現對應資料列的端對端延遲
+ *
+ * 執行：mvn -Ploadtest test，可用 -D 調整：
+ * loadtest.duration-seconds（30）、loadtest.warmup-seconds（5）、loadtest.concurrency（64）、loadtest.keys（10000）、
+ * loadtest.zipf-theta（0.99）、loadtest.redirect-ratio（0.8）、loadtest.missing-ratio（0.1，其餘為建立）、
+ * loadtest.probe-interval-ms（250）、loadtest.drain-events（50000，consumerDrain 使用）；應用本身的配置（例如 shorturl.redirect.fast-path.enabled）同樣以 -D 傳入
+ */
+@Tag("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:loadtest;MODE=MySQL;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS url_shortener",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create",
+        "spring.flyway.enabled=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false",
+        "spring.data.redis.host=127.0.0.1",
+        "spring.data.redis.username=",
+        "spring.data.redis.password=",
+        "spring.data.redis.database=0",
+        "spring.rabbitmq.host=127.0.0.1",
+        "spring.rabbitmq.username=" + LocalStack.AMQP_USER,
+        "spring.rabbitmq.password=" + LocalStack.AMQP_PASSWORD,
+        "spring.rabbitmq.virtual-host=" + LocalStack.AMQP_VIRTUAL_HOST,
+        "shorturl.code.scramble-key=7340589126623451"
+})
+class RedirectLoadTest {
+
+    private static final long DURATION_SECONDS = Long.getLong("loadtest.duration-seconds", 30);
+    private static final long WARMUP_SECONDS = Long.getLong("loadtest.warmup-seconds", 5);
+    private static final int CONCURRENCY = Integer.getInteger("loadtest.concurrency", 64);
+    private static final int KEYS = Integer.getInteger("loadtest.keys", 10_000);
+    private static final double ZIPF_THETA = Double.parseDouble(System.getProperty("loadtest.zipf-theta", "0.99"));
+    private static final double REDIRECT_RATIO = Double.parseDouble(System.getProperty("loadtest.redirect-ratio", "0.8"));
+    private static final double MISSING_RATIO = Double.parseDouble(System.getProperty("loadtest.missing-ratio", "0.1"));
+    private static final long PROBE_INTERVAL_MS = Long.getLong("loadtest.probe-interval-ms", 250);
+    private static final int DRAIN_EVENTS = Integer.getInteger("loadtest.drain-events", 50_000);
+    private static final int DRAIN_CODES = 100;
+    private static final int PUBLISH_HIGH_WATER = 32_768;
+    private static final long QUEUE_SETTLE_MS = 1000;
+    private static final long DRAIN_STALL_MS = 10_000;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final long LAG_TIMEOUT_MS = 60_000;
+    private static final long POLL_INTERVAL_MS = 10;
+    private static final String MISSING_ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+
+    private static final Logger log = LoggerFactory.getLogger(RedirectLoadTest.class);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AccessEventPublisher accessEventPublisher;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Autowired
+    private Environment environment;
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final AtomicLong errors = new AtomicLong();
+
+    @DynamicPropertySource
+    static void localStack(DynamicPropertyRegistry registry) {
+        LocalStack stack = LocalStack.start();
+        registry.add("spring.data.redis.port", stack::redisPort);
+        registry.add("spring.rabbitmq.port", stack::amqpPort);
+    }
+
+    /**
+     * 混合工作負載
+     * 驗證：所有請求都得到預期的狀態碼，且每個探針點擊都在逾時前寫入 url_access_log
+     */
+    @Test
+    void mixedWorkload() throws Exception {
+        // 探針輪詢按短碼查詢訪問日誌
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_loadtest_access_short_code ON url_access_log (short_code)");
+        List<String> keys = createUrls(KEYS, "key");
+        int probeCount = (int) ((WARMUP_SECONDS + DURATION_SECONDS) * 1000 / PROBE_INTERVAL_MS) + 1;
+        List<String> probes = createUrls(probeCount, "probe");
+        ZipfianGenerator zipf = new ZipfianGenerator(keys.size(), ZIPF_THETA);
+        log.info("[loadtest] {} keys (zipf theta={}, top key p={}), concurrency={}, mix redirect={} missing={} create={}",
+                keys.size(), ZIPF_THETA, String.format("%.3f", zipf.probability(0)), CONCURRENCY,
+                REDIRECT_RATIO, MISSING_RATIO, String.format("%.2f", 1 - REDIRECT_RATIO - MISSING_RATIO));
+
+        ProbeRun probeRun = new ProbeRun(probes);
+        Thread probeThread = Thread.ofVirtual().name("loadtest-probe").start(
+                () -> probeRun.run((WARMUP_SECONDS + DURATION_SECONDS) * 1000));
+
+        runWorkload(keys, zipf, WARMUP_SECONDS);
+        Map<Operation, long[]> latencies = runWorkload(keys, zipf, DURATION_SECONDS);
+
+        probeThread.join();
+        List<Long> lags = probeRun.lags();
+
+        report(latencies, lags, probeRun.sent());
+        assertEquals(0, errors.get(), "unexpected responses");
+        assertEquals(probeRun.sent(), lags.size(), "clicks that never reached url_access_log");
+    }
+
+    /**
+     * 消費者吞吐量
+     * 停止訪問日誌監聽器，直接發布 DRAIN_EVENTS 個訪問事件讓它們積壓在佇列中，再啟動監聽器並計時到全部寫入
+     * url_access_log；以 -Dshorturl.consumer.batch-size=1 對照逐則消息各自一個交易的寫入路徑
+     * 驗證：所有事件都寫入資料庫
+     */
+    @Test
+    void consumerDrain() throws Exception {
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_loadtest_access_short_code ON url_access_log (short_code)");
+        List<String> codes = createUrls(DRAIN_CODES, "drain");
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(AccessLogConsumer.LISTENER_ID);
+        container.stop();
+
+        long published = accessEventPublisher.publishedCount();
+        for (int i = 0; i < DRAIN_EVENTS; i++) {
+            while (accessEventPublisher.bufferedCount() > PUBLISH_HIGH_WATER) {
+                Thread.sleep(1);
+            }
+            accessEventPublisher.publish(AccessEvent.of(codes.get(i % codes.size()), System.currentTimeMillis(),
+                    "203.0.113." + (i % 250), "loadtest", null));
+        }
+        while (accessEventPublisher.publishedCount() - published < DRAIN_EVENTS) {
+            assertEquals(0, accessEventPublisher.droppedCount(), "events dropped before reaching the broker");
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+        int messages = settledQueueDepth();
+
+        String placeholders = String.join(",", Collections.nCopies(codes.size(), "?"));
+        String countSql = "SELECT COUNT(*) FROM url_access_log WHERE short_code IN (" + placeholders + ")";
+        long start = System.nanoTime();
+        container.start();
+        long written = 0;
+        long lastProgress = start;
+        // 到全部寫入或 DRAIN_STALL_MS 內沒有進展為止，吞吐量按最後一次進展的時間計算
+        while (written < DRAIN_EVENTS && System.nanoTime() - lastProgress < TimeUnit.MILLISECONDS.toNanos(DRAIN_STALL_MS)) {
+            Thread.sleep(POLL_INTERVAL_MS);
+            long current = jdbcTemplate.queryForObject(countSql, Long.class, codes.toArray());
+            if (current > written) {
+                written = current;
+                lastProgress = System.nanoTime();
+            }
+        }
+        double seconds = (lastProgress - start) / 1e9;
+
+        log.info("[loadtest] consumer drain: {}/{} events in {} messages (consumer batch-size={}), {} s, {} events/s",
+                written, DRAIN_EVENTS, messages, environment.getProperty("shorturl.consumer.batch-size", "10"),
+                String.format("%.2f", seconds), String.format("%.0f", written / seconds));
+        assertEquals(DRAIN_EVENTS, written, "events that never reached url_access_log");
+    }
+
+    /**
+     * 等待佇列深度在 QUEUE_SETTLE_MS 內不再變化，確保發布的消息都已進入佇列
+     *
+     * @return int 佇列中的消息數
+     */
+    private int settledQueueDepth() throws InterruptedException {
+        int depth = -1;
+        long stableSince = System.currentTimeMillis();
+        while (System.currentTimeMillis() - stableSince < QUEUE_SETTLE_MS) {
+            QueueInformation info = amqpAdmin.getQueueInfo("access_log_queue");
+            int current = info != null ? info.getMessageCount() : 0;
+            if (current != depth) {
+                depth = current;
+                stableSince = System.currentTimeMillis();
+            }
+            Thread.sleep(POLL_INTERVAL_MS);
+        }
+        return depth;
+    }
+
+    /**
+     * 以 CONCURRENCY 個虛擬執行緒執行指定秒數的混合負載
+     *
+     * @return Map<Operation, long[]> 各操作的延遲（奈秒，已排序）
+     */
+    private Map<Operation, long[]> runWorkload(List<String> keys, ZipfianGenerator zipf, long seconds) throws Exception {
+        errors.set(0);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Future<EnumMap<Operation, LongList>>> futures = new ArrayList<>(CONCURRENCY);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CONCURRENCY; i++) {
+                futures.add(executor.submit(() -> worker(keys, zipf, deadline)));
+            }
+        }
+        Map<Operation, long[]> merged = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            LongList all = new LongList();
+            for (Future<EnumMap<Operation, LongList>> future : futures) {
+                all.addAll(future.get().get(operation));
+            }
+            long[] sorted = all.toArray();
+            Arrays.sort(sorted);
+            merged.put(operation, sorted);
+        }
+        return merged;
+    }
+
+    private EnumMap<Operation, LongList> worker(List<String> keys, ZipfianGenerator zipf, long deadline) {
+        EnumMap<Operation, LongList> latencies = new EnumMap<>(Operation.class);
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new LongList());
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long counter = 0;
+        while (System.nanoTime() < deadline) {
+            double r = random.nextDouble();
+            Operation operation;
+            HttpRequest request;
+            if (r < REDIRECT_RATIO) {
+                operation = Operation.REDIRECT;
+                request = redirectRequest(keys.get((int) zipf.next()));
+            } else if (r < REDIRECT_RATIO + MISSING_RATIO) {
+                operation = Operation.MISSING;
+                request = redirectRequest(missingCode(random));
+            } else {
+                operation = Operation.CREATE;
+                request = post("/api/url/shorten", "{\"originalUrl\":\"https://example.com/load/"
+                        + Thread.currentThread().threadId() + "/" + (counter++) + "\"}");
+            }
+            long start = System.nanoTime();
+            try {
+                int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                if (status != operation.expectedStatus) errors.incrementAndGet();
+            } catch (Exception e) {
+                errors.incrementAndGet();
+            }
+            latencies.get(operation).add(System.nanoTime() - start);
+        }
+        return latencies;
+    }
+
+    /**
+     * 以批量端點建立短網址
+     *
+     * @return List<String> 建立的短代碼
+     */
+    private List<String> createUrls(int count, String prefix) throws Exception {
+        List<String> codes = new ArrayList<>(count);
+        for (int offset = 0; offset < count; offset += BATCH_SIZE) {
+            StringBuilder body = new StringBuilder("[");
+            for (int i = offset; i < Math.min(count, offset + BATCH_SIZE); i++) {
+                if (i > offset) body.append(',');
+                body.append("{\"originalUrl\":\"https://example.com/").append(prefix).append('/').append(i).append("\"}");
+            }
+            body.append(']');
+            HttpResponse<String> response = client.send(post("/api/url/shorten/batch", body.toString()),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode(), response.body());
+            for (JsonNode result : objectMapper.readTree(response.body())) {
+                assertTrue(result.hasNonNull("shortCode"), result.toString());
+                codes.add(result.get("shortCode").asText());
+            }
+        }
+        return codes;
+    }
+
+    private HttpRequest redirectRequest(String shortCode) {
+        return HttpRequest.newBuilder(uri("/api/url/" + shortCode))
+                .header("User-Agent", "loadtest")
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://127.0.0.1:" + port + path);
+    }
+
+    /**
+     * 生成一定不存在的短碼
+     * 發放的短碼固定 6 位，7 位的短碼不可能存在
+     */
+    private static String missingCode(ThreadLocalRandom random) {
+        char[] code = new char[7];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = MISSING_ALPHABET.charAt(random.nextInt(MISSING_ALPHABET.length()));
+        }
+        return new String(code);
+    }
+
+    private void report(Map<Operation, long[]> latencies, List<Long> lags, int probesSent) {
+        long total = 0;
+        for (Operation operation : Operation.values()) {
+            long[] sorted = latencies.get(operation);
+            total += sorted.length;
+            log.info("[loadtest] {} {} ops, {} ops/s, p50={}ms p99={}ms p999={}ms max={}ms",
+                    String.format("%-8s", operation), sorted.length,
+                    String.format("%.0f", sorted.length / (double) DURATION_SECONDS),
+                    millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 0.999), millis(sorted, 1.0));
+        }
+        log.info("[loadtest] total    {} ops, {} ops/s, {} unexpected responses",
+                total, String.format("%.0f", total / (double) DURATION_SECONDS), errors.get());
+
+        long[] sortedLags = lags.stream().mapToLong(Long::longValue).sorted().toArray();
+        log.info("[loadtest] click -> url_access_log lag over {}/{} probes: p50={}ms p99={}ms max={}ms",
+                sortedLags.length, probesSent,
+                percentile(sortedLags, 0.50), percentile(sortedLags, 0.99), percentile(sortedLags, 1.0));
+    }
+
+    private static String millis(long[] sortedNanos, double p) {
+        if (sortedNanos.length == 0) return "-";
+        return String.format("%.2f", sortedNanos[index(sortedNanos.length, p)] / 1e6);
+    }
+
+    private static String percentile(long[] sorted, double p) {
+        if (sorted.length == 0) return "-";
+        return String.valueOf(sorted[index(sorted.length, p)]);
+    }
+
+    private static int index(int length, double p) {
+        return Math.min(length - 1, (int) (length * p));
+    }
+
+    /**
+     * 工作負載中的操作類型與預期的狀態碼
+     */
+    private enum Operation {
+        REDIRECT(302), MISSING(404), CREATE(200);
+
+        final int expectedStatus;
+
+        Operation(int expectedStatus) {
+            this.expectedStatus = expectedStatus;
+        }
+    }
+
+    /**
+     * 端對端延遲探針
+     * 每隔 probe-interval-ms 點擊一個只用一次的短碼；單一輪詢執行緒每 POLL_INTERVAL_MS 以一次查詢
+     * 檢查所有未到達的探針是否已出現在 url_access_log，輪詢本身對資料庫的負擔固定且很小
+     */
+    private final class ProbeRun {
+
+        private final List<String> probes;
+        private final Map<String, Long> pending = new ConcurrentHashMap<>();
+        private final Queue<Long> lags = new ConcurrentLinkedQueue<>();
+        private volatile boolean sending = true;
+        private int sent;
+
+        ProbeRun(List<String> probes) {
+            this.probes = probes;
+        }
+
+        void run(long durationMillis) {
+            Thread poller = Thread.ofVirtual().name("loadtest-probe-poller").start(this::poll);
+            long end = System.currentTimeMillis() + durationMillis;
+            try {
+                while (System.currentTimeMillis() < end && sent < probes.size()) {
+                    String shortCode = probes.get(sent++);
+                    long clickedAt = System.currentTimeMillis();
+                    pending.put(shortCode, clickedAt);
+                    try {
+                        int status = client.send(redirectRequest(shortCode), HttpResponse.BodyHandlers.discarding()).statusCode();
+                        if (status != Operation.REDIRECT.expectedStatus) errors.incrementAndGet();
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    Thread.sleep(PROBE_INTERVAL_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                sending = false;
+            }
+            try {
+                poller.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void poll() {
+            long lastArrival = System.currentTimeMillis();
+            while ((sending || !pending.isEmpty()) && System.currentTimeMillis() - lastArrival < LAG_TIMEOUT_MS) {
+                List<String> waiting = List.copyOf(pending.keySet());
+                if (!waiting.isEmpty()) {
+                    String placeholders = String.join(",", Collections.nCopies(waiting.size(), "?"));
+                    List<String> arrived = jdbcTemplate.queryForList(
+                            "SELECT DISTINCT short_code FROM url_access_log WHERE short_code IN (" + placeholders + ")",
+                            String.class, waiting.toArray());
+                    long now = System.currentTimeMillis();
+                    for (String shortCode : arrived) {
+                        Long clickedAt = pending.remove(shortCode);
+                        if (clickedAt != null) lags.add(now - clickedAt);
+                    }
+                    if (!arrived.isEmpty()) lastArrival = now;
+                }
+                try {
+                    Thread.sleep(POLL_INTERVAL_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        int sent() {
+            return sent;
+        }
+
+        List<Long> lags() {
+            return new ArrayList<>(lags);
+        }
+    }
+
+    /**
+     * 可增長的 long 陣列，避免記錄延遲時裝箱
+     */
+    private static final class LongList {
+
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = value;
+        }
+
+        void addAll(LongList other) {
+            for (int i = 0; i < other.size; i++) add(other.values[i]);
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
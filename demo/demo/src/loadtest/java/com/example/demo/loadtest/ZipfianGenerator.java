@@ -0,0 +1,65 @@
+package com.example.demo.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Zipfian 分佈的索引生成器
+ * 採用 Gray 等人的常數時間取樣法（YCSB 同款）：索引 0 最熱門，第 i 名的機率與 1 / (i + 1)^theta 成正比
+ * 建構時計算一次 zeta(n, theta)，之後每次取樣只需一次亂數與一次 pow
+ */
+final class ZipfianGenerator {
+
+    private final long items;
+    private final double theta;
+    private final double zetaN;
+    private final double alpha;
+    private final double eta;
+    private final double secondThreshold;
+
+    /**
+     * @param items 索引數量
+     * @param theta 偏斜程度，0 &lt; theta &lt; 1，越接近 1 越集中在熱門索引
+     */
+    ZipfianGenerator(long items, double theta) {
+        if (items < 2) throw new IllegalArgumentException("items must be at least 2: " + items);
+        if (theta <= 0 || theta >= 1) throw new IllegalArgumentException("theta must be in (0, 1): " + theta);
+        this.items = items;
+        this.theta = theta;
+        this.zetaN = zeta(items, theta);
+        double zeta2 = zeta(2, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / items, 1 - theta)) / (1 - zeta2 / zetaN);
+        this.secondThreshold = 1 + Math.pow(0.5, theta);
+    }
+
+    /**
+     * 取樣下一個索引
+     *
+     * @return long 介於 [0, items) 的索引
+     */
+    long next() {
+        double u = ThreadLocalRandom.current().nextDouble();
+        double uz = u * zetaN;
+        if (uz < 1.0) return 0;
+        if (uz < secondThreshold) return 1;
+        return Math.min(items - 1, (long) (items * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    /**
+     * 第 rank 名（從 0 起算）被取樣的理論機率
+     *
+     * @param rank 名次
+     * @return double 機率
+     */
+    double probability(long rank) {
+        return 1.0 / Math.pow(rank + 1, theta) / zetaN;
+    }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) {
+            sum += 1.0 / Math.pow(i, theta);
+        }
+        return sum;
+    }
+}
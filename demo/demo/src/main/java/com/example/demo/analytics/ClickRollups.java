@@ -0,0 +1,37 @@
+package com.example.demo.analytics;
+
+import com.example.demo.event.AccessEvent;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 點擊彙總的串流聚合
+ * 在記憶體中把一批訪問事件合併為每個短碼、每個粒度、每個桶的增量，
+ * 一批事件不論多少筆，熱門短碼在每個桶只產生一次 upsert
+ */
+public final class ClickRollups {
+
+    private ClickRollups() {
+    }
+
+    /**
+     * 把一批訪問事件聚合為彙總增量
+     * 以鍵排序返回，多個消費者並發 upsert 時按相同順序鎖定資料列，避免死鎖
+     *
+     * @param events 訪問事件列表
+     * @return Map<RollupKey, Long> 彙總桶到點擊增量的映射（已排序）
+     */
+    public static Map<RollupKey, Long> aggregate(List<AccessEvent> events) {
+        Map<RollupKey, Long> deltas = new TreeMap<>();
+        for (AccessEvent event : events) {
+            LocalDateTime time = event.accessTime();
+            for (RollupGranularity granularity : RollupGranularity.values()) {
+                deltas.merge(new RollupKey(event.shortCode(), granularity, granularity.bucketOf(time)), 1L, Long::sum);
+            }
+        }
+        return deltas;
+    }
+}
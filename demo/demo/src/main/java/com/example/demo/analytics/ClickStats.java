@@ -0,0 +1,28 @@
+package com.example.demo.analytics;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 短網址在一段時間內的點擊統計
+ * 每個桶一筆，沒有點擊的桶以 0 補齊
+ *
+ * @param shortCode 短鏈接代碼
+ * @param granularity 時間粒度
+ * @param from 第一個桶的起點（含）
+ * @param to 結束時間（不含）
+ * @param total 期間內的總點擊數
+ * @param buckets 各桶的點擊數，按時間排序
+ */
+public record ClickStats(String shortCode, RollupGranularity granularity, LocalDateTime from, LocalDateTime to,
+                         long total, List<Bucket> buckets) {
+
+    /**
+     * 單一時間桶
+     *
+     * @param start 桶起點
+     * @param clicks 點擊數
+     */
+    public record Bucket(LocalDateTime start, long clicks) {
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.analytics;
+
+import com.example.demo.repository.ClickRollupRepository;
+import com.example.demo.repository.UrlRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 點擊統計服務
+ * 從預先彙總的 url_click_rollup 讀取，查詢成本只與桶數有關，與點擊量無關
+ */
+@Service
+public class ClickStatsService {
+
+    @Autowired
+    private ClickRollupRepository clickRollupRepository;
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Value("${shorturl.stats.max-buckets:1440}")
+    private int maxBuckets;
+
+    /**
+     * 查詢點擊統計
+     * from 向下對齊到桶起點；以一次索引範圍查詢取得有點擊的桶，其餘補 0
+     * 在唯讀交易中執行，啟用讀取副本時整個查詢在副本上進行
+     *
+     * @param shortCode 短鏈接代碼
+     * @param granularity 時間粒度
+     * @param from 起始時間（含）
+     * @param to 結束時間（不含）
+     * @return Optional<ClickStats> 統計結果，短碼不存在時為空
+     * @throws IllegalArgumentException 時間範圍無效或桶數超過 shorturl.stats.max-buckets
+     */
+    @Transactional(readOnly = true)
+    public Optional<ClickStats> getStats(String shortCode, RollupGranularity granularity,
+                                         LocalDateTime from, LocalDateTime to) {
+        LocalDateTime start = granularity.bucketOf(from);
+        if (!start.isBefore(to)) {
+            throw new IllegalArgumentException("from 必須早於 to");
+        }
+        long bucketCount = bucketCount(granularity, start, to);
+        if (bucketCount > maxBuckets) {
+            throw new IllegalArgumentException("時間範圍超過 " + maxBuckets + " 個桶，請改用較粗的粒度");
+        }
+        if (urlRepository.findByShortCode(shortCode).isEmpty()) {
+            return Optional.empty();
+        }
+
+        Map<LocalDateTime, Long> stored = clickRollupRepository.findRange(shortCode, granularity, start, to);
+        List<ClickStats.Bucket> buckets = new ArrayList<>((int) bucketCount);
+        long total = 0;
+        for (LocalDateTime bucket = start; bucket.isBefore(to); bucket = granularity.next(bucket)) {
+            long clicks = stored.getOrDefault(bucket, 0L);
+            total += clicks;
+            buckets.add(new ClickStats.Bucket(bucket, clicks));
+        }
+        return Optional.of(new ClickStats(shortCode, granularity, start, to, total, buckets));
+    }
+
+    private static long bucketCount(RollupGranularity granularity, LocalDateTime start, LocalDateTime to) {
+        long seconds = Duration.between(start, to).getSeconds();
+        long size = granularity.duration().getSeconds();
+        return (seconds + size - 1) / size;
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.analytics;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * 點擊彙總的時間粒度
+ * 每個訪問事件同時累加到分鐘、小時、天三個粒度的桶
+ */
+public enum RollupGranularity {
+
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    RollupGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * 計算時間所在的桶起點
+     *
+     * @param time 時間
+     * @return LocalDateTime 截斷到本粒度的時間
+     */
+    public LocalDateTime bucketOf(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /**
+     * 下一個桶的起點
+     *
+     * @param bucketStart 桶起點
+     * @return LocalDateTime 下一個桶起點
+     */
+    public LocalDateTime next(LocalDateTime bucketStart) {
+        return bucketStart.plus(1, unit);
+    }
+
+    /**
+     * 一個桶的長度
+     *
+     * @return Duration 桶長度
+     */
+    public Duration duration() {
+        return unit.getDuration();
+    }
+}
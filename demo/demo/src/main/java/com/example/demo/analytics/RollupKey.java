@@ -0,0 +1,23 @@
+package com.example.demo.analytics;
+
+import java.time.LocalDateTime;
+
+/**
+ * 彙總桶的鍵
+ *
+ * @param shortCode 短鏈接代碼
+ * @param granularity 時間粒度
+ * @param bucketStart 桶起點
+ */
+public record RollupKey(String shortCode, RollupGranularity granularity, LocalDateTime bucketStart)
+        implements Comparable<RollupKey> {
+
+    @Override
+    public int compareTo(RollupKey other) {
+        int c = shortCode.compareTo(other.shortCode);
+        if (c != 0) return c;
+        c = granularity.compareTo(other.granularity);
+        if (c != 0) return c;
+        return bucketStart.compareTo(other.bucketStart);
+    }
+}
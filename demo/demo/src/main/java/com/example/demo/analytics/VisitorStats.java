@@ -0,0 +1,26 @@
+package com.example.demo.analytics;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 短網址在一段日期內的獨立訪客估算
+ * 以 HyperLogLog 估算，標準誤差約 0.81%
+ *
+ * @param shortCode 短鏈接代碼
+ * @param from 起始日期（含）
+ * @param to 結束日期（含）
+ * @param uniqueVisitors 整段期間合併去重後的獨立訪客數
+ * @param days 每天的獨立訪客數，按日期排序
+ */
+public record VisitorStats(String shortCode, LocalDate from, LocalDate to, long uniqueVisitors, List<Day> days) {
+
+    /**
+     * 單日獨立訪客
+     *
+     * @param date 日期
+     * @param visitors 獨立訪客數
+     */
+    public record Day(LocalDate date, long visitors) {
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.demo.analytics;
+
+import com.example.demo.config.RedisConfig;
+import com.example.demo.repository.UrlRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 獨立訪客估算服務
+ * 每個短碼每天一個 HyperLogLog（由 ClickAggregator 刷新時 PFADD），每個鍵最多約 12KB，與訪客數無關
+ * 多日查詢以一次管線化的 PFCOUNT 取得每天的估算，並以多鍵 PFCOUNT 在 Redis 端合併各天的暫存器後去重，
+ * 與 PFMERGE 相同的合併方式，但不需要寫入暫存鍵
+ */
+@Service
+public class VisitorStatsService {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private UrlRepository urlRepository;
+
+    @Value("${shorturl.visitors.max-days:366}")
+    private int maxDays;
+
+    /**
+     * 查詢獨立訪客估算
+     *
+     * @param shortCode 短鏈接代碼
+     * @param from 起始日期（含）
+     * @param to 結束日期（含）
+     * @return Optional<VisitorStats> 估算結果，短碼不存在時為空
+     * @throws IllegalArgumentException 日期範圍無效或超過 shorturl.visitors.max-days 天
+     */
+    public Optional<VisitorStats> getVisitors(String shortCode, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from 不可晚於 to");
+        }
+        long dayCount = ChronoUnit.DAYS.between(from, to) + 1;
+        if (dayCount > maxDays) {
+            throw new IllegalArgumentException("日期範圍超過 " + maxDays + " 天");
+        }
+        if (urlRepository.findByShortCode(shortCode).isEmpty()) {
+            return Optional.empty();
+        }
+
+        List<LocalDate> dates = new ArrayList<>((int) dayCount);
+        List<String> keys = new ArrayList<>((int) dayCount);
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            dates.add(day);
+            keys.add(RedisConfig.visitorKey(shortCode, day));
+        }
+        List<Object> counts = redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                for (String key : keys) {
+                    operations.opsForHyperLogLog().size(key);
+                }
+                operations.opsForHyperLogLog().size((Object[]) keys.toArray(new String[0]));
+                return null;
+            }
+        });
+
+        List<VisitorStats.Day> days = new ArrayList<>(dates.size());
+        for (int i = 0; i < dates.size(); i++) {
+            days.add(new VisitorStats.Day(dates.get(i), toLong(counts.get(i))));
+        }
+        long unique = toLong(counts.get(dates.size()));
+        return Optional.of(new VisitorStats(shortCode, from, to, unique, days));
+    }
+
+    private static long toLong(Object count) {
+        return count instanceof Number n ? n.longValue() : 0L;
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.Url;
+import com.example.demo.repository.UrlBatchRepository;
+import com.example.demo.service.UrlService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 啟動時快取預熱
+ * 部署或 Redis 清空後，熱門短碼會同時未命中並一起打到 MySQL；預熱以游標讀取點擊數最高的 top-n 個短鏈接，
+ * 按 batch-size 分批、以 parallelism 個執行緒並行寫入 Redis（管線化 SET ... EX）與本地快取
+ * 以 ApplicationRunner 執行，在 Spring Boot 將就緒狀態切換為 ACCEPTING_TRAFFIC 之前完成，
+ * 負載平衡器以 /actuator/health/readiness 判斷就緒時，預熱完成前不會收到流量
+ * 整個預熱受 time-budget-ms 限制，超時後放棄剩餘的批次，不阻擋啟動
+ */
+@Component
+public class CacheWarmer implements ApplicationRunner {
+
+    @Autowired
+    private UrlBatchRepository urlBatchRepository;
+    @Autowired
+    private UrlService urlService;
+
+    @Value("${shorturl.cache.warmup.enabled:true}")
+    private boolean enabled;
+    @Value("${shorturl.cache.warmup.top-n:10000}")
+    private int topN;
+    @Value("${shorturl.cache.warmup.batch-size:500}")
+    private int batchSize;
+    @Value("${shorturl.cache.warmup.parallelism:4}")
+    private int parallelism;
+    @Value("${shorturl.cache.warmup.time-budget-ms:10000}")
+    private long timeBudgetMs;
+
+    private final AtomicLong loadedCount = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile WarmupResult lastResult;
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmer.class);
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (enabled) {
+            warmUp();
+        }
+    }
+
+    /**
+     * 執行一次預熱
+     * 讀取資料庫的執行緒只負責分批，寫入快取在執行緒池中進行；進行中的批次數以號誌限制，
+     * 讀取速度超過寫入速度時讀取端等待，記憶體中最多保留 2 × parallelism 批
+     *
+     * @return WarmupResult 預熱結果，已有預熱在進行時返回null
+     */
+    public WarmupResult warmUp() {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        long deadline = start + timeBudgetMs;
+        AtomicInteger loaded = new AtomicInteger();
+        AtomicInteger batches = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(2 * parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "cache-warmup");
+            t.setDaemon(true);
+            return t;
+        });
+        boolean completed = false;
+        try {
+            List<Url> batch = new ArrayList<>(batchSize);
+            int timeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(timeBudgetMs));
+            urlBatchRepository.streamHottest(LocalDateTime.now(), topN, batchSize, timeoutSeconds, url -> {
+                batch.add(url);
+                if (batch.size() >= batchSize) {
+                    submit(executor, inFlight, List.copyOf(batch), deadline, loaded, batches, failed);
+                    batch.clear();
+                }
+            });
+            if (!batch.isEmpty()) {
+                submit(executor, inFlight, List.copyOf(batch), deadline, loaded, batches, failed);
+            }
+            executor.shutdown();
+            completed = executor.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (BudgetExceededException e) {
+            log.warn("[warmUp] time budget of {} ms exceeded, stopped after {} codes", timeBudgetMs, loaded.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // 資料庫不可用時放棄預熱，快取依正常流程逐步回填
+            log.warn("[warmUp] warm-up failed: {}", e.getMessage());
+        } finally {
+            executor.shutdownNow();
+            running.set(false);
+        }
+
+        WarmupResult result = new WarmupResult(loaded.get(), batches.get(), failed.get(),
+                System.currentTimeMillis() - start, completed);
+        lastResult = result;
+        log.info("[warmUp] warmed {} codes in {} batches ({} without Redis) in {} ms, completed={}",
+                result.loaded(), result.batches(), result.failedBatches(), result.durationMs(), result.completed());
+        return result;
+    }
+
+    private void submit(ExecutorService executor, Semaphore inFlight, List<Url> batch, long deadline,
+                        AtomicInteger loaded, AtomicInteger batches, AtomicInteger failed) {
+        try {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0 || !inFlight.tryAcquire(remaining, TimeUnit.MILLISECONDS)) {
+                throw new BudgetExceededException();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new BudgetExceededException();
+        }
+        executor.execute(() -> {
+            try {
+                if (!urlService.preload(batch)) {
+                    failed.incrementAndGet();
+                    failedBatches.incrementAndGet();
+                }
+                loaded.addAndGet(batch.size());
+                loadedCount.addAndGet(batch.size());
+                batches.incrementAndGet();
+            } catch (Exception e) {
+                failed.incrementAndGet();
+                failedBatches.incrementAndGet();
+                log.debug("[warmUp] batch failed: {}", e.getMessage());
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * 累計預熱的短碼數
+     *
+     * @return long 短碼數
+     */
+    public long loadedCount() {
+        return loadedCount.get();
+    }
+
+    /**
+     * 累計未能寫入 Redis 的批次數
+     *
+     * @return long 批次數
+     */
+    public long failedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * 是否正在預熱
+     *
+     * @return boolean 進行中返回true
+     */
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * 最近一次預熱的結果
+     *
+     * @return WarmupResult 結果，尚未預熱時返回null
+     */
+    public WarmupResult lastResult() {
+        return lastResult;
+    }
+
+    /**
+     * 一次預熱的結果
+     *
+     * @param loaded 寫入快取的短碼數
+     * @param batches 完成的批次數
+     * @param failedBatches 只寫入本地快取（Redis 不可用）的批次數
+     * @param durationMs 耗時（毫秒）
+     * @param completed 是否在時間預算內全部完成
+     */
+    public record WarmupResult(int loaded, int batches, int failedBatches, long durationMs, boolean completed) {
+    }
+
+    /**
+     * 超過時間預算時中止游標讀取
+     */
+    private static final class BudgetExceededException extends RuntimeException {
+        BudgetExceededException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.demo.cache;
+
+import java.net.URI;
+
+/**
+ * 本地快取中的短網址映射
+ * 保存原始URL及其過期時間（epoch 毫秒），永不過期時為 {@link #NEVER}
+ * 過期時間可能只是快取的存活時間（從 Redis 剩餘存活時間推得），也可能就是短鏈接本身的 expireAt（從資料庫載入）；
+ * 後者重新載入也無法延長，不做提前刷新
+ * 寫入快取時即預先驗證並編碼好 Location 標頭值，命中時直接寫出，不必每次重新解析 URI
+ *
+ * @param originalUrl 原始URL地址
+ * @param expireAtMillis 過期時間（epoch 毫秒）
+ * @param location 預先驗證的 Location 標頭值（ASCII），原始URL無法解析為 URI 時為null
+ * @param fixedExpiry 過期時間為短鏈接本身的 expireAt 時為true
+ */
+public record CachedUrl(String originalUrl, long expireAtMillis, String location, boolean fixedExpiry) {
+
+    public static final long NEVER = Long.MAX_VALUE;
+
+    /**
+     * 建立映射並預先計算 Location 標頭值
+     *
+     * @param originalUrl 原始URL地址
+     * @param expireAtMillis 過期時間（epoch 毫秒）
+     */
+    public CachedUrl(String originalUrl, long expireAtMillis) {
+        this(originalUrl, expireAtMillis, false);
+    }
+
+    /**
+     * 建立映射並預先計算 Location 標頭值
+     *
+     * @param originalUrl 原始URL地址
+     * @param expireAtMillis 過期時間（epoch 毫秒）
+     * @param fixedExpiry 過期時間為短鏈接本身的 expireAt 時為true
+     */
+    public CachedUrl(String originalUrl, long expireAtMillis, boolean fixedExpiry) {
+        this(originalUrl, expireAtMillis, toLocation(originalUrl), fixedExpiry);
+    }
+
+    /**
+     * 判斷映射在指定時間點是否已過期
+     *
+     * @param nowMillis 當前時間（epoch 毫秒）
+     * @return boolean 已過期返回true
+     */
+    public boolean isExpired(long nowMillis) {
+        return expireAtMillis <= nowMillis;
+    }
+
+    /**
+     * 將原始URL轉為可直接寫入 Location 標頭的 ASCII 字串
+     * 與原始URL相同時沿用同一個字串實例，不額外佔用記憶體
+     *
+     * @param originalUrl 原始URL地址
+     * @return String Location 標頭值，無法解析時返回null
+     */
+    static String toLocation(String originalUrl) {
+        try {
+            String ascii = URI.create(originalUrl).toASCIIString();
+            return ascii.equals(originalUrl) ? originalUrl : ascii;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.cache;
+
+/**
+ * 熱點短碼的估計
+ * Space-Saving 的估計值不低於真實次數，count - error 為保證的下界
+ *
+ * @param shortCode 短鏈接代碼
+ * @param count 估計的查詢次數（已乘上取樣率）
+ * @param error 估計的誤差上界
+ */
+public record HotKey(String shortCode, long count, long error) {
+
+    /**
+     * 保證的最少查詢次數
+     *
+     * @return long 次數下界
+     */
+    public long guaranteed() {
+        return count - error;
+    }
+}
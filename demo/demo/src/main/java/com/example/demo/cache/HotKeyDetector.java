@@ -0,0 +1,132 @@
+package com.example.demo.cache;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 熱點短碼偵測
+ * 每次本地快取查詢以 1/sample-rate 的機率取樣，餵入 Space-Saving 計數器，以固定記憶體找出本節點目前的 top-K 短碼
+ * 取樣時只嘗試加鎖，鎖被佔用就放棄這次取樣，重定向執行緒不會等待
+ * 計數按視窗輪換：HotKeyPinner 每個視窗結束時取出上一個視窗的結果並換上新的計數器，熱點隨流量變化淘汰
+ */
+@Component
+public class HotKeyDetector {
+
+    @Value("${shorturl.hotkeys.enabled:true}")
+    private boolean enabled;
+    @Value("${shorturl.hotkeys.capacity:1000}")
+    private int capacity;
+    @Value("${shorturl.hotkeys.sample-rate:16}")
+    private int sampleRate;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder contended = new LongAdder();
+    private SpaceSaving current;
+    private volatile Window lastWindow = new Window(List.of(), 0);
+
+    @PostConstruct
+    void init() {
+        current = new SpaceSaving(capacity);
+    }
+
+    /**
+     * 記錄一次查詢
+     *
+     * @param shortCode 短鏈接代碼
+     */
+    public void offer(String shortCode) {
+        if (!enabled) return;
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) return;
+        if (!lock.tryLock()) {
+            contended.increment();
+            return;
+        }
+        try {
+            current.offer(shortCode);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 結束目前的視窗並開始新的視窗
+     *
+     * @param k 返回的熱點數
+     * @return Window 剛結束的視窗中估計次數最高的 k 個短碼
+     */
+    public Window rotate(int k) {
+        SpaceSaving finished;
+        SpaceSaving next = new SpaceSaving(capacity);
+        lock.lock();
+        try {
+            finished = current;
+            current = next;
+        } finally {
+            lock.unlock();
+        }
+        Window window = new Window(finished.top(k, scale()), finished.total() * scale());
+        lastWindow = window;
+        return window;
+    }
+
+    /**
+     * 目前視窗到目前為止的 top-K
+     *
+     * @param k 返回的熱點數
+     * @return List<HotKey> 按估計次數遞減排列
+     */
+    public List<HotKey> currentTop(int k) {
+        lock.lock();
+        try {
+            return current.top(k, scale());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 上一個完整視窗的結果
+     *
+     * @return Window 視窗結果
+     */
+    public Window lastWindow() {
+        return lastWindow;
+    }
+
+    /**
+     * 因鎖被佔用而放棄的取樣數
+     *
+     * @return long 取樣數
+     */
+    public long contendedSamples() {
+        return contended.sum();
+    }
+
+    /**
+     * 是否啟用
+     *
+     * @return boolean 啟用返回true
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private long scale() {
+        return Math.max(1, sampleRate);
+    }
+
+    /**
+     * 一個視窗的偵測結果
+     *
+     * @param keys 估計次數最高的短碼
+     * @param total 視窗內估計的查詢總數
+     */
+    public record Window(List<HotKey> keys, long total) {
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static com.example.demo.service.UrlService.REDIS_URL_PREFIX;
+
+/**
+ * 熱點短碼釘選
+ * 每個視窗（window-ms）結束時從 HotKeyDetector 取出本節點的 top-K，保證次數達到視窗總數 min-share 且至少 min-count 的短碼
+ * 釘選在本地快取中；釘選的映射每個視窗以一次管線化的 GET + PTTL 從 Redis 刷新，不再是熱點時取消釘選
+ * 熱點短碼因此不會因本地 TTL 到期而集中打到同一個 Redis 分片，點擊也都走本地快取命中路徑，由 ClickAggregator 在本地合併
+ */
+@Component
+public class HotKeyPinner {
+
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+    @Autowired
+    private LocalUrlCache localUrlCache;
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Value("${shorturl.hotkeys.top-k:100}")
+    private int topK;
+    @Value("${shorturl.hotkeys.min-share:0.01}")
+    private double minShare;
+    @Value("${shorturl.hotkeys.min-count:100}")
+    private long minCount;
+
+    private static final Logger log = LoggerFactory.getLogger(HotKeyPinner.class);
+
+    /**
+     * 輪換偵測視窗並更新釘選
+     */
+    @Scheduled(initialDelayString = "${shorturl.hotkeys.window-ms:5000}",
+            fixedDelayString = "${shorturl.hotkeys.window-ms:5000}")
+    public void refresh() {
+        if (!hotKeyDetector.isEnabled()) return;
+        HotKeyDetector.Window window = hotKeyDetector.rotate(topK);
+        Set<String> hot = hotCodes(window, minShare, minCount);
+
+        for (String code : localUrlCache.pinnedCodes()) {
+            if (!hot.contains(code)) {
+                localUrlCache.unpin(code);
+            }
+        }
+        if (hot.isEmpty()) return;
+
+        List<String> codes = new ArrayList<>(hot);
+        List<Object> results;
+        try {
+            results = redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    for (String code : codes) {
+                        operations.opsForValue().get(REDIS_URL_PREFIX + code);
+                        operations.getExpire(REDIS_URL_PREFIX + code, TimeUnit.MILLISECONDS);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // Redis 不可用時新熱點改用本地快取中的映射，已釘選的保留到下一輪（仍受 expireAt 與失效通知約束）
+            log.debug("[refresh] refresh {} hot codes from redis failed: {}", codes.size(), e.getMessage());
+            results = null;
+        }
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < codes.size(); i++) {
+            String code = codes.get(i);
+            Object url = results != null ? results.get(2 * i) : null;
+            if (url != null) {
+                Object pttl = results.get(2 * i + 1);
+                long ttl = pttl instanceof Number n ? n.longValue() : -1;
+                localUrlCache.pin(code, new CachedUrl(url.toString(), ttl > 0 ? now + ttl : CachedUrl.NEVER));
+            } else if (results == null) {
+                CachedUrl cached = localUrlCache.peek(code);
+                if (cached != null) {
+                    localUrlCache.pin(code, cached);
+                }
+            } else {
+                // Redis 中已沒有映射（過期、被刪除或 Redis 被清空），交回一般查詢流程重新載入
+                localUrlCache.unpin(code);
+            }
+        }
+    }
+
+    /**
+     * 篩選需要釘選的熱點
+     *
+     * @param window 視窗結果
+     * @param minShare 保證次數佔視窗總數的最低比例
+     * @param minCount 保證次數的最低值
+     * @return Set<String> 熱點短碼
+     */
+    static Set<String> hotCodes(HotKeyDetector.Window window, double minShare, long minCount) {
+        long threshold = Math.max(minCount, (long) Math.ceil(window.total() * minShare));
+        Set<String> hot = new HashSet<>();
+        for (HotKey key : window.keys()) {
+            if (key.guaranteed() >= threshold) {
+                hot.add(key.shortCode());
+            }
+        }
+        return hot;
+    }
+}
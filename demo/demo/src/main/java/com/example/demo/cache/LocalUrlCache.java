@@ -0,0 +1,320 @@
+package com.example.demo.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地 L1 快取
+ * 位於 Redis 之前的進程內快取，使用 Caffeine（W-TinyLFU 淘汰策略）
+ * 每筆映射的存活時間取本地上限與 {@code Url.expireAt} 兩者中較短者
+ * 映射變更或過期時，透過 Redis pub/sub 通知其他節點失效本地副本
+ * 另維護短 TTL 的負快取，記錄不存在或已過期的短碼，避免重複查詢資料庫
+ * 每次查詢都交給 HotKeyDetector 取樣；被判定為熱點的短碼由 HotKeyPinner 釘選在獨立的映射中，
+ * 不受容量淘汰與本地 TTL 影響，由釘選者定期刷新，仍受 expireAt 與失效通知約束
+ */
+@Component
+public class LocalUrlCache implements MessageListener {
+
+    public static final String INVALIDATE_CHANNEL = "shorturl:invalidate";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @Value("${shorturl.cache.local.max-size:100000}")
+    private long maxSize;
+    @Value("${shorturl.cache.local.max-weight-bytes:0}")
+    private long maxWeightBytes;
+    @Value("${shorturl.cache.local.ttl-seconds:60}")
+    private long ttlSeconds;
+    @Value("${shorturl.cache.negative.max-size:100000}")
+    private long negativeMaxSize;
+    @Value("${shorturl.cache.negative.ttl-seconds:30}")
+    private long negativeTtlSeconds;
+
+    private Cache<String, CachedUrl> cache;
+    private Cache<String, Boolean> negativeCache;
+    private final ConcurrentHashMap<String, CachedUrl> pinned = new ConcurrentHashMap<>();
+    private final LongAdder pinnedHits = new LongAdder();
+
+    private static final Logger log = LoggerFactory.getLogger(LocalUrlCache.class);
+
+    /**
+     * 初始化快取並訂閱失效頻道
+     * 設定了 max-weight-bytes 時以估算的記憶體大小限制容量，否則以筆數限制
+     */
+    @PostConstruct
+    void init() {
+        Caffeine<String, CachedUrl> builder = Caffeine.newBuilder()
+                .recordStats()
+                .expireAfter(new UrlExpiry(TimeUnit.SECONDS.toNanos(ttlSeconds)));
+        if (maxWeightBytes > 0) {
+            builder = builder.maximumWeight(maxWeightBytes)
+                    .weigher(LocalUrlCache::weigh);
+        } else {
+            builder = builder.maximumSize(maxSize);
+        }
+        cache = builder.build();
+        negativeCache = Caffeine.newBuilder()
+                .maximumSize(negativeMaxSize)
+                .expireAfterWrite(negativeTtlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 讀取本地快取
+     * 已過期的映射視為未命中
+     *
+     * @param shortCode 短鏈接代碼
+     * @return CachedUrl 快取的映射，未命中時返回null
+     */
+    public CachedUrl get(String shortCode) {
+        hotKeyDetector.offer(shortCode);
+        CachedUrl hot = pinned.get(shortCode);
+        if (hot != null) {
+            if (!hot.isExpired(System.currentTimeMillis())) {
+                pinnedHits.increment();
+                return hot;
+            }
+            pinned.remove(shortCode, hot);
+        }
+        CachedUrl cached = cache.getIfPresent(shortCode);
+        if (cached != null && cached.isExpired(System.currentTimeMillis())) {
+            cache.invalidate(shortCode);
+            return null;
+        }
+        return cached;
+    }
+
+    /**
+     * 讀取本地快取但不計入命中統計與熱點取樣
+     *
+     * @param shortCode 短鏈接代碼
+     * @return CachedUrl 快取的映射，未命中或已過期時返回null
+     */
+    public CachedUrl peek(String shortCode) {
+        CachedUrl cached = pinned.get(shortCode);
+        if (cached == null) {
+            cached = cache.policy().getIfPresentQuietly(shortCode);
+        }
+        return cached != null && !cached.isExpired(System.currentTimeMillis()) ? cached : null;
+    }
+
+    /**
+     * 釘選熱點映射
+     *
+     * @param shortCode 短鏈接代碼
+     * @param cachedUrl 映射內容
+     */
+    public void pin(String shortCode, CachedUrl cachedUrl) {
+        if (cachedUrl.isExpired(System.currentTimeMillis())) {
+            pinned.remove(shortCode);
+            return;
+        }
+        pinned.put(shortCode, cachedUrl);
+    }
+
+    /**
+     * 取消釘選，映射仍留在一般本地快取中
+     *
+     * @param shortCode 短鏈接代碼
+     */
+    public void unpin(String shortCode) {
+        CachedUrl cached = pinned.remove(shortCode);
+        if (cached != null) {
+            put(shortCode, cached);
+        }
+    }
+
+    /**
+     * 目前釘選的短碼
+     *
+     * @return Set<String> 短碼集合的快照
+     */
+    public Set<String> pinnedCodes() {
+        return Set.copyOf(pinned.keySet());
+    }
+
+    /**
+     * 釘選映射的命中次數
+     *
+     * @return long 次數
+     */
+    public long pinnedHits() {
+        return pinnedHits.sum();
+    }
+
+    /**
+     * 寫入本地快取
+     *
+     * @param shortCode 短鏈接代碼
+     * @param cachedUrl 映射內容
+     */
+    public void put(String shortCode, CachedUrl cachedUrl) {
+        if (cachedUrl.isExpired(System.currentTimeMillis())) return;
+        cache.put(shortCode, cachedUrl);
+    }
+
+    /**
+     * 記錄不存在或已過期的短碼
+     *
+     * @param shortCode 短鏈接代碼
+     */
+    public void markMissing(String shortCode) {
+        negativeCache.put(shortCode, Boolean.TRUE);
+    }
+
+    /**
+     * 判斷短碼是否在負快取中
+     *
+     * @param shortCode 短鏈接代碼
+     * @return boolean 近期確認不存在返回true
+     */
+    public boolean isKnownMissing(String shortCode) {
+        return negativeCache.getIfPresent(shortCode) != null;
+    }
+
+    /**
+     * 失效映射並廣播到所有節點
+     * 本節點立即失效，其他節點在收到 pub/sub 訊息後失效；多個短碼在一次管線中發布
+     * 目前映射只會因過期回收而刪除（沒有修改短網址的端點），由 ExpiredUrlReaper 在刪除 Redis 鍵後呼叫
+     *
+     * @param shortCodes 短鏈接代碼
+     */
+    public void invalidate(Collection<String> shortCodes) {
+        if (shortCodes.isEmpty()) return;
+        shortCodes.forEach(this::invalidateLocal);
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    for (String shortCode : shortCodes) {
+                        operations.convertAndSend(INVALIDATE_CHANNEL, shortCode);
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // Redis 不可用時，其他節點依賴本地 TTL 自然過期
+            log.debug("[invalidate] publish failed for {} codes: {}", shortCodes.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 接收其他節點的失效通知
+     *
+     * @param message pub/sub 訊息，內容為短代碼
+     * @param pattern 訂閱模式
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        invalidateLocal(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 只失效本節點的正、負快取，不廣播
+     *
+     * @param shortCode 短鏈接代碼
+     */
+    public void invalidateLocal(String shortCode) {
+        pinned.remove(shortCode);
+        cache.invalidate(shortCode);
+        negativeCache.invalidate(shortCode);
+    }
+
+    /**
+     * 快取統計
+     * 包含命中、未命中、淘汰次數，用於調整容量
+     *
+     * @return CacheStats 統計快照
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 負快取統計
+     *
+     * @return CacheStats 統計快照
+     */
+    public CacheStats negativeStats() {
+        return negativeCache.stats();
+    }
+
+    /**
+     * 當前快取的映射數量（估算值）
+     *
+     * @return long 映射數量
+     */
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * 估算單筆映射佔用的記憶體（位元組）
+     * 字串按 Latin-1 壓縮計算，並加上物件與節點的固定開銷；Location 與原始URL不同時另計
+     */
+    private static int weigh(String key, CachedUrl value) {
+        String location = value.location();
+        int locationBytes = location != null && location != value.originalUrl() ? location.length() : 0;
+        return 96 + key.length() + value.originalUrl().length() + locationBytes;
+    }
+
+    /**
+     * 映射存活時間策略
+     * 存活時間為本地上限與映射剩餘有效期兩者中較短者
+     */
+    private static final class UrlExpiry implements Expiry<String, CachedUrl> {
+
+        private final long maxTtlNanos;
+
+        UrlExpiry(long maxTtlNanos) {
+            this.maxTtlNanos = maxTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, CachedUrl value, long currentTime) {
+            if (value.expireAtMillis() == CachedUrl.NEVER) return maxTtlNanos;
+            long remainingMillis = value.expireAtMillis() - System.currentTimeMillis();
+            return Math.max(0, Math.min(maxTtlNanos, TimeUnit.MILLISECONDS.toNanos(remainingMillis)));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, CachedUrl value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, CachedUrl value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package com.example.demo.cache;
+
+import com.example.demo.repository.UrlRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.SubscriptionListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 短碼布隆過濾器
+ * 記錄所有已發放且未過期的短碼，用於在不做任何 I/O 的情況下拒絕不可能存在的短碼
+ * 啟動時及定期從 short_url 重建，新建短碼時即時加入並透過 Redis pub/sub 通知其他節點
+ * pub/sub 不保證送達（發布失敗、訂閱連線中斷、容器重試訂閱期間的訊息都會遺失），因此：
+ * 1. 每 catch-up-interval-ms 從 short_url 補掃上次掃描之後新增的短碼，漏收通知的短碼最多在一個間隔內返回 404
+ * 2. 訂閱尚未建立、訂閱連線中斷或重新訂閱後尚未補掃完成時，判定不存在一律視為「可能存在」，交給 Redis / 資料庫查詢
+ * 過濾器尚未建立完成時一律放行，避免誤判
+ */
+@Component
+public class ShortCodeBloomFilter implements MessageListener, SubscriptionListener {
+
+    public static final String CREATED_CHANNEL = "shorturl:created";
+
+    @Autowired
+    private UrlRepository urlRepository;
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+    @Autowired
+    private LocalUrlCache localUrlCache;
+
+    @Value("${shorturl.bloom.expected-insertions:1000000}")
+    private long expectedInsertions;
+    @Value("${shorturl.bloom.fpp:0.01}")
+    private double fpp;
+    @Value("${shorturl.bloom.rebuild-page-size:5000}")
+    private int rebuildPageSize;
+
+    /**
+     * 補掃時從上次掃到的 ID 往回重掃的筆數
+     * 自增 ID 按分配順序而非提交順序可見，較小的 ID 可能在較大的之後才提交
+     */
+    private static final long CATCH_UP_OVERLAP = 1000;
+
+    private volatile Bits active;
+    private volatile Bits building;
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder uncertain = new LongAdder();
+    private final AtomicLong subscriptions = new AtomicLong();
+    private volatile long syncedSubscription = -1;
+    private volatile long lastSeenId;
+    private Executor catchUpExecutor = ForkJoinPool.commonPool();
+
+    private static final Logger log = LoggerFactory.getLogger(ShortCodeBloomFilter.class);
+
+    /**
+     * 訂閱新建短碼頻道
+     */
+    @PostConstruct
+    void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CREATED_CHANNEL));
+    }
+
+    /**
+     * 判斷短碼是否可能存在
+     * 返回false時短碼一定不存在；過濾器尚未建立、或可能漏收了其他節點的新建通知時返回true
+     *
+     * @param shortCode 短鏈接代碼
+     * @return boolean 可能存在返回true
+     */
+    public boolean mightContain(String shortCode) {
+        Bits bits = active;
+        if (bits == null || bits.mightContain(shortCode)) {
+            return true;
+        }
+        if (!isSynced()) {
+            uncertain.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * 登記新建的短碼
+     * 加入本地過濾器、清除本地負快取，並通知其他節點
+     *
+     * @param shortCode 短鏈接代碼
+     */
+    public void add(String shortCode) {
+        addLocal(shortCode);
+        try {
+            redisTemplate.convertAndSend(CREATED_CHANNEL, shortCode);
+        } catch (Exception e) {
+            // Redis 不可用時，其他節點在下次重建時補上
+            log.debug("[add] publish failed for {}: {}", shortCode, e.getMessage());
+        }
+    }
+
+    /**
+     * 批量登記新建的短碼
+     * 所有短碼以逗號分隔合併為一則通知
+     *
+     * @param shortCodes 短鏈接代碼
+     */
+    public void addAll(List<String> shortCodes) {
+        if (shortCodes.isEmpty()) return;
+        shortCodes.forEach(this::addLocal);
+        try {
+            redisTemplate.convertAndSend(CREATED_CHANNEL, String.join(",", shortCodes));
+        } catch (Exception e) {
+            log.debug("[addAll] publish failed for {} codes: {}", shortCodes.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 接收其他節點的新建短碼通知
+     *
+     * @param message pub/sub 訊息，內容為一個或以逗號分隔的多個短代碼
+     * @param pattern 訂閱模式
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        for (String shortCode : new String(message.getBody(), StandardCharsets.UTF_8).split(",")) {
+            addLocal(shortCode);
+        }
+    }
+
+    /**
+     * 訂閱（含斷線後重新訂閱）成功
+     * 訂閱中斷期間的通知已經遺失，在背景補掃完成前判定不存在都不可信
+     *
+     * @param channel 頻道
+     * @param count 目前訂閱數
+     */
+    @Override
+    public void onChannelSubscribed(byte[] channel, long count) {
+        subscriptions.incrementAndGet();
+        catchUpExecutor.execute(this::catchUp);
+    }
+
+    /**
+     * 取消訂閱
+     * 之後的通知都收不到，直到重新訂閱並補掃完成
+     *
+     * @param channel 頻道
+     * @param count 目前訂閱數
+     */
+    @Override
+    public void onChannelUnsubscribed(byte[] channel, long count) {
+        syncedSubscription = -1;
+    }
+
+    /**
+     * 啟動時重建過濾器
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 定期重建過濾器
+     * 淘汰已過期的短碼，並依實際數量調整過濾器大小
+     */
+    @Scheduled(initialDelayString = "${shorturl.bloom.rebuild-interval-ms:21600000}",
+            fixedDelayString = "${shorturl.bloom.rebuild-interval-ms:21600000}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            long capacity = Math.max(expectedInsertions, urlRepository.count() * 2);
+            Bits next = new Bits(capacity, fpp);
+            building = next;
+            long subscription = subscriptions.get();
+            long lastId = scan(0, next);
+            active = next;
+            lastSeenId = lastId;
+            markSynced(subscription);
+            if (syncedSubscription != subscriptions.get()) {
+                // 重建期間才完成訂閱，補掃一次涵蓋訂閱前遺失的通知
+                catchUp();
+            }
+            log.info("[rebuild] bloom filter rebuilt: {} codes, {} bits, took {} ms",
+                    next.count(), next.bitSize(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("[rebuild] bloom filter rebuild failed: {}", e.getMessage());
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * 補掃上次掃描之後新增的短碼
+     * 補上漏收的 pub/sub 通知；在重新訂閱後觸發，並定期執行
+     */
+    @Scheduled(initialDelayString = "${shorturl.bloom.catch-up-interval-ms:30000}",
+            fixedDelayString = "${shorturl.bloom.catch-up-interval-ms:30000}")
+    public synchronized void catchUp() {
+        Bits bits = active;
+        if (bits == null) return;
+        long subscription = subscriptions.get();
+        try {
+            long before = bits.count();
+            lastSeenId = scan(Math.max(0, lastSeenId - CATCH_UP_OVERLAP), null);
+            markSynced(subscription);
+            log.debug("[catchUp] scanned up to id {}, {} new codes", lastSeenId, bits.count() - before);
+        } catch (Exception e) {
+            // 補掃失敗時維持目前狀態，下一輪重試
+            log.warn("[catchUp] bloom filter catch-up failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 從指定 ID 之後掃描未過期的短碼
+     *
+     * @param afterId 起始 ID（不含）
+     * @param target 寫入的過濾器，null 表示以 addLocal 寫入目前的過濾器
+     * @return long 掃到的最大 ID，沒有資料時返回 afterId 與上次掃到的 ID 中較大者
+     */
+    private long scan(long afterId, Bits target) {
+        long lastId = afterId;
+        LocalDateTime now = LocalDateTime.now();
+        while (true) {
+            List<Object[]> page = urlRepository.findActiveShortCodesAfter(lastId, now, PageRequest.of(0, rebuildPageSize));
+            for (Object[] row : page) {
+                lastId = (Long) row[0];
+                if (target != null) {
+                    target.put((String) row[1]);
+                } else {
+                    addLocal((String) row[1]);
+                }
+            }
+            if (page.size() < rebuildPageSize) break;
+        }
+        return target != null ? lastId : Math.max(lastId, lastSeenId);
+    }
+
+    /**
+     * 掃描開始時的訂閱仍然有效，才表示期間的通知都已收到或已掃到
+     */
+    private void markSynced(long subscription) {
+        if (subscription > 0 && subscription == subscriptions.get()) {
+            syncedSubscription = subscription;
+        }
+    }
+
+    private boolean isSynced() {
+        return syncedSubscription == subscriptions.get() && listenerContainer.isListening();
+    }
+
+    /**
+     * 過濾器是否已建立完成
+     *
+     * @return boolean 已建立返回true
+     */
+    public boolean isReady() {
+        return active != null;
+    }
+
+    /**
+     * 已記錄的短碼數量
+     *
+     * @return long 短碼數量，未建立時返回0
+     */
+    public long count() {
+        Bits bits = active;
+        return bits != null ? bits.count() : 0;
+    }
+
+    /**
+     * 過濾器位元數
+     *
+     * @return long 位元數，未建立時返回0
+     */
+    public long bitSize() {
+        Bits bits = active;
+        return bits != null ? bits.bitSize() : 0;
+    }
+
+    /**
+     * 被過濾器直接拒絕的查詢次數
+     *
+     * @return long 拒絕次數
+     */
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * 因可能漏收通知而放行的判定不存在次數
+     *
+     * @return long 放行次數
+     */
+    public long uncertainCount() {
+        return uncertain.sum();
+    }
+
+    private void addLocal(String shortCode) {
+        Bits bits = active;
+        if (bits != null) bits.put(shortCode);
+        Bits next = building;
+        if (next != null) next.put(shortCode);
+        localUrlCache.invalidateLocal(shortCode);
+    }
+
+    /**
+     * 布隆過濾器的位元陣列
+     * 以 AtomicLongArray 保存，支援無鎖並發寫入
+     * 使用 Kirsch-Mitzenmacher 雙重雜湊產生 k 個位置
+     */
+    static final class Bits {
+
+        private final AtomicLongArray words;
+        private final long bitSize;
+        private final int hashCount;
+        private final LongAdder count = new LongAdder();
+
+        Bits(long expectedInsertions, double fpp) {
+            long bits = (long) Math.ceil(-expectedInsertions * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            int wordCount = (int) Math.max(1, (bits + 63) >>> 6);
+            this.words = new AtomicLongArray(wordCount);
+            this.bitSize = (long) wordCount << 6;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitSize / expectedInsertions * Math.log(2)));
+        }
+
+        void put(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+            boolean changed = false;
+            for (int i = 1; i <= hashCount; i++) {
+                long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitSize;
+                int word = (int) (index >>> 6);
+                long mask = 1L << index;
+                long old;
+                do {
+                    old = words.get(word);
+                    if ((old & mask) != 0) break;
+                } while (!words.compareAndSet(word, old, old | mask));
+                changed |= (old & mask) == 0;
+            }
+            // 重複加入（補掃的重疊範圍、重複的通知）不計數；與已有短碼完全碰撞的新短碼會少算，計數為近似值
+            if (changed) count.increment();
+        }
+
+        boolean mightContain(String value) {
+            long hash1 = hash(value);
+            long hash2 = mix(hash1 ^ 0x9E3779B97F4A7C15L);
+            for (int i = 1; i <= hashCount; i++) {
+                long index = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitSize;
+                if ((words.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long count() {
+            return count.sum();
+        }
+
+        long bitSize() {
+            return bitSize;
+        }
+
+        private static long hash(String value) {
+            long h = 0xCBF29CE484222325L;
+            for (int i = 0; i < value.length(); i++) {
+                h ^= value.charAt(i);
+                h *= 0x100000001B3L;
+            }
+            return mix(h);
+        }
+
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            h ^= h >>> 33;
+            h *= 0xC4CEB9FE1A85EC53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.demo.cache;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 單飛載入（single-flight）
+ * 同一個短碼在本節點同時只有一個載入在執行，其他未命中的請求等待同一個結果，
+ * 熱門短碼的快取過期時不會有大量請求同時查詢資料庫
+ * 等待超過 wait-ms 時改為自行載入，載入者卡住不會拖住所有等待者
+ * 另提供背景刷新：提前刷新的請求交給小型執行緒池，提交前即登記為進行中，同一個鍵在佇列中最多一個；
+ * 已有載入進行中或佇列已滿時直接放棄
+ */
+@Component
+public class SingleFlightLoader {
+
+    @Value("${shorturl.cache.single-flight.wait-ms:3000}")
+    private long waitMs;
+    @Value("${shorturl.cache.early-refresh.threads:2}")
+    private int refreshThreads;
+    @Value("${shorturl.cache.early-refresh.queue-size:1000}")
+    private int refreshQueueSize;
+
+    private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private ThreadPoolExecutor refreshExecutor;
+
+    private static final Logger log = LoggerFactory.getLogger(SingleFlightLoader.class);
+
+    @PostConstruct
+    void init() {
+        refreshExecutor = new ThreadPoolExecutor(refreshThreads, refreshThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(refreshQueueSize), r -> {
+                    Thread t = new Thread(r, "cache-refresh");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    /**
+     * 載入一個鍵
+     * 沒有進行中的載入時由呼叫者執行 loader，否則等待進行中的載入結果
+     *
+     * @param key 鍵
+     * @param loader 載入函式，會阻塞
+     * @return String 載入結果，可為null
+     */
+    public String load(String key, Supplier<String> loader) {
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, mine);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing, loader);
+        }
+        return run(key, mine, loader);
+    }
+
+    private String run(String key, CompletableFuture<String> mine, Supplier<String> loader) {
+        loads.increment();
+        try {
+            String value = loader.get();
+            mine.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private String await(CompletableFuture<String> existing, Supplier<String> loader) {
+        try {
+            return existing.get(waitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.debug("[load] waited {} ms for in-flight load, loading directly", waitMs);
+            return loader.get();
+        } catch (CancellationException e) {
+            // 背景刷新未能提交
+            return loader.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 在背景載入一個鍵
+     * 提交前先在 inFlight 登記，已有載入進行中或已在佇列中（前景或背景）時不重複提交；
+     * 佇列已滿時取消登記並放棄，下次命中仍有機會觸發
+     *
+     * @param key 鍵
+     * @param loader 載入函式
+     * @return boolean 已提交返回true
+     */
+    public boolean refreshAsync(String key, Supplier<String> loader) {
+        CompletableFuture<String> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, mine) != null) {
+            return false;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    run(key, mine, loader);
+                } catch (Exception e) {
+                    // 刷新失敗時保留現有快取，到期後由前景請求載入
+                    log.debug("[refreshAsync] refresh {} failed: {}", key, e.getMessage());
+                }
+            });
+            refreshes.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(key, mine);
+            mine.cancel(false);
+            return false;
+        }
+    }
+
+    /**
+     * 累計實際執行的載入數
+     *
+     * @return long 載入數
+     */
+    public long loadCount() {
+        return loads.sum();
+    }
+
+    /**
+     * 累計等待其他載入結果、未自行查詢的請求數
+     *
+     * @return long 請求數
+     */
+    public long coalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * 累計提交的背景刷新數
+     *
+     * @return long 刷新數
+     */
+    public long refreshCount() {
+        return refreshes.sum();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.demo.cache;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving 頻繁項計數器
+ * 固定 capacity 個計數器，新鍵在計數器用完時取代目前計數最小的鍵並繼承其計數（記為誤差上界），
+ * 任何出現次數超過 總數 / capacity 的鍵都一定被保留；計數器以最小堆排列，每次更新 O(log capacity)
+ * 非執行緒安全，由 HotKeyDetector 加鎖保護
+ */
+final class SpaceSaving {
+
+    private final Counter[] heap;
+    private final Map<String, Counter> index;
+    private int size;
+    private long total;
+
+    /**
+     * 建構子
+     *
+     * @param capacity 計數器數量
+     */
+    SpaceSaving(int capacity) {
+        this.heap = new Counter[Math.max(1, capacity)];
+        this.index = new HashMap<>(heap.length * 2);
+    }
+
+    /**
+     * 記錄一次出現
+     *
+     * @param key 鍵
+     */
+    void offer(String key) {
+        total++;
+        Counter counter = index.get(key);
+        if (counter != null) {
+            counter.count++;
+            siftDown(counter.position);
+            return;
+        }
+        if (size < heap.length) {
+            counter = new Counter(key, size);
+            counter.count = 1;
+            heap[size++] = counter;
+            index.put(key, counter);
+            siftUp(counter.position);
+            return;
+        }
+        counter = heap[0];
+        index.remove(counter.key);
+        counter.key = key;
+        counter.error = counter.count;
+        counter.count++;
+        index.put(key, counter);
+        siftDown(0);
+    }
+
+    /**
+     * 記錄的總次數
+     *
+     * @return long 次數
+     */
+    long total() {
+        return total;
+    }
+
+    /**
+     * 計數最高的 k 個鍵
+     *
+     * @param k 數量
+     * @param scale 計數與誤差的放大倍數（取樣率）
+     * @return List<HotKey> 按估計次數遞減排列
+     */
+    List<HotKey> top(int k, long scale) {
+        List<Counter> counters = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counters.add(heap[i]);
+        }
+        counters.sort(Comparator.comparingLong((Counter c) -> c.count).reversed());
+        List<HotKey> top = new ArrayList<>(Math.min(k, counters.size()));
+        for (int i = 0; i < counters.size() && i < k; i++) {
+            Counter c = counters.get(i);
+            top.add(new HotKey(c.key, c.count * scale, c.error * scale));
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        Counter counter = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].count <= counter.count) break;
+            place(heap[parent], i);
+            i = parent;
+        }
+        place(counter, i);
+    }
+
+    private void siftDown(int i) {
+        Counter counter = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) child++;
+            if (counter.count <= heap[child].count) break;
+            place(heap[child], i);
+            i = child;
+        }
+        place(counter, i);
+    }
+
+    private void place(Counter counter, int i) {
+        heap[i] = counter;
+        counter.position = i;
+    }
+
+    private static final class Counter {
+        String key;
+        long count;
+        long error;
+        int position;
+
+        Counter(String key, int position) {
+            this.key = key;
+            this.position = position;
+        }
+    }
+}
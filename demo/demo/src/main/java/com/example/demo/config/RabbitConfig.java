@@ -1,12 +1,14 @@
 package com.example.demo.config;
 
+import com.example.demo.event.AccessEventMessageConverter;
 import org.springframework.amqp.core.Binding;
 import org.springframework.amqp.core.BindingBuilder;
 import org.springframework.amqp.core.DirectExchange;
 import org.springframework.amqp.core.Queue;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
@@ -18,6 +20,19 @@ public class RabbitConfig {
     public static final String QUEUE_NAME = "access_log_queue";
     public static final String ROUTING_KEY = "access.log";
 
+    @Value("${shorturl.consumer.batch-size:10}")
+    private int batchSize;
+    @Value("${shorturl.consumer.batch-timeout-ms:200}")
+    private long batchTimeoutMs;
+    @Value("${shorturl.consumer.prefetch-multiplier:2}")
+    private int prefetchMultiplier;
+    @Value("${shorturl.consumer.min-consumers:1}")
+    private int minConsumers;
+    @Value("${shorturl.consumer.max-consumers:8}")
+    private int maxConsumers;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
     /**
      * 創建直接交換器
      * 用於消息路由，根據路由鍵精確匹配消息
@@ -54,27 +69,27 @@ public class RabbitConfig {
     }
 
     /**
-     * 配置JSON消息轉換器
-     * 用於將Java對象序列化為JSON格式進行消息傳輸
+     * 配置訪問事件消息轉換器
+     * 以緊湊的二進位格式傳輸訪問事件，同時可解碼升級前的舊版JSON消息
      * 
-     * @return Jackson2JsonMessageConverter JSON轉換器實例
+     * @return AccessEventMessageConverter 訪問事件轉換器實例
      */
     @Bean
-    public Jackson2JsonMessageConverter jackson2JsonMessageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public AccessEventMessageConverter accessEventMessageConverter() {
+        return new AccessEventMessageConverter();
     }
 
     /**
      * 配置RabbitMQ模板
-     * 用於發送消息到RabbitMQ，配置了JSON序列化器
+     * 用於發送消息到RabbitMQ，配置了訪問事件轉換器
      * 
      * @param connectionFactory RabbitMQ連接工廠
-     * @param converter JSON消息轉換器
+     * @param converter 訪問事件轉換器
      * @return RabbitTemplate 配置好的RabbitMQ模板
      */
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory,
-                                         Jackson2JsonMessageConverter converter) {
+                                         AccessEventMessageConverter converter) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
         template.setMessageConverter(converter);
         return template;
@@ -83,18 +98,39 @@ public class RabbitConfig {
     /**
      * 配置RabbitMQ監聽器容器工廠
      * 用於創建消息監聽器容器，處理接收到的消息
+     * 以批量模式消費：每批最多 batch-size 則消息；從收到第一筆起最多等待 batch-timeout-ms，逾時即交付不足一批，
+     * 消息持續到達但湊不滿一批時也不會無限延後寫入
+     * 每則消息最多帶有 shorturl.publisher.batch-size 個事件，batch-size 以消息計，預設 10 則（最多約 5000 個事件），
+     * 寫入時再由 AccessLogConsumer 按 max-events-per-transaction 切成多個交易
+     * 消費者數量在 min-consumers 與 max-consumers 之間隨負載自動伸縮，
+     * prefetch 為批量大小的 prefetch-multiplier 倍，確保每個消費者都能湊滿一批
+     * 開啟 spring.threads.virtual.enabled 時消費者執行緒改用虛擬執行緒
      * 
      * @param connectionFactory RabbitMQ連接工廠
-     * @param converter JSON消息轉換器
+     * @param converter 訪問事件轉換器
      * @return SimpleRabbitListenerContainerFactory 監聽器容器工廠
      */
     @Bean("rabbitListenerContainerFactory")
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
             ConnectionFactory connectionFactory,
-            Jackson2JsonMessageConverter converter) {
+            AccessEventMessageConverter converter) {
         SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
         factory.setMessageConverter(converter);
+        factory.setBatchListener(true);
+        factory.setConsumerBatchEnabled(true);
+        factory.setBatchSize(batchSize);
+        factory.setReceiveTimeout(batchTimeoutMs);
+        factory.setBatchReceiveTimeout(batchTimeoutMs);
+        factory.setPrefetchCount(batchSize * prefetchMultiplier);
+        factory.setConcurrentConsumers(minConsumers);
+        factory.setMaxConcurrentConsumers(maxConsumers);
+        factory.setConsecutiveActiveTrigger(3);
+        factory.setStartConsumerMinInterval(2000L);
+        factory.setStopConsumerMinInterval(30000L);
+        if (virtualThreads) {
+            factory.setTaskExecutor(new VirtualThreadTaskExecutor("access-log-consumer-"));
+        }
         return factory;
     }
 }
@@ -0,0 +1,94 @@
+package com.example.demo.config;
+
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.cache.ShortCodeBloomFilter;
+import com.example.demo.controller.ReactiveRedirectHandler;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.service.RedisCircuitBreaker;
+import com.example.demo.service.UrlService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.web.reactive.config.BlockingExecutionConfigurer;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+/**
+ * 反應式模式配置
+ * spring.main.web-application-type=reactive 時生效，以 WebFlux 路由函式提供非阻塞的重定向端點
+ * 路由函式的優先順序高於註解控制器，因此會取代 UrlController 的重定向；其他註解端點照常提供，
+ * 但其阻塞的方法體改在獨立的執行器上執行，不佔用事件迴圈
+ */
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveRedirectConfig implements WebFluxConfigurer {
+
+    @Value("${shorturl.reactive.db-threads:32}")
+    private int dbThreads;
+    @Value("${shorturl.reactive.db-queue-size:10000}")
+    private int dbQueueSize;
+    @Value("${shorturl.reactive.blocking-concurrency:64}")
+    private int blockingConcurrency;
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    /**
+     * 配置資料庫查詢排程器
+     * 有界的 boundedElastic 排程器，只在快取未命中時使用；佇列滿時拒絕，避免無限堆積
+     *
+     * @return Scheduler 資料庫查詢排程器
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler redirectBlockingScheduler() {
+        return Schedulers.newBoundedElastic(dbThreads, dbQueueSize, "redirect-db");
+    }
+
+    /**
+     * 配置反應式重定向處理器
+     *
+     * @return ReactiveRedirectHandler 重定向處理器
+     */
+    @Bean
+    public ReactiveRedirectHandler reactiveRedirectHandler(UrlService urlService, LocalUrlCache localUrlCache,
+                                                           ShortCodeBloomFilter shortCodeBloomFilter,
+                                                           RedisCircuitBreaker redisCircuitBreaker,
+                                                           ReactiveStringRedisTemplate reactiveRedisTemplate,
+                                                           Scheduler redirectBlockingScheduler,
+                                                           ShortUrlMetrics metrics) {
+        return new ReactiveRedirectHandler(urlService, localUrlCache, shortCodeBloomFilter, redisCircuitBreaker,
+                reactiveRedisTemplate, redirectBlockingScheduler, metrics);
+    }
+
+    /**
+     * 配置重定向路由
+     *
+     * @param handler 重定向處理器
+     * @return RouterFunction 路由函式
+     */
+    @Bean
+    public RouterFunction<ServerResponse> redirectRoute(ReactiveRedirectHandler handler) {
+        return RouterFunctions.route(GET("/api/url/{shortCode}"), handler::redirect);
+    }
+
+    /**
+     * 註解控制器中返回非反應式類型的方法（建立短網址等）改在獨立執行器上執行
+     *
+     * @param configurer 阻塞執行配置
+     */
+    @Override
+    public void configureBlockingExecution(BlockingExecutionConfigurer configurer) {
+        SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("webflux-blocking-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.setConcurrencyLimit(blockingConcurrency);
+        configurer.setExecutor(executor);
+    }
+}
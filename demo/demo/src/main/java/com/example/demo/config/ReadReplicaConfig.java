@@ -0,0 +1,96 @@
+package com.example.demo.config;
+
+import com.example.demo.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 讀寫分離資料來源配置
+ * shorturl.datasource.replica.enabled=true 時取代 Spring Boot 自動配置的資料來源：
+ * 主庫沿用 spring.datasource.*（連線池設定沿用 spring.datasource.hikari.*），
+ * shorturl.datasource.replica.urls 中的每個網址建立一個唯讀連線池
+ * 應用程式使用的資料來源為包住 ReplicaRoutingDataSource 的 LazyConnectionDataSourceProxy
+ */
+@Configuration
+@ConditionalOnProperty(name = "shorturl.datasource.replica.enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+    @Value("${shorturl.datasource.replica.urls}")
+    private List<String> replicaUrls;
+    @Value("${shorturl.datasource.replica.username:${spring.datasource.username:}}")
+    private String replicaUsername;
+    @Value("${shorturl.datasource.replica.password:${spring.datasource.password:}}")
+    private String replicaPassword;
+    @Value("${shorturl.datasource.replica.pool-size:10}")
+    private int replicaPoolSize;
+
+    /**
+     * 主庫連線池
+     *
+     * @param properties spring.datasource.* 設定
+     * @return HikariDataSource 主庫連線池
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName(StringUtils.hasText(properties.getName()) ? properties.getName() : "primary");
+        return dataSource;
+    }
+
+    /**
+     * 讀寫路由
+     * 副本連線池不在啟動時驗證連線，副本暫時不可用不影響啟動，由健康檢查排除
+     *
+     * @param primaryDataSource 主庫連線池
+     * @param properties spring.datasource.* 設定（副本沿用驅動程式）
+     * @return ReplicaRoutingDataSource 路由資料來源
+     */
+    @Bean
+    public ReplicaRoutingDataSource replicaRoutingDataSource(HikariDataSource primaryDataSource,
+                                                             DataSourceProperties properties) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            HikariDataSource replica = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(replicaUrls.get(i).trim())
+                    .username(replicaUsername)
+                    .password(replicaPassword)
+                    .build();
+            replica.setPoolName("replica-" + i);
+            replica.setMaximumPoolSize(replicaPoolSize);
+            replica.setReadOnly(true);
+            replica.setInitializationFailTimeout(-1);
+            replicas.put(replica.getPoolName(), replica);
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas);
+    }
+
+    /**
+     * 應用程式使用的資料來源
+     * 延遲取得實際連線，路由時交易的唯讀旗標已設定
+     *
+     * @param replicaRoutingDataSource 讀寫路由
+     * @return DataSource 資料來源
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
@@ -1,15 +1,43 @@
 package com.example.demo.config;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 import org.springframework.data.redis.serializer.GenericToStringSerializer;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
 
 @Configuration
 public class RedisConfig {
+
+    public static final String CLICK_PENDING_KEY = "click:pending";
+    public static final String CLICK_DRAINING_KEY = "click:draining";
+    public static final String ACCESS_STREAM_KEY = "shorturl:access-events";
+    public static final String VISITOR_KEY_PREFIX = "uv:";
+
+    private static final Logger log = LoggerFactory.getLogger(RedisConfig.class);
+
+    /**
+     * 短碼某一天的獨立訪客 HyperLogLog 鍵
+     * 短碼放在 hash tag 中，同一短碼各天的鍵位於同一個 slot，可以一次 PFCOUNT 多個鍵
+     *
+     * @param shortCode 短鏈接代碼
+     * @param day 日期
+     * @return String 形如 uv:{abc123}:20250101 的鍵
+     */
+    public static String visitorKey(String shortCode, LocalDate day) {
+        return VISITOR_KEY_PREFIX + "{" + shortCode + "}:" + day.format(DateTimeFormatter.BASIC_ISO_DATE);
+    }
+
     /**
      * 配置Redis模板
      * 設置Redis的序列化方式，確保鍵值對可以正確存儲和檢索
@@ -30,4 +58,83 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    /**
+     * 配置Redis訊息監聽容器
+     * 用於訂閱 pub/sub 頻道，例如本地快取的跨節點失效通知
+     * 啟動時 Redis 不可用不會導致應用啟動失敗，而是在背景以退避間隔重試訂閱
+     *
+     * @param factory Redis連接工廠
+     * @return RedisMessageListenerContainer 訊息監聽容器
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory factory) {
+        RedisMessageListenerContainer container = new ResilientListenerContainer();
+        container.setConnectionFactory(factory);
+        return container;
+    }
+
+    /**
+     * 啟動失敗時自動重試的訊息監聽容器
+     * 重試間隔從5秒起倍增，最長60秒；容器被停止或銷毀（例如應用關閉）時取消待執行的重試，不再訂閱
+     * 訂閱成功後的斷線重連由容器本身的 recovery 機制處理
+     */
+    static final class ResilientListenerContainer extends RedisMessageListenerContainer {
+
+        private static final long INITIAL_RETRY_MS = 5000;
+        private static final long MAX_RETRY_MS = 60000;
+
+        private volatile boolean stopped;
+        private volatile CompletableFuture<Void> pendingRetry;
+        private long retryDelayMs = INITIAL_RETRY_MS;
+
+        @Override
+        public synchronized void start() {
+            stopped = false;
+            retryDelayMs = INITIAL_RETRY_MS;
+            subscribe();
+        }
+
+        private synchronized void subscribe() {
+            if (stopped) return;
+            try {
+                super.start();
+                retryDelayMs = INITIAL_RETRY_MS;
+            } catch (Exception e) {
+                long delay = retryDelayMs;
+                retryDelayMs = Math.min(delay * 2, MAX_RETRY_MS);
+                log.warn("[redisMessageListenerContainer] subscribe failed, retrying in {} ms: {}", delay, e.getMessage());
+                // 直接呼叫父類實作，只停止這次失敗的啟動，不取消重試
+                super.stop(() -> { });
+                pendingRetry = CompletableFuture.runAsync(this::subscribe,
+                        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS));
+            }
+        }
+
+        @Override
+        public void stop(Runnable callback) {
+            cancelRetry();
+            super.stop(callback);
+        }
+
+        @Override
+        public void destroy() throws Exception {
+            cancelRetry();
+            super.destroy();
+        }
+
+        boolean retryPending() {
+            CompletableFuture<Void> retry = pendingRetry;
+            return retry != null && !retry.isDone();
+        }
+
+        private synchronized void cancelRetry() {
+            stopped = true;
+            CompletableFuture<Void> retry = pendingRetry;
+            if (retry != null) {
+                // 尚未執行的重試被取消後不會再執行
+                retry.cancel(false);
+            }
+        }
+    }
 }
\ No newline at end of file
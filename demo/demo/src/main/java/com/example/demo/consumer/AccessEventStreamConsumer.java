@@ -0,0 +1,182 @@
+package com.example.demo.consumer;
+
+import com.example.demo.config.RedisConfig;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.event.AccessEventCodec;
+import com.example.demo.metrics.ShortUrlMetrics;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 訪問事件 Stream 消費者
+ * 重定向腳本把訪問事件追加到 Redis Stream 時（shorturl.redirect.stream.enabled=true），
+ * 以消費者群組批量讀取並交給 AccessLogConsumer 寫入資料庫，寫入後才 XACK
+ * 啟動後先重讀本消費者尚未確認的事件，並定期接手其他消費者（例如已中斷的進程）閒置過久的事件，避免遺失
+ */
+@Component
+@ConditionalOnProperty(name = "shorturl.redirect.stream.enabled", havingValue = "true")
+public class AccessEventStreamConsumer {
+
+    static final String GROUP = "access-log";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private AccessLogConsumer accessLogConsumer;
+    @Autowired
+    private ShortUrlMetrics metrics;
+
+    @Value("${shorturl.redirect.stream.batch-size:500}")
+    private int batchSize;
+    @Value("${shorturl.redirect.stream.consumer-name:}")
+    private String consumerName;
+    @Value("${shorturl.redirect.stream.claim-idle-ms:60000}")
+    private long claimIdleMs;
+
+    private boolean groupReady;
+    private boolean pendingReplayed;
+
+    private static final Logger log = LoggerFactory.getLogger(AccessEventStreamConsumer.class);
+
+    /**
+     * 決定消費者名稱
+     * 未設定 consumer-name 時以主機名、PID 與隨機字串組成，每個進程各自唯一；
+     * 名稱相同的節點會共用同一份待確認清單，互相處理對方的事件
+     */
+    @PostConstruct
+    void init() {
+        if (consumerName == null || consumerName.isBlank()) {
+            consumerName = defaultConsumerName();
+        }
+        log.info("[init] reading {} as consumer {} of group {}", RedisConfig.ACCESS_STREAM_KEY, consumerName, GROUP);
+    }
+
+    static String defaultConsumerName() {
+        String host = System.getenv("HOSTNAME");
+        if (host == null || host.isBlank()) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                // 無法解析主機名時只用 PID 與隨機字串，仍然唯一
+                host = "shorturl";
+            }
+        }
+        return host + "-" + ProcessHandle.current().pid() + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * 讀取並處理一批訪問事件
+     * 每 200 毫秒執行一次，先接手其他消費者閒置過久的事件，讀到整批時立即繼續讀取
+     */
+    @Scheduled(fixedDelay = 200)
+    public void poll() {
+        try {
+            ensureGroup();
+            claimAbandoned();
+            while (readBatch() == batchSize) {
+                // 積壓時連續讀取
+            }
+        } catch (Exception e) {
+            log.debug("[poll] stream read failed: {}", e.getMessage());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int readBatch() {
+        // 先重讀已投遞但尚未確認的事件（offset 0），讀完後改讀新事件（offset >）
+        ReadOffset offset = pendingReplayed ? ReadOffset.lastConsumed() : ReadOffset.from("0");
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream().read(
+                Consumer.from(GROUP, consumerName),
+                StreamReadOptions.empty().count(batchSize),
+                StreamOffset.create(RedisConfig.ACCESS_STREAM_KEY, offset));
+        if (records == null || records.isEmpty()) {
+            pendingReplayed = true;
+            return 0;
+        }
+        process(records);
+        return records.size();
+    }
+
+    /**
+     * 接手其他消費者閒置過久的事件
+     * 消費者名稱每個進程不同，進程中斷後它名下已投遞但未確認的事件不會再被自己讀取；
+     * 以 XPENDING 找出閒置超過 claim-idle-ms 的事件，以帶最小閒置時間的 XCLAIM 接手（多個節點同時接手時只有一個成功）後處理
+     *
+     * @return int 接手的事件數
+     */
+    int claimAbandoned() {
+        if (claimIdleMs <= 0) return 0;
+        PendingMessages pending = redisTemplate.opsForStream().pending(
+                RedisConfig.ACCESS_STREAM_KEY, GROUP, Range.unbounded(), batchSize);
+        if (pending == null || pending.isEmpty()) return 0;
+        Duration minIdle = Duration.ofMillis(claimIdleMs);
+        RecordId[] ids = pending.stream()
+                .filter(message -> !consumerName.equals(message.getConsumerName()))
+                .filter(message -> message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) >= 0)
+                .map(PendingMessage::getId)
+                .toArray(RecordId[]::new);
+        if (ids.length == 0) return 0;
+        List<MapRecord<String, Object, Object>> claimed = redisTemplate.opsForStream().claim(
+                RedisConfig.ACCESS_STREAM_KEY, GROUP, consumerName, minIdle, ids);
+        if (claimed == null || claimed.isEmpty()) return 0;
+        log.info("[claimAbandoned] claimed {} idle events from other consumers", claimed.size());
+        process(claimed);
+        return claimed.size();
+    }
+
+    private void process(List<MapRecord<String, Object, Object>> records) {
+        List<AccessEvent> events = new ArrayList<>(records.size());
+        List<RecordId> ids = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            ids.add(record.getId());
+            // XCLAIM 接手時已被 MAXLEN 裁掉的事件沒有內容，照常確認
+            Object payload = record.getValue() != null ? record.getValue().get("e") : null;
+            try {
+                events.addAll(AccessEventCodec.decode(Base64.getDecoder().decode(String.valueOf(payload))));
+            } catch (Exception e) {
+                log.warn("[readBatch] skipping malformed stream record {}: {}", record.getId(), e.getMessage());
+            }
+        }
+        if (!events.isEmpty()) {
+            metrics.recordConsumerBatch("stream", events.size(), AccessLogConsumer.oldestAccessTime(events));
+        }
+        accessLogConsumer.receive(events);
+        redisTemplate.opsForStream().acknowledge(RedisConfig.ACCESS_STREAM_KEY, GROUP, ids.toArray(new RecordId[0]));
+    }
+
+    private void ensureGroup() {
+        if (groupReady) return;
+        try {
+            redisTemplate.opsForStream().createGroup(RedisConfig.ACCESS_STREAM_KEY, ReadOffset.from("0"), GROUP);
+        } catch (Exception e) {
+            // 群組已存在（BUSYGROUP）時忽略
+            String message = NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            if (message == null || !message.contains("BUSYGROUP")) throw e;
+        }
+        groupReady = true;
+    }
+}
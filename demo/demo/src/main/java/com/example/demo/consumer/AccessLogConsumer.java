@@ -1,16 +1,28 @@
 package com.example.demo.consumer;
 
+import com.example.demo.analytics.ClickRollups;
+import com.example.demo.analytics.RollupKey;
 import com.example.demo.entity.UrlAccessLog;
 import com.example.demo.entity.UrlNotification;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.event.AccessEventMessageConverter;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.repository.AccessLogBatchRepository;
+import com.example.demo.repository.ClickRollupRepository;
 import com.example.demo.repository.UrlAccessLogRepository;
 import com.example.demo.repository.UrlNotificationRepository;
+import org.springframework.amqp.core.Message;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 @Component
@@ -20,55 +32,160 @@ public class AccessLogConsumer {
     private UrlAccessLogRepository logRepository;
     @Autowired
     private UrlNotificationRepository notificationRepository;
+    @Autowired
+    private AccessLogBatchRepository accessLogBatchRepository;
+    @Autowired
+    private AccessEventMessageConverter messageConverter;
+    @Autowired
+    private ClickRollupRepository clickRollupRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ShortUrlMetrics metrics;
+
+    @Value("${shorturl.consumer.max-events-per-transaction:2000}")
+    private int maxEventsPerTransaction;
+
+    public static final String LISTENER_ID = "accessLogListener";
+
 
     private static final Logger log = LoggerFactory.getLogger(AccessLogConsumer.class);
 
     /**
-     * 接收訪問日誌消息
-     * 從RabbitMQ隊列中接收訪問日誌消息，並保存到資料庫
-     * 同時創建相應的通知記錄
+     * 批量接收訪問日誌消息
+     * 監聽器每次收到最多 batch-size 則消息（或從第一筆起等待 batch-timeout-ms 後的不足一批）
+     * 每則消息由 AccessEventMessageConverter 解碼為一個或多個訪問事件
      * 
-     * @param message 包含短代碼和訪問時間的消息
+     * @param messages AMQP 消息列表
      */
-    @RabbitListener(queues = "access_log_queue")
-    public void receive(Map<String, Object> message) {
+    @RabbitListener(id = LISTENER_ID, queues = "access_log_queue")
+    public void onMessages(List<Message> messages) {
+        List<AccessEvent> events = new ArrayList<>(messages.size());
+        for (Message message : messages) {
+            try {
+                events.addAll(messageConverter.fromMessage(message));
+            } catch (Exception e) {
+                log.warn("[AccessLogConsumer] failed to decode message: {}", e.getMessage());
+            }
+        }
+        if (!events.isEmpty()) {
+            metrics.recordConsumerBatch("amqp", events.size(), oldestAccessTime(events));
+        }
+        receive(events);
+    }
+
+    /**
+     * 寫入一批訪問事件
+     * 每則消息可能帶有多達數百個事件，因此按事件數切塊：每塊最多 max-events-per-transaction 筆（不大於 0 時不切塊），
+     * 各自在一個交易中寫入，方法返回後整批確認
+     *
+     * @param events 訪問事件列表
+     */
+    public void receive(List<AccessEvent> events) {
+        if (events.isEmpty()) return;
+        int chunkSize = maxEventsPerTransaction > 0 ? maxEventsPerTransaction : events.size();
+        for (int from = 0; from < events.size(); from += chunkSize) {
+            write(events.subList(from, Math.min(from + chunkSize, events.size())));
+        }
+    }
+
+    /**
+     * 寫入一塊訪問事件
+     * 在同一個交易中以多值 INSERT 寫入訪問日誌與通知，並以 upsert 累加分鐘、小時、天的點擊彙總
+     * 整塊寫入失敗時改為逐筆保存，避免單筆壞資料拖累整塊；彙總只累加保存成功的事件
+     *
+     * @param events 訪問事件列表
+     */
+    private void write(List<AccessEvent> events) {
+        List<UrlAccessLog> logs = new ArrayList<>(events.size());
+        List<UrlNotification> notifications = new ArrayList<>(events.size());
+        for (AccessEvent event : events) {
+            logs.add(toAccessLog(event));
+            notifications.add(toNotification(event.shortCode()));
+        }
+
+        Map<RollupKey, Long> rollups = ClickRollups.aggregate(events);
+        long start = System.nanoTime();
         try {
-            String shortCode = (String) message.get("shortCode");
-            LocalDateTime accessTime = coerceToLocalDateTime(message.get("accessTime"));
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                accessLogBatchRepository.insertAll(logs, notifications);
+                clickRollupRepository.upsertAll(rollups);
+            });
+            metrics.recordDb("insert-access-logs", System.nanoTime() - start);
+        } catch (Exception e) {
+            log.warn("[AccessLogConsumer] batch insert of {} events failed, saving one by one: {}",
+                    logs.size(), e.getMessage());
+            List<AccessEvent> saved = new ArrayList<>(events.size());
+            for (int i = 0; i < logs.size(); i++) {
+                if (saveOne(logs.get(i), notifications.get(i))) {
+                    saved.add(events.get(i));
+                }
+            }
+            upsertRollups(saved);
+        }
+    }
 
-            UrlAccessLog entity = new UrlAccessLog();
-            entity.setShortCode(shortCode);
-            entity.setAccessTime(accessTime != null ? accessTime : LocalDateTime.now());
+    /**
+     * 逐筆保存訪問日誌與通知
+     * 失敗時只記錄日誌，不丟出例外
+     *
+     * @return boolean 保存成功返回true
+     */
+    private boolean saveOne(UrlAccessLog entity, UrlNotification notification) {
+        try {
             logRepository.save(entity);
-
-            UrlNotification notification = new UrlNotification();
-            notification.setShortCode(shortCode);
-            notification.setType("VISIT");
-            notification.setMessage("短網址被訪問");
             notificationRepository.save(notification);
+            return true;
         } catch (Exception e) {
             // 不丟出例外，避免 unacked/requeue 造成積壓
             log.warn("[AccessLogConsumer] failed to process message: {}", e.getMessage());
+            return false;
         }
     }
 
     /**
-     * 將對象轉換為LocalDateTime
-     * 支援多種時間格式的解析，包括OffsetDateTime、ZonedDateTime、LocalDateTime和ISO字符串
-     * 
-     * @param raw 原始時間對象
-     * @return LocalDateTime 轉換後的時間對象，轉換失敗時返回null
+     * 逐筆保存後補寫彙總
+     * 失敗時只記錄日誌，彙總可能少計這批點擊
+     */
+    private void upsertRollups(List<AccessEvent> saved) {
+        if (saved.isEmpty()) return;
+        try {
+            clickRollupRepository.upsertAll(ClickRollups.aggregate(saved));
+        } catch (Exception e) {
+            // 不丟出例外，避免 unacked/requeue 造成訪問日誌重複寫入
+            log.warn("[AccessLogConsumer] rollup upsert of {} events failed: {}", saved.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * 批次中最早的訪問時間，用於記錄消費延遲
+     *
+     * @param events 訪問事件列表（不可為空）
+     * @return long epoch 毫秒
      */
-    private LocalDateTime coerceToLocalDateTime(Object raw) {
-        if (raw == null) return null;
-        if (raw instanceof LocalDateTime t) return t;
-        if (raw instanceof String s) {
-            String v = s.trim();
-            try { return java.time.OffsetDateTime.parse(v).toLocalDateTime(); } catch (Exception ignored) {}
-            try { return java.time.ZonedDateTime.parse(v).toLocalDateTime(); } catch (Exception ignored) {}
-            try { return java.time.LocalDateTime.parse(v); } catch (Exception ignored) {}
+    static long oldestAccessTime(List<AccessEvent> events) {
+        long oldest = Long.MAX_VALUE;
+        for (AccessEvent event : events) {
+            oldest = Math.min(oldest, event.accessTimeMillis());
         }
-        return null;
+        return oldest;
+    }
+
+    private static UrlAccessLog toAccessLog(AccessEvent event) {
+        UrlAccessLog entity = new UrlAccessLog();
+        entity.setShortCode(event.shortCode());
+        entity.setUserIp(event.userIp());
+        entity.setUserAgent(event.userAgent());
+        entity.setReferer(event.referer());
+        entity.setAccessTime(event.accessTime());
+        return entity;
     }
-}
 
+    private static UrlNotification toNotification(String shortCode) {
+        UrlNotification notification = new UrlNotification();
+        notification.setShortCode(shortCode);
+        notification.setType("VISIT");
+        notification.setMessage("短網址被訪問");
+        return notification;
+    }
+}
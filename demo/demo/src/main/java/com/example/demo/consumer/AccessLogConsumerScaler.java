@@ -0,0 +1,77 @@
+package com.example.demo.consumer;
+
+import com.example.demo.config.RabbitConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 訪問日誌消費者伸縮器
+ * 定期讀取佇列積壓量，按每個消費者負責的消息數調整消費者下限
+ * 容器本身仍會在下限與 max-consumers 之間依活躍度增減消費者
+ */
+@Component
+public class AccessLogConsumerScaler {
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Value("${shorturl.consumer.min-consumers:1}")
+    private int minConsumers;
+    @Value("${shorturl.consumer.max-consumers:8}")
+    private int maxConsumers;
+    @Value("${shorturl.consumer.messages-per-consumer:2000}")
+    private int messagesPerConsumer;
+
+    private int appliedConsumers = -1;
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLogConsumerScaler.class);
+
+    /**
+     * 依佇列積壓量調整消費者數量
+     * 每 5 秒執行一次
+     */
+    @Scheduled(fixedDelay = 5000)
+    public void scale() {
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(AccessLogConsumer.LISTENER_ID);
+        if (!(container instanceof SimpleMessageListenerContainer smlc) || !smlc.isRunning()) {
+            return;
+        }
+        QueueInformation info;
+        try {
+            info = amqpAdmin.getQueueInfo(RabbitConfig.QUEUE_NAME);
+        } catch (Exception e) {
+            log.debug("[scale] queue info unavailable: {}", e.getMessage());
+            return;
+        }
+        if (info == null) return;
+
+        int desired = desiredConsumers(info.getMessageCount());
+        if (desired != appliedConsumers) {
+            log.debug("[scale] queue depth {} -> {} consumers", info.getMessageCount(), desired);
+            smlc.setConcurrentConsumers(desired);
+            appliedConsumers = desired;
+        }
+    }
+
+    /**
+     * 計算目標消費者數量
+     *
+     * @param depth 佇列積壓的消息數
+     * @return int 介於 min-consumers 與 max-consumers 之間的消費者數量
+     */
+    int desiredConsumers(long depth) {
+        long needed = (depth + messagesPerConsumer - 1) / messagesPerConsumer;
+        return (int) Math.max(minConsumers, Math.min(maxConsumers, needed));
+    }
+}
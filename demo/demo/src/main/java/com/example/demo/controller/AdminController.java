@@ -0,0 +1,112 @@
+package com.example.demo.controller;
+
+import com.example.demo.cache.CacheWarmer;
+import com.example.demo.cache.HotKey;
+import com.example.demo.cache.HotKeyDetector;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.cache.ShortCodeBloomFilter;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@RestController
+@RequestMapping("/api/admin")
+public class AdminController {
+
+    @Autowired
+    private LocalUrlCache localUrlCache;
+    @Autowired
+    private ShortCodeBloomFilter shortCodeBloomFilter;
+    @Autowired
+    private CacheWarmer cacheWarmer;
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+
+    @Value("${shorturl.hotkeys.top-k:100}")
+    private int topK;
+
+    /**
+     * 查詢本地快取統計
+     * 返回命中、未命中、淘汰次數與當前大小，以及負快取與布隆過濾器狀態，用於評估快取容量
+     *
+     * @return Map 快取統計資料
+     */
+    @GetMapping("/cache/stats")
+    public Map<String, Object> cacheStats() {
+        CacheStats stats = localUrlCache.stats();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("size", localUrlCache.size());
+        body.put("hitCount", stats.hitCount());
+        body.put("missCount", stats.missCount());
+        body.put("hitRate", stats.hitRate());
+        body.put("evictionCount", stats.evictionCount());
+        body.put("evictionWeight", stats.evictionWeight());
+        CacheStats negative = localUrlCache.negativeStats();
+        body.put("negativeHitCount", negative.hitCount());
+        body.put("negativeMissCount", negative.missCount());
+        body.put("bloomReady", shortCodeBloomFilter.isReady());
+        body.put("bloomCount", shortCodeBloomFilter.count());
+        body.put("bloomBits", shortCodeBloomFilter.bitSize());
+        body.put("bloomRejectedCount", shortCodeBloomFilter.rejectedCount());
+        return body;
+    }
+
+    /**
+     * 手動觸發快取預熱
+     * 用於 Redis 被清空後重新載入熱門短碼，同步執行並返回結果
+     *
+     * @return ResponseEntity 預熱結果，已有預熱在進行時返回 409
+     */
+    @PostMapping("/cache/warmup")
+    public ResponseEntity<?> warmUp() {
+        CacheWarmer.WarmupResult result = cacheWarmer.warmUp();
+        if (result == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("預熱進行中");
+        }
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * 查詢本節點的熱點短碼
+     * 返回上一個完整視窗與目前視窗到目前為止的 top-K 估計，以及各短碼是否已釘選在本地快取
+     *
+     * @param limit 返回的熱點數，預設為 shorturl.hotkeys.top-k
+     * @return Map 熱點資料
+     */
+    @GetMapping("/hot-keys")
+    public Map<String, Object> hotKeys(@RequestParam(required = false) Integer limit) {
+        int k = limit != null && limit > 0 ? Math.min(limit, topK) : topK;
+        Set<String> pinned = localUrlCache.pinnedCodes();
+        HotKeyDetector.Window last = hotKeyDetector.lastWindow();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("enabled", hotKeyDetector.isEnabled());
+        body.put("lastWindowTotal", last.total());
+        body.put("lastWindow", describe(last.keys().stream().limit(k).toList(), pinned));
+        body.put("current", describe(hotKeyDetector.currentTop(k), pinned));
+        body.put("pinned", pinned);
+        return body;
+    }
+
+    private static List<Map<String, Object>> describe(List<HotKey> keys, Set<String> pinned) {
+        return keys.stream().map(key -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("shortCode", key.shortCode());
+            item.put("count", key.count());
+            item.put("error", key.error());
+            item.put("pinned", pinned.contains(key.shortCode()));
+            return item;
+        }).toList();
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.demo.controller;
+
+import com.example.demo.cache.CachedUrl;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.cache.ShortCodeBloomFilter;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.metrics.CacheTier;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.service.RedisCircuitBreaker;
+import com.example.demo.service.UrlService;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * 反應式重定向處理器
+ * 與 UrlController 的重定向相同的 /api/url/{shortCode} 契約，但整條路徑不阻塞事件迴圈：
+ * 本地快取、布隆過濾器、點擊聚合與訪問事件發布都是記憶體操作；Redis 以反應式 Lettuce 執行重定向腳本；
+ * 只有快取未命中（或 Redis 不可用）時才在有界的 offload 排程器上查詢 MySQL
+ */
+public class ReactiveRedirectHandler {
+
+    private static final String NOT_FOUND_MESSAGE = "短網址不存在或已過期";
+
+    private final UrlService urlService;
+    private final LocalUrlCache localUrlCache;
+    private final ShortCodeBloomFilter shortCodeBloomFilter;
+    private final RedisCircuitBreaker redisCircuitBreaker;
+    private final ReactiveStringRedisTemplate reactiveRedisTemplate;
+    private final Scheduler blockingScheduler;
+    private final ShortUrlMetrics metrics;
+
+    /**
+     * 建構子
+     *
+     * @param urlService 短網址服務
+     * @param localUrlCache 本地 L1 快取
+     * @param shortCodeBloomFilter 短碼布隆過濾器
+     * @param redisCircuitBreaker Redis 斷路器
+     * @param reactiveRedisTemplate 反應式 Redis 模板
+     * @param blockingScheduler 執行資料庫查詢的有界排程器
+     * @param metrics 熱路徑指標
+     */
+    public ReactiveRedirectHandler(UrlService urlService, LocalUrlCache localUrlCache,
+                                   ShortCodeBloomFilter shortCodeBloomFilter, RedisCircuitBreaker redisCircuitBreaker,
+                                   ReactiveStringRedisTemplate reactiveRedisTemplate, Scheduler blockingScheduler,
+                                   ShortUrlMetrics metrics) {
+        this.urlService = urlService;
+        this.localUrlCache = localUrlCache;
+        this.shortCodeBloomFilter = shortCodeBloomFilter;
+        this.redisCircuitBreaker = redisCircuitBreaker;
+        this.reactiveRedisTemplate = reactiveRedisTemplate;
+        this.blockingScheduler = blockingScheduler;
+        this.metrics = metrics;
+    }
+
+    /**
+     * 透過短碼重定向到原始URL
+     *
+     * @param request 請求
+     * @return Mono<ServerResponse> 302 重定向、404，缺少 User-Agent 時 400
+     */
+    public Mono<ServerResponse> redirect(ServerRequest request) {
+        long start = System.nanoTime();
+        String shortCode = request.pathVariable("shortCode");
+        HttpHeaders headers = request.headers().asHttpHeaders();
+        String userAgent = headers.getFirst(HttpHeaders.USER_AGENT);
+        if (userAgent == null) {
+            // 與 UrlController 相同：User-Agent 為必填標頭，缺少時返回 400 且不記錄點擊
+            return ServerResponse.badRequest().build();
+        }
+        String remoteAddr = request.remoteAddress()
+                .map(InetSocketAddress::getAddress)
+                .map(InetAddress::getHostAddress)
+                .orElse(null);
+        AccessEvent event = AccessEvent.of(shortCode, System.currentTimeMillis(),
+                AccessEvent.clientIp(headers.getFirst("X-Forwarded-For"), remoteAddr),
+                userAgent, headers.getFirst(HttpHeaders.REFERER));
+
+        CachedUrl local = localUrlCache.get(shortCode);
+        if (local != null) {
+            urlService.refreshIfExpiring(shortCode, local);
+            urlService.recordClick(event);
+            metrics.recordRedirect(CacheTier.LOCAL, System.nanoTime() - start);
+            return local.location() != null
+                    ? ServerResponse.status(HttpStatus.FOUND).header(HttpHeaders.LOCATION, local.location()).build()
+                    : found(local.originalUrl());
+        }
+        if (localUrlCache.isKnownMissing(shortCode)) {
+            metrics.recordRedirect(CacheTier.NEGATIVE, System.nanoTime() - start);
+            return notFound();
+        }
+        if (!shortCodeBloomFilter.mightContain(shortCode)) {
+            metrics.recordRedirect(CacheTier.BLOOM, System.nanoTime() - start);
+            return notFound();
+        }
+        if (!redisCircuitBreaker.isAvailable()) {
+            return fallback(shortCode, event);
+        }
+
+        long redisStart = System.nanoTime();
+        return reactiveRedisTemplate.execute(UrlService.REDIRECT_SCRIPT,
+                        urlService.redirectScriptKeys(shortCode), urlService.redirectScriptArgs(shortCode, event))
+                .collectList()
+                .map(results -> {
+                    metrics.recordRedis("redirect-script", System.nanoTime() - redisStart);
+                    redisCircuitBreaker.recordSuccess();
+                    List<?> result = results.isEmpty() ? null : (List<?>) results.get(0);
+                    return new ScriptOutcome(urlService.onRedirectScriptResult(shortCode, result, event), false);
+                })
+                .onErrorResume(e -> {
+                    // Redis 不可用時，退回阻塞式的原有流程
+                    metrics.fallback("redis", "redirect-script", e);
+                    redisCircuitBreaker.recordFailure(e instanceof Exception ex ? ex : new RuntimeException(e));
+                    return Mono.just(new ScriptOutcome(null, true));
+                })
+                .flatMap(outcome -> {
+                    if (outcome.redisFailed()) return fallback(shortCode, event);
+                    if (outcome.originalUrl() != null) {
+                        metrics.recordRedirect(CacheTier.REDIS, System.nanoTime() - start);
+                        return found(outcome.originalUrl());
+                    }
+                    return offload(() -> {
+                        String originalUrl = urlService.loadFromDatabase(shortCode);
+                        metrics.recordRedirect(originalUrl != null ? CacheTier.DATABASE : CacheTier.MISSING,
+                                System.nanoTime() - start);
+                        return originalUrl;
+                    }, event);
+                });
+    }
+
+    /**
+     * Redis 不可用時的降級流程
+     */
+    private Mono<ServerResponse> fallback(String shortCode, AccessEvent event) {
+        return offload(() -> urlService.getOriginalUrlFromCache(shortCode), event);
+    }
+
+    /**
+     * 在有界的 offload 排程器上執行阻塞查詢，找到時記錄點擊並重定向
+     */
+    private Mono<ServerResponse> offload(Callable<String> lookup, AccessEvent event) {
+        return Mono.fromCallable(lookup)
+                .subscribeOn(blockingScheduler)
+                .flatMap(originalUrl -> {
+                    urlService.recordClick(event);
+                    return found(originalUrl);
+                })
+                .switchIfEmpty(Mono.defer(ReactiveRedirectHandler::notFound));
+    }
+
+    private static Mono<ServerResponse> found(String originalUrl) {
+        return ServerResponse.status(HttpStatus.FOUND).location(URI.create(originalUrl)).build();
+    }
+
+    private static Mono<ServerResponse> notFound() {
+        return ServerResponse.status(HttpStatus.NOT_FOUND).bodyValue(NOT_FOUND_MESSAGE);
+    }
+
+    /**
+     * 重定向腳本的結果
+     *
+     * @param originalUrl 命中時的原始URL，未命中為null
+     * @param redisFailed Redis 是否執行失敗
+     */
+    private record ScriptOutcome(String originalUrl, boolean redisFailed) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.demo.controller;
+
+import com.example.demo.cache.CachedUrl;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.metrics.CacheTier;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.service.UrlService;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 重定向快速路徑
+ * 在 DispatcherServlet 之前攔截 GET /api/url/{shortCode}，本地 L1 快取命中時直接寫出 302，
+ * 不經過 MVC 的處理器映射、參數綁定與 ResponseEntity / HttpHeaders，Location 使用快取中預先驗證的值
+ * 命中時每個請求只配置短碼字串與訪問事件等少量物件；未命中、缺少 User-Agent 或路徑需要解碼時交回 UrlController 處理，
+ * 對外行為與 UrlController 相同
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@ConditionalOnProperty(name = "shorturl.redirect.fast-path.enabled", havingValue = "true")
+public class RedirectFastPathFilter implements Filter {
+
+    private static final String PREFIX = "/api/url/";
+
+    @Autowired
+    private LocalUrlCache localUrlCache;
+    @Autowired
+    private UrlService urlService;
+    @Autowired
+    private ShortUrlMetrics metrics;
+
+    @Override
+    public void doFilter(ServletRequest req, ServletResponse res, FilterChain chain)
+            throws IOException, ServletException {
+        long start = System.nanoTime();
+        HttpServletRequest request = (HttpServletRequest) req;
+        String shortCode = "GET".equals(request.getMethod()) ? shortCode(request) : null;
+        CachedUrl cached = shortCode != null ? localUrlCache.get(shortCode) : null;
+        String userAgent = cached != null && cached.location() != null ? request.getHeader("User-Agent") : null;
+        if (userAgent == null) {
+            chain.doFilter(req, res);
+            return;
+        }
+
+        urlService.refreshIfExpiring(shortCode, cached);
+        urlService.recordClick(AccessEvent.of(shortCode, System.currentTimeMillis(),
+                AccessEvent.clientIp(request.getHeader("X-Forwarded-For"), request.getRemoteAddr()),
+                userAgent, request.getHeader("Referer")));
+        HttpServletResponse response = (HttpServletResponse) res;
+        response.setStatus(HttpServletResponse.SC_FOUND);
+        response.setHeader("Location", cached.location());
+        metrics.recordRedirect(CacheTier.LOCAL, System.nanoTime() - start);
+    }
+
+    /**
+     * 從請求路徑取出短碼
+     * 只處理 /api/url/ 之後單一路徑段且不含編碼字元的情況，其餘交回 MVC 按原規則匹配
+     *
+     * @param request 請求
+     * @return String 短代碼，路徑不符合時返回null
+     */
+    static String shortCode(HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int start = request.getContextPath().length();
+        if (!uri.startsWith(PREFIX, start)) {
+            return null;
+        }
+        start += PREFIX.length();
+        if (start == uri.length()) {
+            return null;
+        }
+        for (int i = start; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == '/' || c == ';' || c == '%') {
+                return null;
+            }
+        }
+        return uri.substring(start);
+    }
+}
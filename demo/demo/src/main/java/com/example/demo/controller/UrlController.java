@@ -1,8 +1,17 @@
 package com.example.demo.controller;
 
+import com.example.demo.analytics.ClickStatsService;
+import com.example.demo.analytics.RollupGranularity;
+import com.example.demo.analytics.VisitorStatsService;
 import com.example.demo.entity.Url;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.service.BatchShortenResult;
+import com.example.demo.service.UrlDeduplicator;
 import com.example.demo.service.UrlService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,11 +19,16 @@ import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 
 import java.net.URI;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.ZonedDateTime;
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
  
 
 @RestController
@@ -23,10 +37,23 @@ public class UrlController {
 
     @Autowired
     private UrlService urlService;
+    @Autowired
+    private ClickStatsService clickStatsService;
+    @Autowired
+    private VisitorStatsService visitorStatsService;
+
+    @Autowired
+    private UrlDeduplicator urlDeduplicator;
+
+    @Value("${shorturl.batch.max-size:5000}")
+    private int maxBatchSize;
+    @Value("${shorturl.dedup.reuse-by-default:false}")
+    private boolean reuseByDefault;
 
     /**
      * 生成短網址
      * 接收原始URL並生成對應的短鏈接，支援設定過期時間
+     * reuseExisting 為true（或未指定且 shorturl.dedup.reuse-by-default 為true）時，相同網址且過期時間相同的既有短鏈接直接返回
      * 只接受JSON格式的請求
      * 
      * @param request 包含原始URL和過期時間的請求對象
@@ -38,31 +65,175 @@ public class UrlController {
             return ResponseEntity.badRequest().build();
         }
 
-        LocalDateTime expireAt = null;
-        String expireAtRaw = request.getExpireAt();
-        if (expireAtRaw != null && !expireAtRaw.isBlank()) {
-            String raw = expireAtRaw.trim();
+        LocalDateTime expireAt = parseExpireAt(request.getExpireAt());
+
+        Url url = urlService.createShortUrl(request.getOriginalUrl(), expireAt, reuseExisting(request));
+        return ResponseEntity.ok(url);
+    }
+
+    /**
+     * 批量生成短網址
+     * 一次請求生成多個短鏈接，結果按輸入順序返回，單筆失敗不影響其他項目
+     * 要求重用的項目先查找既有短鏈接，找到的不再寫入；同一批次內重複的網址不互相合併
+     * 只接受JSON格式的請求，數量上限由 shorturl.batch.max-size 設定
+     *
+     * @param requests 原始URL和過期時間的請求列表
+     * @return ResponseEntity<List<BatchShortenResult>> 每筆的生成結果，或錯誤響應
+     */
+    @PostMapping(value = "/shorten/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<BatchShortenResult>> shortenUrls(@RequestBody List<ShortenRequest> requests) {
+        if (requests == null || requests.isEmpty() || requests.size() > maxBatchSize) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        BatchShortenResult[] results = new BatchShortenResult[requests.size()];
+        List<Url> drafts = new ArrayList<>(requests.size());
+        List<Integer> positions = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            ShortenRequest request = requests.get(i);
+            String originalUrl = request != null ? request.getOriginalUrl() : null;
+            if (originalUrl == null || originalUrl.isBlank()) {
+                results[i] = BatchShortenResult.failure(originalUrl, "原始網址不可為空");
+                continue;
+            }
+            String expireAtRaw = request.getExpireAt();
+            LocalDateTime expireAt = parseExpireAt(expireAtRaw);
+            if (expireAt == null && expireAtRaw != null && !expireAtRaw.isBlank()) {
+                results[i] = BatchShortenResult.failure(originalUrl, "過期時間格式錯誤");
+                continue;
+            }
+            if (reuseExisting(request)) {
+                Url existing = urlDeduplicator.findReusable(originalUrl, expireAt);
+                if (existing != null) {
+                    results[i] = BatchShortenResult.success(existing);
+                    continue;
+                }
+            }
+            drafts.add(new Url(originalUrl, null, expireAt));
+            positions.add(i);
+        }
+
+        List<BatchShortenResult> created = urlService.createShortUrls(drafts);
+        for (int i = 0; i < created.size(); i++) {
+            results[positions.get(i)] = created.get(i);
+        }
+        return ResponseEntity.ok(Arrays.asList(results));
+    }
+
+    /**
+     * 查詢短網址的點擊統計
+     * 從預先彙總的分鐘、小時、天彙總表讀取；未指定起始時間時查詢結束前 24 個粒度長度（如 hour 為最近 24 小時）
+     *
+     * @param shortCode 短鏈接代碼
+     * @param from 起始時間（ISO-8601，含），可省略
+     * @param to 結束時間（ISO-8601，不含），預設為當前時間
+     * @param granularity 時間粒度：minute、hour（預設）或 day
+     * @return ResponseEntity<?> 各桶的點擊數，參數錯誤返回 400，短碼不存在返回 404
+     */
+    @GetMapping(value = "/{shortCode}/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> stats(
+            @PathVariable String shortCode,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "hour") String granularity
+    ) {
+        RollupGranularity unit;
+        try {
+            unit = RollupGranularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("granularity 必須是 minute、hour 或 day");
+        }
+        LocalDateTime end = to != null ? parseExpireAt(to) : LocalDateTime.now();
+        LocalDateTime start = from != null ? parseExpireAt(from)
+                : end != null ? end.minus(unit.duration().multipliedBy(24)) : null;
+        if (start == null || end == null) {
+            return ResponseEntity.badRequest().body("時間格式錯誤");
+        }
+
+        try {
+            return clickStatsService.getStats(shortCode, unit, start, end)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(404).body("短網址不存在"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * 查詢短網址的獨立訪客估算
+     * 以每天一個的 HyperLogLog 估算，整段期間的總數為各天合併去重後的結果；未指定日期時返回最近 7 天
+     *
+     * @param shortCode 短鏈接代碼
+     * @param from 起始日期（yyyy-MM-dd，含），預設為 to 之前 6 天
+     * @param to 結束日期（yyyy-MM-dd，含），預設為今天
+     * @return ResponseEntity<?> 每天與整段期間的獨立訪客數，參數錯誤返回 400，短碼不存在返回 404，Redis 不可用返回 503
+     */
+    @GetMapping(value = "/{shortCode}/visitors", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<?> visitors(
+            @PathVariable String shortCode,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to
+    ) {
+        LocalDate end;
+        LocalDate start;
+        try {
+            end = to != null ? LocalDate.parse(to.trim()) : LocalDate.now();
+            start = from != null ? LocalDate.parse(from.trim()) : end.minusDays(6);
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().body("日期格式錯誤，應為 yyyy-MM-dd");
+        }
+
+        try {
+            return visitorStatsService.getVisitors(shortCode, start, end)
+                    .<ResponseEntity<?>>map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.status(404).body("短網址不存在"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (DataAccessException e) {
+            // Redis 不可用時訪客估算無法取得
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("訪客統計暫時無法使用");
+        }
+    }
+
+    /**
+     * 是否重用相同網址的既有短鏈接
+     *
+     * @param request 請求
+     * @return boolean 請求指定的值，未指定時為 shorturl.dedup.reuse-by-default
+     */
+    private boolean reuseExisting(ShortenRequest request) {
+        return request.getReuseExisting() != null ? request.getReuseExisting() : reuseByDefault;
+    }
+
+    /**
+     * 解析過期時間
+     * 依序嘗試 OffsetDateTime、LocalDateTime、ZonedDateTime 與 Instant 四種 ISO-8601 格式
+     *
+     * @param raw 原始時間字串
+     * @return LocalDateTime 解析後的時間，空白或無法解析時返回null
+     */
+    static LocalDateTime parseExpireAt(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return null;
+        }
+        String value = raw.trim();
+        try {
+            return OffsetDateTime.parse(value).toLocalDateTime();
+        } catch (DateTimeParseException e1) {
             try {
-                expireAt = OffsetDateTime.parse(raw).toLocalDateTime();
-            } catch (DateTimeParseException e1) {
+                return LocalDateTime.parse(value);
+            } catch (DateTimeParseException e2) {
                 try {
-                    expireAt = LocalDateTime.parse(raw);
-                } catch (DateTimeParseException e2) {
+                    return ZonedDateTime.parse(value).toLocalDateTime();
+                } catch (DateTimeParseException e3) {
                     try {
-                        expireAt = ZonedDateTime.parse(raw).toLocalDateTime();
-                    } catch (DateTimeParseException e3) {
-                        try {
-                            expireAt = LocalDateTime.ofInstant(Instant.parse(raw), java.time.ZoneOffset.UTC);
-                        } catch (DateTimeParseException e4) {
-                            expireAt = null;
-                        }
+                        return LocalDateTime.ofInstant(Instant.parse(value), java.time.ZoneOffset.UTC);
+                    } catch (DateTimeParseException e4) {
+                        return null;
                     }
                 }
             }
         }
-
-        Url url = urlService.createShortUrl(request.getOriginalUrl(), expireAt);
-        return ResponseEntity.ok(url);
     }
 
     /**
@@ -73,6 +244,7 @@ public class UrlController {
      * @param ip 用戶IP地址（從X-Forwarded-For頭獲取）
      * @param ua 用戶代理字符串
      * @param referer 來源頁面URL
+     * @param request HTTP請求，沒有X-Forwarded-For時以連線遠端位址作為用戶IP
      * @return ResponseEntity 重定向響應或錯誤信息
      */
     @GetMapping("/{shortCode}")
@@ -80,16 +252,16 @@ public class UrlController {
             @PathVariable String shortCode,
             @RequestHeader(value = "X-Forwarded-For", required = false) String ip,
             @RequestHeader(value = "User-Agent") String ua,
-            @RequestHeader(value = "Referer", required = false) String referer
+            @RequestHeader(value = "Referer", required = false) String referer,
+            HttpServletRequest request
     ) {
-        String originalUrl = urlService.getOriginalUrlFromCache(shortCode);
+        // 解析短碼並記錄點擊
+        String originalUrl = urlService.resolveAndRecordClick(
+                shortCode, AccessEvent.clientIp(ip, request.getRemoteAddr()), ua, referer);
         if (originalUrl == null) {
             return ResponseEntity.status(404).body("短網址不存在或已過期");
         }
 
-        // 記錄點擊
-        urlService.incrementClick(shortCode);
-
         HttpHeaders headers = new HttpHeaders();
         headers.setLocation(URI.create(originalUrl));
         return new ResponseEntity<>(headers, HttpStatus.FOUND);
@@ -99,10 +271,13 @@ public class UrlController {
 class ShortenRequest {
     private String originalUrl;
     private String expireAt; // ISO-8601，例如 2025-09-27T12:00:00Z
+    private Boolean reuseExisting; // 未指定時依 shorturl.dedup.reuse-by-default
 
     public String getOriginalUrl() { return originalUrl; }
     public void setOriginalUrl(String originalUrl) { this.originalUrl = originalUrl; }
     public String getExpireAt() { return expireAt; }
     public void setExpireAt(String expireAt) { this.expireAt = expireAt; }
+    public Boolean getReuseExisting() { return reuseExisting; }
+    public void setReuseExisting(Boolean reuseExisting) { this.reuseExisting = reuseExisting; }
 }
 
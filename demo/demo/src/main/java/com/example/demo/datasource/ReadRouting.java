@@ -0,0 +1,112 @@
+package com.example.demo.datasource;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 讀取路由控制
+ * 副本的複寫有延遲，剛建立的短鏈接可能還沒出現在副本上；以兩種方式避免因此返回 404（並寫入負快取）：
+ * 1. read-your-writes：本節點建立的短碼在 read-your-writes-ms 內直接讀主庫
+ * 2. miss-fallback：副本查無資料時再到主庫查一次（布隆過濾器已擋掉大部分不存在的短碼，額外查詢很少）
+ * 未啟用副本時所有方法都直接執行查詢
+ */
+@Component
+public class ReadRouting {
+
+    private static final ThreadLocal<Boolean> PRIMARY_FORCED = new ThreadLocal<>();
+
+    @Value("${shorturl.datasource.replica.enabled:false}")
+    private boolean enabled;
+    @Value("${shorturl.datasource.replica.read-your-writes-ms:0}")
+    private long readYourWritesMs;
+    @Value("${shorturl.datasource.replica.miss-fallback:true}")
+    private boolean missFallback;
+
+    private Cache<String, Boolean> recentWrites;
+    private final LongAdder primaryRetries = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        if (enabled && readYourWritesMs > 0) {
+            recentWrites = Caffeine.newBuilder()
+                    .maximumSize(100_000)
+                    .expireAfterWrite(readYourWritesMs, TimeUnit.MILLISECONDS)
+                    .build();
+        }
+    }
+
+    /**
+     * 記錄本節點剛寫入的鍵
+     *
+     * @param key 鍵（短代碼）
+     */
+    public void recordWrite(String key) {
+        if (recentWrites != null) {
+            recentWrites.put(key, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * 執行一次唯讀查詢
+     * 剛寫入的鍵直接讀主庫；副本查無資料時依 miss-fallback 再讀一次主庫
+     *
+     * @param key 鍵（短代碼）
+     * @param query 查詢，須在唯讀交易中執行才會路由到副本
+     * @return Optional<T> 查詢結果
+     */
+    public <T> Optional<T> read(String key, Supplier<Optional<T>> query) {
+        if (!enabled) {
+            return query.get();
+        }
+        if (recentWrites != null && recentWrites.getIfPresent(key) != null) {
+            return onPrimary(query);
+        }
+        Optional<T> result = query.get();
+        if (result.isEmpty() && missFallback) {
+            primaryRetries.increment();
+            return onPrimary(query);
+        }
+        return result;
+    }
+
+    /**
+     * 在目前執行緒上強制讀主庫
+     *
+     * @param action 要執行的動作
+     * @return T 動作的結果
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Boolean previous = PRIMARY_FORCED.get();
+        PRIMARY_FORCED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(previous);
+            }
+        }
+    }
+
+    static boolean isPrimaryForced() {
+        return PRIMARY_FORCED.get() != null;
+    }
+
+    /**
+     * 累計因副本查無資料而重查主庫的次數
+     *
+     * @return long 次數
+     */
+    public long primaryRetries() {
+        return primaryRetries.sum();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.demo.datasource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 讀取副本健康檢查
+ * 定期驗證每個副本的連線，不可用的副本退出輪詢，恢復後重新加入
+ */
+@Component
+@ConditionalOnProperty(name = "shorturl.datasource.replica.enabled", havingValue = "true")
+public class ReplicaHealthChecker {
+
+    @Autowired
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Value("${shorturl.datasource.replica.health-check-timeout-seconds:1}")
+    private int timeoutSeconds;
+
+    /**
+     * 檢查所有副本
+     */
+    @Scheduled(fixedDelayString = "${shorturl.datasource.replica.health-check-interval-ms:5000}")
+    public void check() {
+        replicaRoutingDataSource.checkHealth(timeoutSeconds);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.demo.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 讀寫分離路由資料來源
+ * 唯讀交易（@Transactional(readOnly = true)）的連線按輪詢分配到健康的讀取副本，其他連線一律使用主庫
+ * 路由以取得連線當下的交易狀態判斷，須包在 LazyConnectionDataSourceProxy 之內，
+ * 讓連線延遲到第一條語句才取得（此時唯讀旗標已設定）
+ * 副本取得連線失敗時標記為不健康並改用下一個，全部不可用或 ReadRouting 指定主庫時使用主庫
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+    private final LongAdder replicaConnections = new LongAdder();
+    private final LongAdder primaryReadConnections = new LongAdder();
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    /**
+     * 建構子
+     *
+     * @param primary 主庫
+     * @param replicas 副本名稱到資料來源的映射，按順序輪詢
+     */
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas) {
+        this.primary = primary;
+        replicas.forEach((name, dataSource) -> this.replicas.add(new Replica(name, dataSource)));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primary.getConnection();
+        }
+        if (!ReadRouting.isPrimaryForced()) {
+            int size = replicas.size();
+            int start = Math.floorMod(next.getAndIncrement(), Math.max(1, size));
+            for (int i = 0; i < size; i++) {
+                Replica replica = replicas.get((start + i) % size);
+                if (!replica.healthy) continue;
+                try {
+                    Connection connection = replica.dataSource.getConnection();
+                    replicaConnections.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    replica.markDown(e.getMessage());
+                }
+            }
+        }
+        primaryReadConnections.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("各資料來源使用自己的帳號密碼");
+    }
+
+    /**
+     * 檢查每個副本的健康狀態
+     * 以 Connection.isValid 驗證，恢復的副本重新加入輪詢
+     *
+     * @param timeoutSeconds 每個副本的驗證逾時秒數
+     */
+    public void checkHealth(int timeoutSeconds) {
+        for (Replica replica : replicas) {
+            try (Connection connection = replica.dataSource.getConnection()) {
+                if (connection.isValid(timeoutSeconds)) {
+                    replica.markUp();
+                } else {
+                    replica.markDown("connection is not valid");
+                }
+            } catch (SQLException e) {
+                replica.markDown(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 目前健康的副本數
+     *
+     * @return int 副本數
+     */
+    public int healthyReplicas() {
+        return (int) replicas.stream().filter(r -> r.healthy).count();
+    }
+
+    /**
+     * 累計分配到副本的唯讀連線數
+     *
+     * @return long 連線數
+     */
+    public long replicaConnections() {
+        return replicaConnections.sum();
+    }
+
+    /**
+     * 累計由主庫提供的唯讀連線數（副本不可用或指定主庫）
+     *
+     * @return long 連線數
+     */
+    public long primaryReadConnections() {
+        return primaryReadConnections.sum();
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+
+        Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        void markDown(String reason) {
+            if (healthy) {
+                log.warn("[checkHealth] replica {} is down: {}", name, reason);
+            }
+            healthy = false;
+        }
+
+        void markUp() {
+            if (!healthy) {
+                log.info("[checkHealth] replica {} is back", name);
+            }
+            healthy = true;
+        }
+    }
+}
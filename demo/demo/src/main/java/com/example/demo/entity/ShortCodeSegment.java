@@ -0,0 +1,49 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * 短碼號段實體
+ * 每個業務標籤一列，記錄已分配出去的最大 ID
+ */
+@Entity
+@Table(name = "short_code_segment")
+public class ShortCodeSegment {
+
+    @Id
+    @Column(name = "biz_tag", length = 32)
+    private String bizTag;
+
+    @Column(name = "max_id", nullable = false)
+    private Long maxId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt = LocalDateTime.now();
+
+    /**
+     * 預設建構子
+     * 用於JPA實體映射
+     */
+    public ShortCodeSegment() {}
+
+    /**
+     * 建構子
+     *
+     * @param bizTag 業務標籤
+     * @param maxId 已分配的最大 ID
+     */
+    public ShortCodeSegment(String bizTag, Long maxId) {
+        this.bizTag = bizTag;
+        this.maxId = maxId;
+    }
+
+    public String getBizTag() { return bizTag; }
+    public void setBizTag(String bizTag) { this.bizTag = bizTag; }
+
+    public Long getMaxId() { return maxId; }
+    public void setMaxId(Long maxId) { this.maxId = maxId; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -1,10 +1,15 @@
 package com.example.demo.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "short_url", schema = "url_shortener")
+@Table(name = "short_url", schema = "url_shortener",
+        indexes = {
+                @Index(name = "idx_short_url_expire_at", columnList = "expire_at"),
+                @Index(name = "idx_short_url_url_hash", columnList = "url_hash, expire_at")
+        })
 public class Url {
 
     @Id
@@ -26,6 +31,14 @@ public class Url {
     @Column(name = "click_count", nullable = false)
     private Long clickCount = 0L;
 
+    /**
+     * 正規化後原始URL的 128 位元雜湊，用於查找相同網址的既有短鏈接
+     * original_url 長達 2048 字元無法有效建立索引，改以此定長欄位建立索引
+     */
+    @JsonIgnore
+    @Column(name = "url_hash", columnDefinition = "BINARY(16)")
+    private byte[] urlHash;
+
     /**
      * 預設建構子
      * 用於JPA實體映射
@@ -67,6 +80,9 @@ public class Url {
 
     public Long getClickCount() { return clickCount; }
     public void setClickCount(Long clickCount) { this.clickCount = clickCount; }
+
+    public byte[] getUrlHash() { return urlHash; }
+    public void setUrlHash(byte[] urlHash) { this.urlHash = urlHash; }
     /**
      * 增加點擊次數
      * 將指定數量加到當前點擊次數上
@@ -9,7 +9,7 @@ import java.time.LocalDateTime;
  * 記錄短鏈接的訪問信息，包括用戶IP、User-Agent、來源頁面等
  */
 @Entity
-@Table(name = "url_access_log")
+@Table(name = "url_access_log", indexes = @Index(name = "idx_access_log_code_time", columnList = "short_code, access_time"))
 public class UrlAccessLog {
 
     @Id
@@ -68,7 +68,7 @@ public class UrlAccessLog {
     @Column(name = "referer", length = 255)
     private String referer;
 
-    @Column(name = "access_time")
+    @Column(name = "access_time", nullable = false)
     private LocalDateTime accessTime = LocalDateTime.now();
 
     public String getShortCode() {
@@ -0,0 +1,44 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * 已回收的短網址
+ * ExpiredUrlReaper 刪除過期短網址前寫入，保留原始資料與最終點擊數，只供查帳，不參與重定向
+ */
+@Entity
+@Table(name = "short_url_archive", schema = "url_shortener",
+        indexes = @Index(name = "idx_short_url_archive_short_code", columnList = "short_code"))
+public class UrlArchive {
+
+    @Id
+    private Long id;
+
+    @Column(name = "original_url", nullable = false, length = 2048)
+    private String originalUrl;
+
+    @Column(name = "short_code", nullable = false, length = 20)
+    private String shortCode;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expire_at")
+    private LocalDateTime expireAt;
+
+    @Column(name = "click_count", nullable = false)
+    private Long clickCount;
+
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+
+    public Long getId() { return id; }
+    public String getOriginalUrl() { return originalUrl; }
+    public String getShortCode() { return shortCode; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getExpireAt() { return expireAt; }
+    public Long getClickCount() { return clickCount; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+}
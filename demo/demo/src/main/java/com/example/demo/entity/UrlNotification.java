@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
  * 記錄短鏈接相關的通知信息，如訪問通知、異常通知等
  */
 @Entity
-@Table(name = "url_notification")
+@Table(name = "url_notification", indexes = @Index(name = "idx_notification_code_time", columnList = "short_code, created_at"))
 public class UrlNotification {
 
     @Id
@@ -72,7 +72,7 @@ public class UrlNotification {
         this.status = status;
     }
 
-    @Column(name = "created_at")
+    @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
     @Column(name = "status", length = 20)
@@ -0,0 +1,77 @@
+package com.example.demo.event;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * 短網址訪問事件
+ * 攜帶完整的請求上下文，從重定向請求一路傳到訪問日誌；時間以 epoch 毫秒表示，不需要字串解析
+ * 各字串欄位在建立時截斷到 url_access_log 對應欄位的長度
+ *
+ * @param shortCode 短鏈接代碼
+ * @param accessTimeMillis 訪問時間（epoch 毫秒）
+ * @param userIp 用戶IP，可為null
+ * @param userAgent User-Agent，可為null
+ * @param referer 來源頁面，可為null
+ */
+public record AccessEvent(String shortCode, long accessTimeMillis, String userIp, String userAgent, String referer) {
+
+    static final int SHORT_CODE_LENGTH = 20;
+    static final int USER_IP_LENGTH = 50;
+    static final int USER_AGENT_LENGTH = 255;
+    static final int REFERER_LENGTH = 255;
+
+    /**
+     * 以請求上下文建立訪問事件
+     *
+     * @param shortCode 短鏈接代碼
+     * @param accessTimeMillis 訪問時間（epoch 毫秒）
+     * @param userIp 用戶IP
+     * @param userAgent User-Agent
+     * @param referer 來源頁面
+     * @return AccessEvent 欄位已截斷的訪問事件
+     */
+    public static AccessEvent of(String shortCode, long accessTimeMillis, String userIp, String userAgent, String referer) {
+        return new AccessEvent(
+                truncate(shortCode, SHORT_CODE_LENGTH),
+                accessTimeMillis,
+                truncate(userIp, USER_IP_LENGTH),
+                truncate(userAgent, USER_AGENT_LENGTH),
+                truncate(referer, REFERER_LENGTH));
+    }
+
+    /**
+     * 訪問時間轉換為系統時區的本地時間
+     *
+     * @return LocalDateTime 訪問時間
+     */
+    public LocalDateTime accessTime() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(accessTimeMillis), ZoneId.systemDefault());
+    }
+
+    /**
+     * 從 X-Forwarded-For 取出客戶端IP
+     * 經過多層代理時取第一個位址，沒有該標頭時使用連線的遠端位址
+     *
+     * @param forwardedFor X-Forwarded-For 標頭
+     * @param remoteAddr 連線的遠端位址
+     * @return String 客戶端IP
+     */
+    public static String clientIp(String forwardedFor, String remoteAddr) {
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            int comma = forwardedFor.indexOf(',');
+            String first = (comma >= 0 ? forwardedFor.substring(0, comma) : forwardedFor).trim();
+            if (!first.isEmpty()) return first;
+        }
+        return remoteAddr;
+    }
+
+    static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) return value;
+        int end = maxLength;
+        // 不在代理對中間截斷
+        if (Character.isHighSurrogate(value.charAt(end - 1))) end--;
+        return value.substring(0, end);
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.event;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 訪問事件二進位編碼器
+ * 一批事件編碼為：版本（1 byte）、事件數（4 bytes），每個事件為訪問時間（8 bytes epoch 毫秒）
+ * 加上四個長度前綴字串（2 bytes 長度 + UTF-8 內容，長度 0xFFFF 表示null）
+ */
+public final class AccessEventCodec {
+
+    static final byte VERSION = 1;
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    private AccessEventCodec() {
+    }
+
+    /**
+     * 編碼一批事件
+     *
+     * @param events 訪問事件
+     * @return byte[] 二進位內容
+     */
+    public static byte[] encode(List<AccessEvent> events) {
+        List<byte[]> strings = new ArrayList<>(events.size() * 4);
+        int size = 1 + 4;
+        for (AccessEvent event : events) {
+            size += 8;
+            size += add(strings, event.shortCode());
+            size += add(strings, event.userIp());
+            size += add(strings, event.userAgent());
+            size += add(strings, event.referer());
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put(VERSION);
+        buffer.putInt(events.size());
+        int s = 0;
+        for (AccessEvent event : events) {
+            buffer.putLong(event.accessTimeMillis());
+            for (int i = 0; i < 4; i++) {
+                byte[] bytes = strings.get(s++);
+                if (bytes == null) {
+                    buffer.putShort((short) NULL_LENGTH);
+                } else {
+                    buffer.putShort((short) bytes.length);
+                    buffer.put(bytes);
+                }
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解碼一批事件
+     *
+     * @param data 二進位內容
+     * @return List<AccessEvent> 訪問事件
+     * @throws IllegalArgumentException 版本不支援或內容不完整時
+     */
+    public static List<AccessEvent> decode(byte[] data) {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        try {
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("unsupported access event version: " + version);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || count > data.length) {
+                throw new IllegalArgumentException("invalid access event count: " + count);
+            }
+            List<AccessEvent> events = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long accessTimeMillis = buffer.getLong();
+                String shortCode = readString(buffer);
+                String userIp = readString(buffer);
+                String userAgent = readString(buffer);
+                String referer = readString(buffer);
+                events.add(new AccessEvent(shortCode, accessTimeMillis, userIp, userAgent, referer));
+            }
+            return events;
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated access event batch", e);
+        }
+    }
+
+    private static int add(List<byte[]> strings, String value) {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+        if (bytes != null && bytes.length >= NULL_LENGTH) {
+            throw new IllegalArgumentException("access event field too long: " + bytes.length + " bytes");
+        }
+        strings.add(bytes);
+        return 2 + (bytes != null ? bytes.length : 0);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length == NULL_LENGTH) return null;
+        if (length > buffer.remaining()) throw new java.nio.BufferUnderflowException();
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.demo.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 訪問事件消息轉換器
+ * 發送端把一個或一批 {@link AccessEvent} 以 {@link AccessEventCodec} 編碼為二進位消息；
+ * 接收端一律解碼為 List&lt;AccessEvent&gt;
+ * 升級前留在佇列中的舊版 JSON 消息（單一物件或陣列、字串時間）仍可解碼
+ */
+public class AccessEventMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE = "application/vnd.shorturl.access-events.v1";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        List<AccessEvent> events;
+        if (object instanceof AccessEvent event) {
+            events = List.of(event);
+        } else if (object instanceof List<?> list && list.stream().allMatch(AccessEvent.class::isInstance)) {
+            events = (List<AccessEvent>) list;
+        } else {
+            throw new MessageConversionException("unsupported payload: " + (object != null ? object.getClass() : null));
+        }
+        messageProperties.setContentType(CONTENT_TYPE);
+        byte[] body = AccessEventCodec.encode(events);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    /**
+     * 解碼消息
+     *
+     * @param message AMQP 消息
+     * @return List<AccessEvent> 訪問事件
+     */
+    @Override
+    public List<AccessEvent> fromMessage(Message message) {
+        String contentType = message.getMessageProperties().getContentType();
+        try {
+            if (CONTENT_TYPE.equals(contentType)) {
+                return AccessEventCodec.decode(message.getBody());
+            }
+            return fromLegacyJson(message.getBody());
+        } catch (Exception e) {
+            throw new MessageConversionException("failed to decode access events: " + e.getMessage(), e);
+        }
+    }
+
+    private List<AccessEvent> fromLegacyJson(byte[] body) throws java.io.IOException {
+        Object value = objectMapper.readValue(body, Object.class);
+        List<AccessEvent> events = new ArrayList<>();
+        if (value instanceof List<?> list) {
+            for (Object item : list) {
+                if (item instanceof Map<?, ?> map) events.add(fromLegacyMap(map));
+            }
+        } else if (value instanceof Map<?, ?> map) {
+            events.add(fromLegacyMap(map));
+        }
+        return events;
+    }
+
+    private static AccessEvent fromLegacyMap(Map<?, ?> map) {
+        LocalDateTime accessTime = coerceToLocalDateTime(map.get("accessTime"));
+        long millis = accessTime != null
+                ? accessTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : System.currentTimeMillis();
+        return AccessEvent.of((String) map.get("shortCode"), millis, null, null, null);
+    }
+
+    /**
+     * 將舊版 JSON 消息中的時間轉換為LocalDateTime
+     * 支援多種時間格式的解析，包括OffsetDateTime、ZonedDateTime、LocalDateTime的ISO字符串及 epoch 毫秒
+     * 
+     * @param raw 原始時間對象
+     * @return LocalDateTime 轉換後的時間對象，轉換失敗時返回null
+     */
+    static LocalDateTime coerceToLocalDateTime(Object raw) {
+        if (raw == null) return null;
+        if (raw instanceof LocalDateTime t) return t;
+        if (raw instanceof Number n) {
+            return LocalDateTime.ofInstant(java.time.Instant.ofEpochMilli(n.longValue()), ZoneId.systemDefault());
+        }
+        if (raw instanceof String s) {
+            String v = s.trim();
+            try { return java.time.OffsetDateTime.parse(v).toLocalDateTime(); } catch (Exception ignored) {}
+            try { return java.time.ZonedDateTime.parse(v).toLocalDateTime(); } catch (Exception ignored) {}
+            try { return java.time.LocalDateTime.parse(v); } catch (Exception ignored) {}
+        }
+        return null;
+    }
+}
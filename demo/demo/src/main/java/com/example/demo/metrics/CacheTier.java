@@ -0,0 +1,36 @@
+package com.example.demo.metrics;
+
+/**
+ * 重定向解析命中的快取層級
+ * 作為 shorturl.redirect 計時器的 tier 標籤
+ */
+public enum CacheTier {
+
+    /** 本地 L1 快取命中 */
+    LOCAL("local"),
+    /** 負快取命中（已知不存在） */
+    NEGATIVE("negative"),
+    /** 布隆過濾器判定不存在 */
+    BLOOM("bloom"),
+    /** Redis 快取命中 */
+    REDIS("redis"),
+    /** 從資料庫載入 */
+    DATABASE("database"),
+    /** 資料庫查無或已過期 */
+    MISSING("missing");
+
+    private final String tag;
+
+    CacheTier(String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * 指標標籤值
+     *
+     * @return String 標籤值
+     */
+    public String tag() {
+        return tag;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.demo.metrics;
+
+import com.example.demo.cache.CacheWarmer;
+import com.example.demo.cache.HotKeyDetector;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.cache.ShortCodeBloomFilter;
+import com.example.demo.cache.SingleFlightLoader;
+import com.example.demo.datasource.ReadRouting;
+import com.example.demo.datasource.ReplicaRoutingDataSource;
+import com.example.demo.publisher.AccessEventPublisher;
+import com.example.demo.scheduler.ExpiredUrlReaper;
+import com.example.demo.service.ClickAggregator;
+import com.example.demo.service.UrlDeduplicator;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * 把各元件既有的計數器綁定為 Micrometer 計量器
+ * 只在抓取指標時讀取，不影響熱路徑
+ */
+@Component
+public class ShortUrlMeterBinder implements MeterBinder {
+
+    @Autowired
+    private LocalUrlCache localUrlCache;
+    @Autowired
+    private ShortCodeBloomFilter shortCodeBloomFilter;
+    @Autowired
+    private CacheWarmer cacheWarmer;
+    @Autowired
+    private HotKeyDetector hotKeyDetector;
+    @Autowired
+    private SingleFlightLoader singleFlightLoader;
+    @Autowired
+    private ClickAggregator clickAggregator;
+    @Autowired
+    private AccessEventPublisher accessEventPublisher;
+    @Autowired
+    private ExpiredUrlReaper expiredUrlReaper;
+    @Autowired
+    private UrlDeduplicator urlDeduplicator;
+    @Autowired
+    private ReadRouting readRouting;
+    @Autowired(required = false)
+    private ReplicaRoutingDataSource replicaRoutingDataSource;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("shorturl.cache.local.requests", localUrlCache, c -> c.stats().hitCount())
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("shorturl.cache.local.requests", localUrlCache, c -> c.stats().missCount())
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("shorturl.cache.local.evictions", localUrlCache, c -> c.stats().evictionCount())
+                .register(registry);
+        Gauge.builder("shorturl.cache.local.size", localUrlCache, LocalUrlCache::size)
+                .register(registry);
+        FunctionCounter.builder("shorturl.cache.negative.requests", localUrlCache, c -> c.negativeStats().hitCount())
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("shorturl.cache.negative.requests", localUrlCache, c -> c.negativeStats().missCount())
+                .tag("result", "miss").register(registry);
+
+        FunctionCounter.builder("shorturl.cache.local.requests", localUrlCache, LocalUrlCache::pinnedHits)
+                .tag("result", "pinned").register(registry);
+        Gauge.builder("shorturl.hotkeys.pinned", localUrlCache, c -> c.pinnedCodes().size())
+                .register(registry);
+        FunctionCounter.builder("shorturl.hotkeys.contended.samples", hotKeyDetector, HotKeyDetector::contendedSamples)
+                .register(registry);
+
+        FunctionCounter.builder("shorturl.cache.loads", singleFlightLoader, SingleFlightLoader::loadCount)
+                .register(registry);
+        FunctionCounter.builder("shorturl.cache.loads.coalesced", singleFlightLoader, SingleFlightLoader::coalescedCount)
+                .register(registry);
+        FunctionCounter.builder("shorturl.cache.early.refreshes", singleFlightLoader, SingleFlightLoader::refreshCount)
+                .register(registry);
+
+        FunctionCounter.builder("shorturl.cache.warmup.loaded", cacheWarmer, CacheWarmer::loadedCount)
+                .register(registry);
+        FunctionCounter.builder("shorturl.cache.warmup.failed.batches", cacheWarmer, CacheWarmer::failedBatches)
+                .register(registry);
+        Gauge.builder("shorturl.cache.warmup.running", cacheWarmer, w -> w.isRunning() ? 1 : 0)
+                .register(registry);
+
+        FunctionCounter.builder("shorturl.bloom.rejected", shortCodeBloomFilter, ShortCodeBloomFilter::rejectedCount)
+                .register(registry);
+        FunctionCounter.builder("shorturl.bloom.uncertain", shortCodeBloomFilter, ShortCodeBloomFilter::uncertainCount)
+                .register(registry);
+        Gauge.builder("shorturl.bloom.codes", shortCodeBloomFilter, ShortCodeBloomFilter::count)
+                .register(registry);
+
+        Gauge.builder("shorturl.click.aggregator.pending", clickAggregator, ClickAggregator::pendingClicks)
+                .register(registry);
+        FunctionCounter.builder("shorturl.click.aggregator.flushed", clickAggregator, ClickAggregator::flushedClicks)
+                .register(registry);
+        FunctionCounter.builder("shorturl.click.aggregator.failed.flushes", clickAggregator, ClickAggregator::failedFlushes)
+                .register(registry);
+        FunctionCounter.builder("shorturl.click.aggregator.database", clickAggregator, ClickAggregator::databaseClicks)
+                .register(registry);
+        FunctionCounter.builder("shorturl.click.aggregator.dropped", clickAggregator, ClickAggregator::droppedClicks)
+                .register(registry);
+        FunctionCounter.builder("shorturl.visitors.dropped", clickAggregator, ClickAggregator::droppedVisitors)
+                .register(registry);
+
+        Gauge.builder("shorturl.publisher.buffered", accessEventPublisher, AccessEventPublisher::bufferedCount)
+                .register(registry);
+        FunctionCounter.builder("shorturl.publisher.events", accessEventPublisher, AccessEventPublisher::publishedCount)
+                .tag("outcome", "published").register(registry);
+        FunctionCounter.builder("shorturl.publisher.events", accessEventPublisher, AccessEventPublisher::droppedCount)
+                .tag("outcome", "dropped").register(registry);
+        FunctionCounter.builder("shorturl.publisher.events", accessEventPublisher, AccessEventPublisher::spilledCount)
+                .tag("outcome", "spilled").register(registry);
+
+        FunctionCounter.builder("shorturl.reaper.reaped", expiredUrlReaper, ExpiredUrlReaper::reapedCount)
+                .register(registry);
+
+        FunctionCounter.builder("shorturl.dedup.reused", urlDeduplicator, UrlDeduplicator::reusedCount)
+                .register(registry);
+        FunctionCounter.builder("shorturl.dedup.cache.hits", urlDeduplicator, UrlDeduplicator::cacheHitCount)
+                .register(registry);
+
+        if (replicaRoutingDataSource != null) {
+            FunctionCounter.builder("shorturl.datasource.reads", replicaRoutingDataSource, ReplicaRoutingDataSource::replicaConnections)
+                    .tag("target", "replica").register(registry);
+            FunctionCounter.builder("shorturl.datasource.reads", replicaRoutingDataSource, ReplicaRoutingDataSource::primaryReadConnections)
+                    .tag("target", "primary").register(registry);
+            Gauge.builder("shorturl.datasource.replicas.healthy", replicaRoutingDataSource, ReplicaRoutingDataSource::healthyReplicas)
+                    .register(registry);
+            FunctionCounter.builder("shorturl.datasource.primary.retries", readRouting, ReadRouting::primaryRetries)
+                    .register(registry);
+        }
+    }
+}
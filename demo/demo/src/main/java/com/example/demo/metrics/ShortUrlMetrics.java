@@ -0,0 +1,185 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 熱路徑指標
+ * 集中建立重定向、Redis / 資料庫呼叫、訪問事件發布與消費、點擊同步的 Micrometer 計量器，
+ * 由 actuator 的 /actuator/prometheus 端點匯出
+ * 常用的計時器在建構時或第一次使用時建立並快取，記錄時不再查詢註冊表
+ */
+@Component
+public class ShortUrlMetrics {
+
+    private final MeterRegistry registry;
+
+    private final Map<CacheTier, Timer> redirectTimers = new EnumMap<>(CacheTier.class);
+    private final Map<String, Timer> redisTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> dbTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> lagTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> consumerBatchSizes = new ConcurrentHashMap<>();
+    private final Timer publishTimer;
+    private final DistributionSummary publishBatchSize;
+    private final Counter publishFailures;
+    private final Timer syncTimer;
+    private final Counter syncedKeys;
+    private final Counter syncedClicks;
+    private final Counter unknownKeys;
+
+    /**
+     * 建構子
+     *
+     * @param registry 指標註冊表
+     */
+    public ShortUrlMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (CacheTier tier : CacheTier.values()) {
+            redirectTimers.put(tier, Timer.builder("shorturl.redirect")
+                    .description("重定向解析延遲，依命中的快取層級區分")
+                    .tag("tier", tier.tag())
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+        publishTimer = Timer.builder("shorturl.publisher.send")
+                .description("一批訪問事件發送到 RabbitMQ（含 broker 確認）的延遲")
+                .publishPercentileHistogram()
+                .register(registry);
+        publishBatchSize = DistributionSummary.builder("shorturl.publisher.batch.size")
+                .description("每則 AMQP 消息打包的訪問事件數")
+                .register(registry);
+        publishFailures = Counter.builder("shorturl.publisher.send.failures")
+                .description("發送失敗（含未確認）的批次數")
+                .register(registry);
+        syncTimer = Timer.builder("shorturl.click.sync")
+                .description("點擊次數同步到資料庫的每輪耗時")
+                .register(registry);
+        syncedKeys = Counter.builder("shorturl.click.sync.keys")
+                .description("已同步的短碼數")
+                .register(registry);
+        syncedClicks = Counter.builder("shorturl.click.sync.clicks")
+                .description("已同步的點擊增量")
+                .register(registry);
+        unknownKeys = Counter.builder("shorturl.click.sync.unknown.keys")
+                .description("同步時資料庫查無的短碼數")
+                .register(registry);
+    }
+
+    /**
+     * 記錄一次重定向解析
+     *
+     * @param tier 命中的快取層級
+     * @param nanos 耗時（奈秒）
+     */
+    public void recordRedirect(CacheTier tier, long nanos) {
+        redirectTimers.get(tier).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 記錄一次 Redis 呼叫
+     *
+     * @param operation 操作名稱
+     * @param nanos 耗時（奈秒）
+     */
+    public void recordRedis(String operation, long nanos) {
+        redisTimers.computeIfAbsent(operation, op -> Timer.builder("shorturl.redis.calls")
+                        .description("熱路徑上的 Redis 呼叫延遲")
+                        .tag("operation", op)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 記錄一次資料庫呼叫
+     *
+     * @param operation 操作名稱
+     * @param nanos 耗時（奈秒）
+     */
+    public void recordDb(String operation, long nanos) {
+        dbTimers.computeIfAbsent(operation, op -> Timer.builder("shorturl.db.calls")
+                        .description("熱路徑上的資料庫呼叫延遲")
+                        .tag("operation", op)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 記錄一次被吞掉的例外（降級處理）
+     *
+     * @param component 降級的依賴，如 redis、amqp
+     * @param operation 操作名稱
+     * @param e 例外
+     */
+    public void fallback(String component, String operation, Throwable e) {
+        registry.counter("shorturl.fallbacks",
+                "component", component,
+                "operation", operation,
+                "exception", e.getClass().getSimpleName()).increment();
+    }
+
+    /**
+     * 記錄一次成功的批次發布
+     *
+     * @param nanos 耗時（奈秒）
+     * @param events 批次中的事件數
+     */
+    public void recordPublish(long nanos, int events) {
+        publishTimer.record(nanos, TimeUnit.NANOSECONDS);
+        publishBatchSize.record(events);
+    }
+
+    /**
+     * 記錄一次失敗的批次發布
+     */
+    public void publishFailed() {
+        publishFailures.increment();
+    }
+
+    /**
+     * 記錄消費者收到的一批訪問事件
+     * 同時以批次中最早的事件記錄點擊到消費的延遲
+     *
+     * @param consumer 消費者名稱，如 amqp、stream
+     * @param size 批次中的事件數
+     * @param oldestAccessTimeMillis 批次中最早的訪問時間（epoch 毫秒）
+     */
+    public void recordConsumerBatch(String consumer, int size, long oldestAccessTimeMillis) {
+        consumerBatchSizes.computeIfAbsent(consumer, c -> DistributionSummary.builder("shorturl.consumer.batch.size")
+                        .description("消費者每批寫入的訪問事件數")
+                        .tag("consumer", c)
+                        .register(registry))
+                .record(size);
+        long lag = Math.max(0, System.currentTimeMillis() - oldestAccessTimeMillis);
+        lagTimers.computeIfAbsent(consumer, c -> Timer.builder("shorturl.consumer.lag")
+                        .description("訪問發生到消費者處理的延遲")
+                        .tag("consumer", c)
+                        .publishPercentileHistogram()
+                        .register(registry))
+                .record(lag, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 記錄一輪點擊同步
+     *
+     * @param keys 同步的短碼數
+     * @param clicks 同步的點擊增量
+     * @param unknown 資料庫查無的短碼數
+     * @param durationMs 耗時（毫秒）
+     */
+    public void recordSync(long keys, long clicks, long unknown, long durationMs) {
+        syncTimer.record(durationMs, TimeUnit.MILLISECONDS);
+        syncedKeys.increment(keys);
+        syncedClicks.increment(clicks);
+        unknownKeys.increment(unknown);
+    }
+}
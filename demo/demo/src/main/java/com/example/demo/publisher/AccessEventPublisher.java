@@ -0,0 +1,342 @@
+package com.example.demo.publisher;
+
+import com.example.demo.config.RabbitConfig;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.metrics.ShortUrlMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 訪問事件發布器
+ * 請求執行緒只把事件放入有界無鎖環形緩衝區，由背景發布執行緒把多個事件打包成一則 AMQP 消息發送，
+ * broker 緩慢或不可用不會增加重定向延遲
+ * 連接工廠開啟 publisher confirms 時，每批等待 broker 確認後才算發布成功
+ * 緩衝區滿載時依 overflow 策略丟棄、短暫等待或寫入本地溢出檔；發布失敗時溢出檔模式寫檔，其他模式退避重試
+ * 呼叫端（Servlet 請求執行緒、快速路徑過濾器或 WebFlux 事件迴圈）不做檔案 I/O：溢出的事件先放入第二個有界緩衝區，
+ * 由發布執行緒寫入溢出檔；反應式模式下不允許 BLOCK，避免停住 Netty 事件迴圈
+ */
+@Component
+public class AccessEventPublisher {
+
+    @Autowired
+    private RabbitTemplate rabbitTemplate;
+    @Autowired
+    private ShortUrlMetrics metrics;
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${shorturl.publisher.capacity:65536}")
+    private int capacity;
+    @Value("${shorturl.publisher.batch-size:500}")
+    private int batchSize;
+    @Value("${shorturl.publisher.linger-ms:20}")
+    private long lingerMs;
+    @Value("${shorturl.publisher.overflow:DROP}")
+    private OverflowPolicy overflowPolicy;
+    @Value("${shorturl.publisher.block-timeout-ms:50}")
+    private long blockTimeoutMs;
+    @Value("${shorturl.publisher.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+    @Value("${shorturl.publisher.spill-path:data/access-event-spill.log}")
+    private String spillPath;
+
+    private MpscRingBuffer<AccessEvent> buffer;
+    private MpscRingBuffer<AccessEvent> overflow;
+    private SpillFile spillFile;
+    // 進行中的溢出檔重放與發送失敗待重試的一批，只由發布執行緒存取
+    private SpillFile.Replay replay;
+    private List<AccessEvent> replayPending;
+    private boolean replayStalled;
+    private volatile boolean running;
+    private Thread publisher;
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder spilled = new LongAdder();
+    private final LongAdder failedSends = new LongAdder();
+
+    private static final long MAX_BACKOFF_MS = 5000;
+    private static final int REPLAY_BATCHES_PER_ROUND = 100;
+    private static final Logger log = LoggerFactory.getLogger(AccessEventPublisher.class);
+
+    /**
+     * 建立緩衝區並啟動背景發布執行緒
+     */
+    @PostConstruct
+    void start() {
+        if (overflowPolicy == OverflowPolicy.BLOCK && applicationContext instanceof ReactiveWebApplicationContext) {
+            throw new IllegalStateException("shorturl.publisher.overflow=BLOCK would park the Netty event loop, use DROP or SPILL in reactive mode");
+        }
+        buffer = new MpscRingBuffer<>(capacity);
+        if (overflowPolicy == OverflowPolicy.SPILL) {
+            overflow = new MpscRingBuffer<>(capacity);
+        }
+        spillFile = new SpillFile(Path.of(spillPath));
+        running = true;
+        publisher = new Thread(this::runPublisher, "access-event-publisher");
+        publisher.setDaemon(true);
+        publisher.start();
+    }
+
+    /**
+     * 關閉時停止發布執行緒，緩衝區中剩餘的事件盡量發出
+     */
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        if (publisher != null) {
+            LockSupport.unpark(publisher);
+            try {
+                publisher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 發布一個訪問事件
+     * 不做任何 I/O；緩衝區滿載時依 overflow 策略處理，SPILL 模式放入溢出緩衝區，由發布執行緒寫檔，溢出緩衝區也滿時丟棄
+     *
+     * @param event 訪問事件
+     */
+    public void publish(AccessEvent event) {
+        if (buffer.offer(event)) return;
+        switch (overflowPolicy) {
+            case BLOCK -> {
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+                while (System.nanoTime() < deadline) {
+                    LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+                    if (buffer.offer(event)) return;
+                }
+                dropped.increment();
+            }
+            case SPILL -> {
+                if (!overflow.offer(event)) dropped.increment();
+            }
+            default -> dropped.increment();
+        }
+    }
+
+    /**
+     * 已確認發布的事件數
+     *
+     * @return long 事件數
+     */
+    public long publishedCount() {
+        return published.sum();
+    }
+
+    /**
+     * 因緩衝區滿載或發布失敗而丟棄的事件數
+     *
+     * @return long 事件數
+     */
+    public long droppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * 啟動以來寫入溢出檔的事件數
+     *
+     * @return long 事件數
+     */
+    public long spilledCount() {
+        return spilled.sum();
+    }
+
+    /**
+     * 發送失敗（含未確認）的批次數
+     *
+     * @return long 批次數
+     */
+    public long failedSendCount() {
+        return failedSends.sum();
+    }
+
+    /**
+     * 緩衝區中等待發布的事件數
+     *
+     * @return int 事件數
+     */
+    public int bufferedCount() {
+        return buffer.size() + (overflow != null ? overflow.size() : 0);
+    }
+
+    private void runPublisher() {
+        while (running || bufferedCount() > 0) {
+            spillOverflow();
+            List<AccessEvent> batch = new ArrayList<>(batchSize);
+            if (buffer.drainTo(batch, batchSize) == 0) {
+                if (!running) break;
+                if (replay != null && !replayStalled) {
+                    // 沒有新事件時繼續進行中的重放；重放發送失敗後等下一次成功的發布再繼續，避免對不可用的 broker 空轉
+                    replaySpill();
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(lingerMs));
+                continue;
+            }
+            // 不足一批時最多再等 linger-ms 湊批
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMs);
+            while (running && batch.size() < batchSize && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                buffer.drainTo(batch, batchSize - batch.size());
+            }
+            publishWithRetry(batch);
+        }
+        closeReplay();
+    }
+
+    /**
+     * 發布一批事件直到成功
+     * 溢出檔模式下失敗即寫檔；其他模式退避重試，期間緩衝區填滿後由 overflow 策略形成背壓
+     */
+    private void publishWithRetry(List<AccessEvent> batch) {
+        long backoff = 100;
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                send(batch);
+                metrics.recordPublish(System.nanoTime() - start, batch.size());
+                published.add(batch.size());
+                replaySpill();
+                return;
+            } catch (Exception e) {
+                failedSends.increment();
+                metrics.publishFailed();
+                log.debug("[publishWithRetry] send of {} events failed: {}", batch.size(), e.getMessage());
+                if (overflowPolicy == OverflowPolicy.SPILL) {
+                    spill(batch);
+                    return;
+                }
+                if (!running) {
+                    dropped.add(batch.size());
+                    log.warn("[publishWithRetry] dropped {} events on shutdown", batch.size());
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(backoff));
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MS);
+            }
+        }
+    }
+
+    /**
+     * 以一則 AMQP 消息發送一批事件（由 AccessEventMessageConverter 編碼為二進位）
+     * 連接工廠開啟 publisher confirms 時等待 broker 確認，未確認視為失敗
+     */
+    void send(List<AccessEvent> batch) throws Exception {
+        CorrelationData correlation = new CorrelationData();
+        rabbitTemplate.convertAndSend(RabbitConfig.EXCHANGE_NAME, RabbitConfig.ROUTING_KEY, batch, correlation);
+        if (rabbitTemplate.getConnectionFactory().isPublisherConfirms()) {
+            CorrelationData.Confirm confirm = correlation.getFuture().get(confirmTimeoutMs, TimeUnit.MILLISECONDS);
+            if (!confirm.isAck()) {
+                throw new AmqpException("publish not acknowledged: " + confirm.getReason());
+            }
+        }
+    }
+
+    /**
+     * 把溢出緩衝區中的事件寫入溢出檔（只在發布執行緒上執行）
+     */
+    private void spillOverflow() {
+        if (overflow == null) return;
+        while (true) {
+            List<AccessEvent> batch = new ArrayList<>(batchSize);
+            if (overflow.drainTo(batch, batchSize) == 0) return;
+            spill(batch);
+        }
+    }
+
+    private void spill(List<AccessEvent> batch) {
+        try {
+            spillFile.append(batch);
+            spilled.add(batch.size());
+        } catch (Exception e) {
+            dropped.add(batch.size());
+            log.warn("[spill] failed to spill {} events: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * broker 恢復後重新發布溢出檔中的事件
+     * 逐行讀取，每輪最多 REPLAY_BATCHES_PER_ROUND 批，讀取器跨輪保留，記憶體中只有目前的一批；
+     * 發布失敗時該批留到下一輪重試，損壞的行略過並計入丟棄（行內事件數無法得知，每行計為1）
+     * 讀取溢出檔失敗時關閉讀取器，下一輪從 .replay 檔開頭重讀（已發布的批次可能重複）
+     */
+    private void replaySpill() {
+        if (replay == null && !spillFile.hasData()) return;
+        int replayed = 0;
+        try {
+            if (replay == null) {
+                replay = spillFile.openReplay();
+                if (replay == null) return;
+            }
+            for (int i = 0; i < REPLAY_BATCHES_PER_ROUND; i++) {
+                if (replayPending == null) {
+                    replayPending = replay.next();
+                }
+                if (replayPending == null) {
+                    finishReplay();
+                    break;
+                }
+                send(replayPending);
+                replayStalled = false;
+                published.add(replayPending.size());
+                replayed += replayPending.size();
+                replayPending = null;
+            }
+        } catch (IOException e) {
+            log.warn("[replaySpill] failed to read spill file: {}", e.getMessage());
+            closeReplay();
+        } catch (Exception e) {
+            replayStalled = true;
+            failedSends.increment();
+            log.debug("[replaySpill] replay paused, send failed: {}", e.getMessage());
+        }
+        if (replayed > 0) {
+            log.info("[replaySpill] republished {} spilled events", replayed);
+        }
+    }
+
+    private void finishReplay() throws IOException {
+        long corrupt = replay.corruptLines();
+        if (corrupt > 0) {
+            dropped.add(corrupt);
+            log.warn("[replaySpill] skipped {} corrupt spill lines", corrupt);
+        }
+        SpillFile.Replay finished = replay;
+        replay = null;
+        finished.finish();
+    }
+
+    private void closeReplay() {
+        SpillFile.Replay closing = replay;
+        replay = null;
+        replayPending = null;
+        if (closing == null) return;
+        try {
+            closing.close();
+        } catch (IOException e) {
+            // 只是關閉讀取器，.replay 檔仍在，下一輪重讀
+            log.debug("[replaySpill] close failed: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.demo.publisher;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 有界無鎖環形緩衝區（多生產者、單消費者）
+ * 生產者以 CAS 搶占寫入位置，寫入元素後槽位才對消費者可見；消費者只有一個，讀取端不需要 CAS
+ *
+ * @param <E> 元素類型
+ */
+public final class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * 建構子
+     *
+     * @param capacity 容量，向上取整為 2 的冪
+     */
+    public MpscRingBuffer(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * 放入元素（任意執行緒）
+     *
+     * @param element 元素，不可為null
+     * @return boolean 緩衝區已滿返回false
+     */
+    public boolean offer(E element) {
+        if (element == null) throw new NullPointerException();
+        while (true) {
+            long t = tail.get();
+            if (t - head.get() > mask) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.lazySet((int) (t & mask), element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 取出最多 max 個元素（只能由單一消費者執行緒呼叫）
+     * 遇到已搶占但尚未寫入的槽位時停止，剩下的留到下次取出
+     *
+     * @param sink 接收元素的列表
+     * @param max 最多取出數量
+     * @return int 實際取出數量
+     */
+    public int drainTo(List<? super E> sink, int max) {
+        long h = head.get();
+        int count = 0;
+        while (count < max) {
+            int index = (int) (h & mask);
+            E element = slots.get(index);
+            if (element == null) break;
+            slots.lazySet(index, null);
+            sink.add(element);
+            h++;
+            count++;
+        }
+        if (count > 0) head.lazySet(h);
+        return count;
+    }
+
+    /**
+     * 目前的元素數量（近似值）
+     *
+     * @return int 元素數量
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(tail.get() - head.get(), mask + 1L));
+    }
+
+    /**
+     * 容量
+     *
+     * @return int 容量
+     */
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.demo.publisher;
+
+/**
+ * 發布緩衝區滿載時的處理策略
+ */
+public enum OverflowPolicy {
+
+    /**
+     * 直接丟棄並計數，請求執行緒不受影響
+     */
+    DROP,
+
+    /**
+     * 短暫等待緩衝區騰出空間，超過 block-timeout-ms 仍滿時丟棄
+     */
+    BLOCK,
+
+    /**
+     * 寫入本地溢出檔，待 broker 恢復後重新發布
+     */
+    SPILL
+}
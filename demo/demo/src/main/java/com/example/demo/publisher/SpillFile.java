@@ -0,0 +1,151 @@
+package com.example.demo.publisher;
+
+import com.example.demo.event.AccessEvent;
+import com.example.demo.event.AccessEventCodec;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 訪問事件溢出檔
+ * 每行一批事件（AccessEventCodec 二進位內容的 Base64），發布失敗或緩衝區滿載時寫入，broker 恢復後逐行讀回重新發布
+ */
+class SpillFile {
+
+    private final Path path;
+    // 保護改名與追加的先後順序；使用 ReentrantLock 避免在虛擬執行緒上釘住載體
+    private final ReentrantLock lock = new ReentrantLock();
+
+    SpillFile(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * 追加一批事件
+     *
+     * @param batch 事件
+     */
+    void append(List<AccessEvent> batch) throws IOException {
+        String line = Base64.getEncoder().encodeToString(AccessEventCodec.encode(batch));
+        lock.lock();
+        try {
+            Path parent = path.toAbsolutePath().getParent();
+            if (parent != null) Files.createDirectories(parent);
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                writer.write(line);
+                writer.newLine();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 是否有待重新發布的事件
+     *
+     * @return boolean 溢出檔存在且非空返回true
+     */
+    boolean hasData() {
+        return nonEmpty(path) || nonEmpty(replayPath());
+    }
+
+    private static boolean nonEmpty(Path file) {
+        try {
+            return Files.exists(file) && Files.size(file) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private Path replayPath() {
+        return path.resolveSibling(path.getFileName() + ".replay");
+    }
+
+    /**
+     * 開始重新發布
+     * 先把溢出檔改名為 .replay 再讀取，讀取期間的新溢出寫入新檔；
+     * 上次讀取途中崩潰留下的 .replay 檔先讀取，不會被改名覆蓋，溢出檔留到下一次
+     *
+     * @return Replay 逐行讀取器，沒有資料時返回null
+     */
+    Replay openReplay() throws IOException {
+        Path taken = replayPath();
+        lock.lock();
+        try {
+            if (!Files.exists(taken)) {
+                if (!Files.exists(path)) return null;
+                Files.move(path, taken);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return new Replay(taken);
+    }
+
+    /**
+     * .replay 檔的逐行讀取器
+     * 每次只在記憶體中保留一行（一批事件）；崩潰時寫到一半的行無法解碼，略過並計數，不會卡住之後的行
+     */
+    static final class Replay implements Closeable {
+
+        private final Path file;
+        private final BufferedReader reader;
+        private long corruptLines;
+
+        private Replay(Path file) throws IOException {
+            this.file = file;
+            this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 讀取下一批事件
+         *
+         * @return List<AccessEvent> 下一批，讀完返回null
+         */
+        List<AccessEvent> next() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+                try {
+                    return AccessEventCodec.decode(Base64.getDecoder().decode(line.trim()));
+                } catch (IllegalArgumentException e) {
+                    // 無法解碼的行計數後略過，繼續讀下一行
+                    corruptLines++;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 已略過的損壞行數
+         *
+         * @return long 行數
+         */
+        long corruptLines() {
+            return corruptLines;
+        }
+
+        /**
+         * 讀完後關閉並刪除 .replay 檔
+         */
+        void finish() throws IOException {
+            reader.close();
+            Files.deleteIfExists(file);
+        }
+
+        @Override
+        public void close() throws IOException {
+            reader.close();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.UrlAccessLog;
+import com.example.demo.entity.UrlNotification;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * 訪問日誌批量資料庫存取
+ * 以 JDBC batch 一次寫入多筆訪問日誌與通知，MySQL 開啟 rewriteBatchedStatements 後為多值 INSERT
+ */
+@Repository
+public class AccessLogBatchRepository {
+
+    static final String INSERT_LOG_SQL = "INSERT INTO url_access_log " +
+            "(short_code, user_ip, user_agent, referer, access_time) VALUES (?, ?, ?, ?, ?)";
+    static final String INSERT_NOTIFICATION_SQL = "INSERT INTO url_notification " +
+            "(short_code, type, message, created_at, status) VALUES (?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 在同一個交易中批量寫入訪問日誌與通知
+     * 任一寫入失敗時整批回滾
+     *
+     * @param logs 訪問日誌
+     * @param notifications 通知
+     */
+    @Transactional
+    public void insertAll(List<UrlAccessLog> logs, List<UrlNotification> notifications) {
+        jdbcTemplate.batchUpdate(INSERT_LOG_SQL, logs, logs.size(), (ps, entry) -> {
+            ps.setString(1, entry.getShortCode());
+            ps.setString(2, entry.getUserIp());
+            ps.setString(3, entry.getUserAgent());
+            ps.setString(4, entry.getReferer());
+            ps.setTimestamp(5, Timestamp.valueOf(entry.getAccessTime()));
+        });
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, notifications, notifications.size(), (ps, entry) -> {
+            ps.setString(1, entry.getShortCode());
+            ps.setString(2, entry.getType());
+            ps.setString(3, entry.getMessage());
+            ps.setTimestamp(4, Timestamp.valueOf(entry.getCreatedAt()));
+            ps.setString(5, entry.getStatus());
+        });
+    }
+}
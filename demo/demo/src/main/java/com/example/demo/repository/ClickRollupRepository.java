@@ -0,0 +1,68 @@
+package com.example.demo.repository;
+
+import com.example.demo.analytics.RollupGranularity;
+import com.example.demo.analytics.RollupKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 點擊彙總資料庫存取
+ * 以 JDBC batch 的 INSERT ... ON DUPLICATE KEY UPDATE 累加彙總桶，不需要先讀取再寫回
+ */
+@Repository
+public class ClickRollupRepository {
+
+    static final String UPSERT_SQL = "INSERT INTO url_click_rollup " +
+            "(short_code, granularity, bucket_start, clicks) VALUES (?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE clicks = clicks + VALUES(clicks)";
+    static final String SELECT_RANGE_SQL = "SELECT bucket_start, clicks FROM url_click_rollup " +
+            "WHERE short_code = ? AND granularity = ? AND bucket_start >= ? AND bucket_start < ? " +
+            "ORDER BY bucket_start";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量累加彙總桶
+     * 呼叫端應傳入已排序的鍵，並發寫入時按相同順序鎖定資料列
+     *
+     * @param deltas 彙總桶到點擊增量的映射
+     */
+    public void upsertAll(Map<RollupKey, Long> deltas) {
+        if (deltas.isEmpty()) return;
+        List<Map.Entry<RollupKey, Long>> entries = List.copyOf(deltas.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, entries, entries.size(), (ps, entry) -> {
+            RollupKey key = entry.getKey();
+            ps.setString(1, key.shortCode());
+            ps.setString(2, key.granularity().name());
+            ps.setTimestamp(3, Timestamp.valueOf(key.bucketStart()));
+            ps.setLong(4, entry.getValue());
+        });
+    }
+
+    /**
+     * 查詢一段時間內的彙總桶
+     * 只返回有點擊的桶
+     *
+     * @param shortCode 短鏈接代碼
+     * @param granularity 時間粒度
+     * @param from 起始桶（含）
+     * @param to 結束時間（不含）
+     * @return Map<LocalDateTime, Long> 桶起點到點擊數的映射，按時間排序
+     */
+    public Map<LocalDateTime, Long> findRange(String shortCode, RollupGranularity granularity,
+                                              LocalDateTime from, LocalDateTime to) {
+        Map<LocalDateTime, Long> buckets = new LinkedHashMap<>();
+        jdbcTemplate.query(SELECT_RANGE_SQL, rs -> {
+            buckets.put(rs.getTimestamp(1).toLocalDateTime(), rs.getLong(2));
+        }, shortCode, granularity.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return buckets;
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.demo.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 日誌表分區管理
+ * 讀取 information_schema.PARTITIONS，並以 REORGANIZE / DROP PARTITION 增刪按月的 RANGE COLUMNS 分區
+ * 刪除分區只修改中繼資料，不會逐筆 DELETE
+ */
+@Repository
+public class LogPartitionRepository {
+
+    /** 最後一個接收所有未來資料的分區 */
+    public static final String FUTURE_PARTITION = "p_future";
+
+    static final String SELECT_PARTITIONS_SQL = "SELECT PARTITION_NAME, PARTITION_DESCRIPTION " +
+            "FROM information_schema.PARTITIONS " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 資料庫是否支援分區（MySQL）
+     *
+     * @return boolean 是 MySQL 時返回true
+     */
+    public boolean isSupported() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+        return product != null && product.toLowerCase().contains("mysql");
+    }
+
+    /**
+     * 查詢表的分區
+     *
+     * @param table 表名
+     * @return List<Partition> 按順序排列的分區，未分區時為空
+     */
+    public List<Partition> findPartitions(String table) {
+        return jdbcTemplate.query(SELECT_PARTITIONS_SQL,
+                (rs, i) -> new Partition(rs.getString(1), parseBound(rs.getString(2))), table);
+    }
+
+    /**
+     * 從 p_future 切出新的分區
+     * p_future 中落在新分區範圍內的資料會被搬移，正常情況下 p_future 為空，只修改中繼資料
+     *
+     * @param table 表名
+     * @param partitions 要新增的分區，上界遞增
+     */
+    public void addPartitions(String table, List<Partition> partitions) {
+        if (partitions.isEmpty()) return;
+        String definitions = partitions.stream()
+                .map(p -> "PARTITION " + p.name() + " VALUES LESS THAN ('" + p.lessThan() + "')")
+                .collect(Collectors.joining(", "));
+        jdbcTemplate.execute("ALTER TABLE " + table + " REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO ("
+                + definitions + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))");
+    }
+
+    /**
+     * 刪除分區
+     *
+     * @param table 表名
+     * @param names 分區名稱
+     */
+    public void dropPartitions(String table, List<String> names) {
+        if (names.isEmpty()) return;
+        jdbcTemplate.execute("ALTER TABLE " + table + " DROP PARTITION " + String.join(", ", names));
+    }
+
+    /**
+     * 解析 RANGE COLUMNS 分區的上界，如 '2025-02-01 00:00:00'
+     *
+     * @param description PARTITION_DESCRIPTION
+     * @return LocalDate 上界日期，MAXVALUE 時返回null
+     */
+    static LocalDate parseBound(String description) {
+        if (description == null || description.equalsIgnoreCase("MAXVALUE")) {
+            return null;
+        }
+        String value = description.replace("'", "").trim();
+        return LocalDate.parse(value.length() > 10 ? value.substring(0, 10) : value);
+    }
+
+    /**
+     * 一個分區
+     *
+     * @param name 分區名稱
+     * @param lessThan 上界（不含），MAXVALUE 時為null
+     */
+    public record Partition(String name, LocalDate lessThan) {
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.ShortCodeSegment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+/**
+ * 短碼號段資料庫存取介面
+ * 提供號段的原子推進操作
+ */
+public interface ShortCodeSegmentRepository extends JpaRepository<ShortCodeSegment, String> {
+
+    /**
+     * 原子推進號段
+     * 更新期間持有行鎖，同一交易內讀回的 max_id 即為本次租用的號段終點
+     *
+     * @param bizTag 業務標籤
+     * @param step 號段大小
+     * @return int 更新的行數，標籤不存在時為0
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("update ShortCodeSegment s set s.maxId = s.maxId + :step, s.updatedAt = CURRENT_TIMESTAMP " +
+            "where s.bizTag = :bizTag")
+    int advance(@Param("bizTag") String bizTag, @Param("step") long step);
+}
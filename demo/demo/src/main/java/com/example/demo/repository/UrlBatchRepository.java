@@ -0,0 +1,209 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.Url;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * URL批量資料庫存取
+ * 繞過 JPA（IDENTITY 主鍵使 Hibernate 無法批量寫入），直接使用 JDBC batch
+ * MySQL 連線需開啟 rewriteBatchedStatements=true，才會改寫為多值 INSERT
+ */
+@Repository
+public class UrlBatchRepository {
+
+    static final String ADD_CLICKS_SQL = "UPDATE url_shortener.short_url " +
+            "SET click_count = click_count + ? WHERE short_code = ?";
+    static final String INSERT_SQL = "INSERT INTO url_shortener.short_url " +
+            "(original_url, short_code, created_at, expire_at, click_count, url_hash) VALUES (?, ?, ?, ?, ?, ?)";
+    static final String SELECT_EXPIRED_SQL = "SELECT id, short_code FROM url_shortener.short_url " +
+            "WHERE expire_at < ? ORDER BY expire_at LIMIT ?";
+    static final String ARCHIVE_SQL = "INSERT INTO url_shortener.short_url_archive " +
+            "(id, original_url, short_code, created_at, expire_at, click_count, archived_at) " +
+            "SELECT id, original_url, short_code, created_at, expire_at, click_count, ? " +
+            "FROM url_shortener.short_url WHERE id IN (%s)";
+    static final String SELECT_HOTTEST_SQL = "SELECT short_code, original_url, expire_at FROM url_shortener.short_url " +
+            "WHERE expire_at IS NULL OR expire_at > ? ORDER BY click_count DESC LIMIT ?";
+    static final String DELETE_SQL = "DELETE FROM url_shortener.short_url WHERE id IN (%s)";
+    static final String SELECT_BY_HASH_SQL = "SELECT id, original_url, short_code, created_at, expire_at, click_count " +
+            "FROM url_shortener.short_url WHERE url_hash = ? AND %s ORDER BY id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * 批量寫入短鏈接
+     * 所有資料以一次 JDBC batch 送出
+     *
+     * @param urls 待寫入的URL實體，短代碼必須已分配
+     */
+    public void insertAll(List<Url> urls) {
+        jdbcTemplate.batchUpdate(INSERT_SQL, urls, urls.size(), (ps, url) -> {
+            ps.setString(1, url.getOriginalUrl());
+            ps.setString(2, url.getShortCode());
+            ps.setTimestamp(3, Timestamp.valueOf(url.getCreatedAt()));
+            if (url.getExpireAt() != null) {
+                ps.setTimestamp(4, Timestamp.valueOf(url.getExpireAt()));
+            } else {
+                ps.setNull(4, Types.TIMESTAMP);
+            }
+            ps.setLong(5, url.getClickCount());
+            ps.setBytes(6, url.getUrlHash());
+        });
+    }
+
+    /**
+     * 寫入單筆短鏈接
+     * 用於批量寫入失敗後逐筆定位錯誤
+     *
+     * @param url 待寫入的URL實體
+     */
+    public void insert(Url url) {
+        insertAll(List.of(url));
+    }
+
+    /**
+     * 批量累加點擊次數
+     * 以資料庫端的 click_count = click_count + ? 原子累加，不需要先讀取再寫回
+     *
+     * @param deltas 短代碼到點擊增量的映射
+     * @return int 實際更新的行數（已刪除的短碼不計）
+     */
+    public int addClickCounts(Map<String, Long> deltas) {
+        List<Map.Entry<String, Long>> entries = List.copyOf(deltas.entrySet());
+        int[][] counts = jdbcTemplate.batchUpdate(ADD_CLICKS_SQL, entries, entries.size(), (ps, entry) -> {
+            ps.setLong(1, entry.getValue());
+            ps.setString(2, entry.getKey());
+        });
+        int updated = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                // rewriteBatchedStatements 下 MySQL 可能返回 SUCCESS_NO_INFO (-2)
+                updated += count > 0 ? count : (count == java.sql.Statement.SUCCESS_NO_INFO ? 1 : 0);
+            }
+        }
+        return updated;
+    }
+
+    /**
+     * 按過期時間查詢一塊已過期的短鏈接
+     * 走 expire_at 索引的範圍掃描，最早過期的優先
+     *
+     * @param now 當前時間
+     * @param limit 最多筆數
+     * @return List<ExpiredUrl> 已過期的短鏈接
+     */
+    public List<ExpiredUrl> findExpired(LocalDateTime now, int limit) {
+        return jdbcTemplate.query(SELECT_EXPIRED_SQL,
+                (rs, i) -> new ExpiredUrl(rs.getLong(1), rs.getString(2)), Timestamp.valueOf(now), limit);
+    }
+
+    /**
+     * 把短鏈接複製到 short_url_archive
+     *
+     * @param ids 主鍵
+     * @param archivedAt 回收時間
+     * @return int 寫入的行數
+     */
+    public int archive(List<Long> ids, LocalDateTime archivedAt) {
+        if (ids.isEmpty()) return 0;
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(Timestamp.valueOf(archivedAt));
+        args.addAll(ids);
+        return jdbcTemplate.update(String.format(ARCHIVE_SQL, placeholders(ids.size())), args.toArray());
+    }
+
+    /**
+     * 按主鍵刪除短鏈接
+     *
+     * @param ids 主鍵
+     * @return int 刪除的行數
+     */
+    public int deleteAll(List<Long> ids) {
+        if (ids.isEmpty()) return 0;
+        return jdbcTemplate.update(String.format(DELETE_SQL, placeholders(ids.size())), ids.toArray());
+    }
+
+    /**
+     * 以游標讀取點擊數最高的未過期短鏈接
+     * 逐筆交給 consumer，不一次載入整個結果集；MySQL 連線開啟 useCursorFetch=true 時按 fetchSize 分批從伺服器取回
+     *
+     * @param now 當前時間，用於排除已過期的短鏈接
+     * @param limit 最多筆數
+     * @param fetchSize 每次從資料庫取回的筆數
+     * @param timeoutSeconds 查詢逾時秒數，0 表示不限
+     * @param consumer 每筆短鏈接（只含短代碼、原始URL與過期時間）的處理
+     */
+    public void streamHottest(LocalDateTime now, int limit, int fetchSize, int timeoutSeconds, Consumer<Url> consumer) {
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SELECT_HOTTEST_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(fetchSize);
+            ps.setQueryTimeout(timeoutSeconds);
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setInt(2, limit);
+            return ps;
+        }, rs -> {
+            Timestamp expireAt = rs.getTimestamp(3);
+            consumer.accept(new Url(rs.getString(2), rs.getString(1),
+                    expireAt != null ? expireAt.toLocalDateTime() : null));
+        });
+    }
+
+    /**
+     * 按原始網址雜湊查詢可重用的短鏈接
+     * 走 (url_hash, expire_at) 索引；永久短鏈接只與永久短鏈接比對，有過期時間的只與過期時間相同且尚未過期的比對
+     * 雜湊可能碰撞，呼叫者須再比對原始網址
+     *
+     * @param urlHash 正規化後原始網址的雜湊
+     * @param expireAt 過期時間，null表示永久
+     * @param now 當前時間
+     * @param limit 最多筆數
+     * @return List<Url> 候選短鏈接，按主鍵遞增
+     */
+    public List<Url> findByUrlHash(byte[] urlHash, LocalDateTime expireAt, LocalDateTime now, int limit) {
+        RowMapper<Url> mapper = (rs, i) -> {
+            Url url = new Url(rs.getString(2), rs.getString(3),
+                    rs.getTimestamp(5) != null ? rs.getTimestamp(5).toLocalDateTime() : null);
+            url.setId(rs.getLong(1));
+            url.setCreatedAt(rs.getTimestamp(4).toLocalDateTime());
+            url.setClickCount(rs.getLong(6));
+            url.setUrlHash(urlHash);
+            return url;
+        };
+        if (expireAt == null) {
+            return jdbcTemplate.query(String.format(SELECT_BY_HASH_SQL, "expire_at IS NULL"), mapper, urlHash, limit);
+        }
+        if (!expireAt.isAfter(now)) {
+            return List.of();
+        }
+        return jdbcTemplate.query(String.format(SELECT_BY_HASH_SQL, "expire_at = ?"), mapper,
+                urlHash, Timestamp.valueOf(expireAt), limit);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    /**
+     * 已過期的短鏈接
+     *
+     * @param id 主鍵
+     * @param shortCode 短鏈接代碼
+     */
+    public record ExpiredUrl(long id, String shortCode) {
+    }
+}
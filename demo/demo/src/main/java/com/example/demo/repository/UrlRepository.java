@@ -2,7 +2,14 @@ package com.example.demo.repository;
 
 
 import com.example.demo.entity.Url;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -13,10 +20,27 @@ public interface UrlRepository extends JpaRepository<Url, Long> {
     
     /**
      * 根據短代碼查找URL
+     * 唯讀交易，啟用讀取副本時路由到副本
      * 
      * @param shortCode 短鏈接代碼
      * @return Optional<Url> 包含URL的Optional對象，如果未找到則為空
      */
+    @Transactional(readOnly = true)
     Optional<Url> findByShortCode(String shortCode);
+
+    /**
+     * 按主鍵順序分頁查詢未過期的短代碼
+     * 以主鍵作為游標，避免大偏移量分頁
+     *
+     * @param afterId 上一頁最後一筆的主鍵
+     * @param now 當前時間，用於排除已過期的短鏈接
+     * @param pageable 分頁大小
+     * @return List<Object[]> 每筆為 [id, shortCode]
+     */
+    @Query("select u.id, u.shortCode from Url u where u.id > :afterId " +
+            "and (u.expireAt is null or u.expireAt > :now) order by u.id")
+    List<Object[]> findActiveShortCodesAfter(@Param("afterId") long afterId,
+                                             @Param("now") LocalDateTime now,
+                                             Pageable pageable);
 }
 
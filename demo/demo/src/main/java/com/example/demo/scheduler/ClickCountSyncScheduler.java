@@ -1,16 +1,31 @@
 package com.example.demo.scheduler;
 
 
-import com.example.demo.repository.UrlRepository;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.repository.UrlBatchRepository;
+import com.example.demo.service.DistributedLockService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import java.util.Set;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static com.example.demo.config.RedisConfig.CLICK_DRAINING_KEY;
+import static com.example.demo.config.RedisConfig.CLICK_PENDING_KEY;
+
 @Component
 public class ClickCountSyncScheduler {
 
@@ -18,49 +33,215 @@ public class ClickCountSyncScheduler {
     private RedisTemplate<String, Object> redisTemplate;
 
     @Autowired
-    private UrlRepository urlRepository;
+    private UrlBatchRepository urlBatchRepository;
+
+    @Autowired
+    private DistributedLockService lockService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ShortUrlMetrics metrics;
+
+    @Value("${shorturl.click.sync.chunk-size:500}")
+    private int chunkSize;
+
+    static final String SYNC_LOCK_KEY = "click:sync:lock";
+    // 每塊寫入前續約，租約只需涵蓋單一塊的寫入時間
+    private static final Duration SYNC_LOCK_LEASE = Duration.ofMinutes(1);
+    // 單一塊的交易時間上限，取租約的一半，寫入過慢時回滾而不是拖過租約
+    private static final int CHUNK_TX_TIMEOUT_SECONDS = (int) SYNC_LOCK_LEASE.dividedBy(2).toSeconds();
+
+    private final AtomicLong totalKeys = new AtomicLong();
+    private final AtomicLong totalClicks = new AtomicLong();
+    private volatile SyncResult lastResult;
 
     private static final Logger log = LoggerFactory.getLogger(ClickCountSyncScheduler.class);
 
     /**
      * 同步點擊次數
-     * 定期將Redis中的點擊計數同步到資料庫
+     * 定期將Redis中待同步的點擊增量（click:pending 雜湊）同步到資料庫
      * 每5秒執行一次，確保點擊數據的一致性
      */
     @Scheduled(fixedRate = 5000) // 每 5 秒執行一次，方便驗證
     public void syncClickCount() {
-        Set<String> keys;
+        drainNow();
+    }
+
+    /**
+     * 立即執行一次同步
+     * 1. 取得分散式鎖，多個實例同時只有一個在同步
+     * 2. 以 RENAMENX 將 click:pending 原子地改名為 click:draining，之後的點擊寫入新的 click:pending，不會遺失
+     *    上次同步中斷時 click:draining 仍存在，先把它處理完
+     * 3. 以 HSCAN 分塊讀取，每塊以一條批量 UPDATE click_count = click_count + ? 寫入資料庫，提交後 HDEL 該塊
+     * 每塊寫入前、每塊交易提交前與刪除 click:draining 前續約；續約失敗代表鎖已過期、可能已被其他實例取得，立即中止，
+     * 剩下的增量留在 click:draining 由持有鎖的實例處理，不會重複累加
+     * 單一塊的寫入超過租約時，其他實例可能已取得鎖並讀到同一塊；提交前續約失敗時該塊回滾，
+     * 每塊交易另有租約一半的逾時，寫入過慢時回滾並中止本次同步
+     *
+     * @return SyncResult 本次同步的統計，沒有待同步的點擊時各項為0；未取得鎖、中途失去鎖或 Redis 不可用
+     *         （增量未全部寫入資料庫）時返回null
+     */
+    public SyncResult drainNow() {
+        String token;
+        try {
+            token = lockService.tryLock(SYNC_LOCK_KEY, SYNC_LOCK_LEASE);
+        } catch (Exception e) {
+            log.warn("[syncClickCount] acquire lock failed: {}", e.getMessage());
+            return null;
+        }
+        if (token == null) {
+            return null;
+        }
+
+        long start = System.currentTimeMillis();
         try {
-            keys = redisTemplate.keys("click:*");
+            if (!Boolean.TRUE.equals(redisTemplate.hasKey(CLICK_DRAINING_KEY))
+                    && !renamePendingToDraining()) {
+                return new SyncResult(0, 0, 0, System.currentTimeMillis() - start);
+            }
+            SyncResult result = drainDraining(token, start);
+            lastResult = result;
+            totalKeys.addAndGet(result.keys());
+            totalClicks.addAndGet(result.clicks());
+            metrics.recordSync(result.keys(), result.clicks(), result.unknownKeys(), result.durationMs());
+            if (result.keys() > 0) {
+                log.debug("[syncClickCount] synced {} keys, +{} clicks ({} unknown codes) in {} ms",
+                        result.keys(), result.clicks(), result.unknownKeys(), result.durationMs());
+            }
+            return result;
         } catch (Exception e) {
-            log.warn("[syncClickCount] fetch keys failed: {}", e.getMessage());
-            return;
+            log.warn("[syncClickCount] sync failed: {}", e.getMessage());
+            return null;
+        } finally {
+            if (!lockService.unlock(SYNC_LOCK_KEY, token)) {
+                log.warn("[syncClickCount] sync lock was not held at unlock, it may have expired during the sync");
+            }
         }
-        if (keys == null || keys.isEmpty()) {
-            return;
+    }
+
+    private boolean renamePendingToDraining() {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.renameIfAbsent(CLICK_PENDING_KEY, CLICK_DRAINING_KEY));
+        } catch (Exception e) {
+            // click:pending 不存在（沒有新點擊）時 RENAMENX 會報錯
+            return false;
         }
+    }
 
-        for (String key : keys) {
-            try {
-                String[] parts = key.split(":", 2);
-                if (parts.length < 2) continue;
-                String shortCode = parts[1];
-
-                Object raw = redisTemplate.opsForValue().get(key);
-                Long count = coerceToLong(raw);
-                if (count == null || count <= 0) continue;
-
-                urlRepository.findByShortCode(shortCode).ifPresent(url -> {
-                    long newCount = (url.getClickCount() != null ? url.getClickCount() : 0L) + count;
-                    url.setClickCount(newCount);
-                    urlRepository.save(url);
-                    try { redisTemplate.delete(key); } catch (Exception ignored) {}
-                    log.info("[syncClickCount] synced {} -> +{} (total={})", shortCode, count, newCount);
-                });
-            } catch (Exception e) {
-                log.warn("[syncClickCount] failed for key {}: {}", key, e.getMessage());
+    private SyncResult drainDraining(String token, long start) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setTimeout(CHUNK_TX_TIMEOUT_SECONDS);
+        long keys = 0;
+        long clicks = 0;
+        long updated = 0;
+        Map<String, Long> chunk = new LinkedHashMap<>();
+        ScanOptions options = ScanOptions.scanOptions().count(chunkSize).build();
+        try (Cursor<Map.Entry<Object, Object>> cursor = redisTemplate.opsForHash().scan(CLICK_DRAINING_KEY, options)) {
+            while (cursor.hasNext()) {
+                Map.Entry<Object, Object> entry = cursor.next();
+                Long count = coerceToLong(entry.getValue());
+                chunk.merge(String.valueOf(entry.getKey()), count != null ? count : 0L, Long::sum);
+                if (chunk.size() >= chunkSize) {
+                    ensureLockHeld(token);
+                    updated += applyChunk(tx, token, chunk);
+                    keys += chunk.size();
+                    clicks += chunk.values().stream().mapToLong(Long::longValue).sum();
+                    chunk.clear();
+                }
             }
         }
+        if (!chunk.isEmpty()) {
+            ensureLockHeld(token);
+            updated += applyChunk(tx, token, chunk);
+            keys += chunk.size();
+            clicks += chunk.values().stream().mapToLong(Long::longValue).sum();
+        }
+        ensureLockHeld(token);
+        redisTemplate.delete(CLICK_DRAINING_KEY);
+        return new SyncResult(keys, clicks, keys - updated, System.currentTimeMillis() - start);
+    }
+
+    private void ensureLockHeld(String token) {
+        if (!lockService.renew(SYNC_LOCK_KEY, token, SYNC_LOCK_LEASE)) {
+            throw new IllegalStateException("sync lock lost, aborting drain");
+        }
+    }
+
+    /**
+     * 將一塊增量寫入資料庫並從 click:draining 移除
+     * 資料庫交易提交後才 HDEL，進程在兩者之間中斷時最多重複計入這一塊
+     * 提交前在交易內續約，寫入期間失去鎖時拋出例外回滾，提交與 HDEL 在新的租約內完成
+     */
+    private int applyChunk(TransactionTemplate tx, String token, Map<String, Long> chunk) {
+        Map<String, Long> positive = new LinkedHashMap<>();
+        chunk.forEach((code, count) -> {
+            if (count > 0) positive.put(code, count);
+        });
+        Integer updated = positive.isEmpty() ? 0 : tx.execute(status -> {
+            int rows = urlBatchRepository.addClickCounts(positive);
+            ensureLockHeld(token);
+            return rows;
+        });
+        redisTemplate.opsForHash().delete(CLICK_DRAINING_KEY, chunk.keySet().toArray());
+        return updated != null ? updated : 0;
+    }
+
+    /**
+     * 遷移舊格式的點擊計數
+     * 舊版以 click:{shortCode} 字串鍵計數；啟動時以 SCAN（不阻塞 Redis）找出殘留鍵，
+     * 以 GETDEL 原子取出並累加到 click:pending
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateLegacyKeys() {
+        ScanOptions options = ScanOptions.scanOptions().match("click:*").count(1000).build();
+        long migrated = 0;
+        try (Cursor<String> cursor = redisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                String key = cursor.next();
+                if (key.equals(CLICK_PENDING_KEY) || key.equals(CLICK_DRAINING_KEY) || key.equals(SYNC_LOCK_KEY)) {
+                    continue;
+                }
+                Long count = coerceToLong(redisTemplate.opsForValue().getAndDelete(key));
+                if (count != null && count > 0) {
+                    redisTemplate.opsForHash().increment(CLICK_PENDING_KEY, key.substring("click:".length()), count);
+                    migrated++;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("[migrateLegacyKeys] failed: {}", e.getMessage());
+        }
+        if (migrated > 0) {
+            log.info("[migrateLegacyKeys] moved {} legacy click keys into {}", migrated, CLICK_PENDING_KEY);
+        }
+    }
+
+    /**
+     * 最近一次同步的統計
+     *
+     * @return SyncResult 統計，尚未同步過時返回null
+     */
+    public SyncResult getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * 啟動以來同步的短碼數（按每次同步累加）
+     *
+     * @return long 短碼數
+     */
+    public long getTotalKeys() {
+        return totalKeys.get();
+    }
+
+    /**
+     * 啟動以來同步的點擊總數
+     *
+     * @return long 點擊數
+     */
+    public long getTotalClicks() {
+        return totalClicks.get();
     }
 
     /**
@@ -70,7 +251,7 @@ public class ClickCountSyncScheduler {
      * @param raw 原始對象
      * @return Long 轉換後的長整型值，轉換失敗時返回null
      */
-    private Long coerceToLong(Object raw) {
+    static Long coerceToLong(Object raw) {
         if (raw == null) return null;
         if (raw instanceof Long l) return l;
         if (raw instanceof Integer i) return i.longValue();
@@ -82,4 +263,15 @@ public class ClickCountSyncScheduler {
         }
         return null;
     }
+
+    /**
+     * 單次同步的統計
+     *
+     * @param keys 同步的短碼數
+     * @param clicks 同步的點擊數
+     * @param unknownKeys 資料庫中已不存在的短碼數
+     * @param durationMs 耗時（毫秒）
+     */
+    public record SyncResult(long keys, long clicks, long unknownKeys, long durationMs) {
+    }
 }
@@ -0,0 +1,205 @@
+package com.example.demo.scheduler;
+
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.repository.UrlBatchRepository;
+import com.example.demo.repository.UrlBatchRepository.ExpiredUrl;
+import com.example.demo.service.ClickAggregator;
+import com.example.demo.service.DistributedLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.example.demo.config.RedisConfig.CLICK_PENDING_KEY;
+import static com.example.demo.service.UrlService.REDIS_URL_PREFIX;
+
+/**
+ * 過期短網址回收
+ * 過期檢查原本只在查詢時進行，過期的資料列會一直留在 short_url；本任務定期按 expire_at 索引
+ * 分塊取出已過期的短網址，歸檔（可關閉）後刪除，並在一次管線中清除它們的 Redis 快取與點擊計數
+ * 每塊之間暫停、每輪最多處理 max-chunks 塊，避免與重定向流量爭用資料庫
+ */
+@Component
+public class ExpiredUrlReaper {
+
+    static final String REAPER_LOCK_KEY = "reaper:lock";
+    private static final Duration REAPER_LOCK_LEASE = Duration.ofMinutes(5);
+
+    @Autowired
+    private UrlBatchRepository urlBatchRepository;
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private LocalUrlCache localUrlCache;
+
+    @Autowired
+    private ClickAggregator clickAggregator;
+
+    @Autowired
+    private ClickCountSyncScheduler clickCountSyncScheduler;
+
+    @Autowired
+    private DistributedLockService lockService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${shorturl.reaper.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${shorturl.reaper.max-chunks:20}")
+    private int maxChunks;
+
+    @Value("${shorturl.reaper.pause-ms:100}")
+    private long pauseMs;
+
+    @Value("${shorturl.reaper.archive:true}")
+    private boolean archive;
+
+    private final AtomicLong reapedCount = new AtomicLong();
+
+    private static final Logger log = LoggerFactory.getLogger(ExpiredUrlReaper.class);
+
+    /**
+     * 定期回收過期短網址
+     */
+    @Scheduled(initialDelayString = "${shorturl.reaper.interval-ms:60000}",
+            fixedDelayString = "${shorturl.reaper.interval-ms:60000}")
+    public void reap() {
+        reapNow();
+    }
+
+    /**
+     * 立即執行一輪回收
+     * 1. 取得分散式鎖，多個實例同時只有一個在回收
+     * 2. 有過期短網址時先把本地聚合與 Redis 中待同步的點擊寫入資料庫，歸檔的點擊數才是最終值；
+     *    同步未完成時跳過本輪，留給下一輪
+     * 3. 每塊在一個交易中歸檔並刪除，提交後以一次管線刪除 shorturl:{code}、click:{code} 與 click:pending 欄位，
+     *    再由 LocalUrlCache 失效本地快取並廣播到其他節點
+     *
+     * @return long 本輪回收的短網址數，未取得鎖或點擊未同步時返回0
+     */
+    public long reapNow() {
+        String token;
+        try {
+            token = lockService.tryLock(REAPER_LOCK_KEY, REAPER_LOCK_LEASE);
+        } catch (Exception e) {
+            log.warn("[reap] acquire lock failed: {}", e.getMessage());
+            return 0;
+        }
+        if (token == null) {
+            return 0;
+        }
+
+        long reaped = 0;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            List<ExpiredUrl> chunk = urlBatchRepository.findExpired(now, chunkSize);
+            if (chunk.isEmpty()) {
+                return 0;
+            }
+            if (!flushPendingClicks()) {
+                log.info("[reap] pending clicks not synced (sync lock busy or Redis unavailable), retry next round");
+                return 0;
+            }
+
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            for (int chunks = 1; ; chunks++) {
+                reaped += reapChunk(tx, chunk, now);
+                if (chunk.size() < chunkSize || chunks >= maxChunks || !pause()) {
+                    break;
+                }
+                chunk = urlBatchRepository.findExpired(now, chunkSize);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+            }
+            log.info("[reap] reaped {} expired urls", reaped);
+        } catch (Exception e) {
+            log.warn("[reap] reap failed after {} urls: {}", reaped, e.getMessage());
+        } finally {
+            reapedCount.addAndGet(reaped);
+            lockService.unlock(REAPER_LOCK_KEY, token);
+        }
+        return reaped;
+    }
+
+    /**
+     * 累計回收的短網址數
+     *
+     * @return long 短網址數
+     */
+    public long reapedCount() {
+        return reapedCount.get();
+    }
+
+    /**
+     * 把待同步的點擊寫入資料庫
+     * 同步未完成（鎖被定時同步持有、中途失去鎖或 Redis 不可用）時返回false，本輪不回收，
+     * 否則刪除 click:pending 欄位會丟掉尚未寫入的點擊
+     */
+    private boolean flushPendingClicks() {
+        clickAggregator.flush();
+        return clickCountSyncScheduler.drainNow() != null;
+    }
+
+    private int reapChunk(TransactionTemplate tx, List<ExpiredUrl> chunk, LocalDateTime now) {
+        List<Long> ids = chunk.stream().map(ExpiredUrl::id).toList();
+        List<String> codes = chunk.stream().map(ExpiredUrl::shortCode).toList();
+        Integer deleted = tx.execute(status -> {
+            if (archive) {
+                urlBatchRepository.archive(ids, now);
+            }
+            return urlBatchRepository.deleteAll(ids);
+        });
+        evict(codes);
+        return deleted != null ? deleted : 0;
+    }
+
+    private void evict(List<String> codes) {
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    for (String code : codes) {
+                        operations.delete(REDIS_URL_PREFIX + code);
+                        operations.delete("click:" + code);
+                    }
+                    operations.opsForHash().delete(CLICK_PENDING_KEY, codes.toArray());
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            // Redis 不可用時，快取依 TTL 自然過期（TTL 不超過短網址的過期時間），殘留的點擊增量同步時視為未知短碼
+            log.debug("[evict] evict {} codes failed: {}", codes.size(), e.getMessage());
+        }
+        // Redis 鍵刪除後才廣播失效，其他節點重新載入時不會讀回舊值
+        localUrlCache.invalidate(codes);
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) return true;
+        try {
+            Thread.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.scheduler;
+
+import com.example.demo.repository.LogPartitionRepository;
+import com.example.demo.repository.LogPartitionRepository.Partition;
+import com.example.demo.service.DistributedLockService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 日誌分區維護
+ * url_access_log 與 url_notification 按月 RANGE 分區（見 V2__partition_log_tables.sql），
+ * 每天預先建立之後 partitions-ahead 個月的分區，並整個刪除超過保留期的分區，取代逐筆 DELETE
+ * 只在 MySQL 上執行，其他資料庫（如負載測試的 H2）直接略過
+ */
+@Component
+public class LogPartitionScheduler {
+
+    /** 分區維護的表 */
+    static final List<String> TABLES = List.of("url_access_log", "url_notification");
+
+    static final String PARTITION_LOCK_KEY = "log:partition:lock";
+    private static final Duration PARTITION_LOCK_LEASE = Duration.ofMinutes(10);
+    private static final DateTimeFormatter PARTITION_NAME = DateTimeFormatter.ofPattern("'p'yyyyMM");
+
+    @Autowired
+    private LogPartitionRepository partitionRepository;
+
+    @Autowired
+    private DistributedLockService lockService;
+
+    @Value("${shorturl.log.retention-months:6}")
+    private int retentionMonths;
+
+    @Value("${shorturl.log.partitions-ahead:3}")
+    private int partitionsAhead;
+
+    private static final Logger log = LoggerFactory.getLogger(LogPartitionScheduler.class);
+
+    /**
+     * 啟動時先維護一次，確保遷移後立即有當月與未來的分區
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void maintainOnStartup() {
+        maintain();
+    }
+
+    /**
+     * 每天維護分區
+     */
+    @Scheduled(cron = "${shorturl.log.partition-cron:0 30 3 * * *}")
+    public void maintain() {
+        try {
+            if (!partitionRepository.isSupported()) {
+                log.debug("[maintain] database does not support partitions, skipped");
+                return;
+            }
+        } catch (Exception e) {
+            log.warn("[maintain] check database failed: {}", e.getMessage());
+            return;
+        }
+
+        String token;
+        try {
+            token = lockService.tryLock(PARTITION_LOCK_KEY, PARTITION_LOCK_LEASE);
+        } catch (Exception e) {
+            log.warn("[maintain] acquire lock failed: {}", e.getMessage());
+            return;
+        }
+        if (token == null) {
+            return;
+        }
+
+        try {
+            YearMonth current = YearMonth.now();
+            for (String table : TABLES) {
+                maintainTable(table, current);
+            }
+        } finally {
+            lockService.unlock(PARTITION_LOCK_KEY, token);
+        }
+    }
+
+    private void maintainTable(String table, YearMonth current) {
+        try {
+            List<Partition> existing = partitionRepository.findPartitions(table);
+            if (existing.stream().noneMatch(p -> LogPartitionRepository.FUTURE_PARTITION.equals(p.name()))) {
+                log.warn("[maintain] {} is not partitioned, run the Flyway migrations first", table);
+                return;
+            }
+            List<Partition> toAdd = partitionsToAdd(existing, current, partitionsAhead);
+            if (!toAdd.isEmpty()) {
+                partitionRepository.addPartitions(table, toAdd);
+                log.info("[maintain] {} added partitions {}", table, toAdd.stream().map(Partition::name).toList());
+            }
+            List<String> toDrop = partitionsToDrop(existing, current, retentionMonths);
+            if (!toDrop.isEmpty()) {
+                partitionRepository.dropPartitions(table, toDrop);
+                log.info("[maintain] {} dropped partitions {}", table, toDrop);
+            }
+        } catch (Exception e) {
+            log.warn("[maintain] {} partition maintenance failed: {}", table, e.getMessage());
+        }
+    }
+
+    /**
+     * 計算要新增的按月分區
+     * 從最後一個有上界的分區接續到當月之後 ahead 個月；還沒有按月分區時從當月開始，
+     * 此時 p_future 中的既有資料會落在當月分區
+     *
+     * @param existing 現有分區
+     * @param current 當月
+     * @param ahead 預先建立的月數
+     * @return List<Partition> 要新增的分區，上界遞增
+     */
+    static List<Partition> partitionsToAdd(List<Partition> existing, YearMonth current, int ahead) {
+        YearMonth next = existing.stream()
+                .map(Partition::lessThan)
+                .filter(Objects::nonNull)
+                .max(LocalDate::compareTo)
+                .map(YearMonth::from)
+                .orElse(current);
+        YearMonth last = current.plusMonths(Math.max(0, ahead));
+        List<Partition> partitions = new ArrayList<>();
+        for (YearMonth month = next; !month.isAfter(last); month = month.plusMonths(1)) {
+            partitions.add(new Partition(month.format(PARTITION_NAME), month.plusMonths(1).atDay(1)));
+        }
+        return partitions;
+    }
+
+    /**
+     * 計算要刪除的分區
+     * 保留當月與之前 retentionMonths 個完整月份，上界不晚於保留起點的分區整個刪除；p_future 永不刪除
+     *
+     * @param existing 現有分區
+     * @param current 當月
+     * @param retentionMonths 保留月數，小於等於0時不刪除
+     * @return List<String> 要刪除的分區名稱
+     */
+    static List<String> partitionsToDrop(List<Partition> existing, YearMonth current, int retentionMonths) {
+        if (retentionMonths <= 0) return List.of();
+        LocalDate keepFrom = current.minusMonths(retentionMonths).atDay(1);
+        return existing.stream()
+                .filter(p -> p.lessThan() != null && !p.lessThan().isAfter(keepFrom))
+                .map(Partition::name)
+                .toList();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Url;
+
+import java.time.LocalDateTime;
+
+/**
+ * 批量生成短網址的單筆結果
+ * 成功時 shortCode 不為空；失敗時 error 描述原因
+ *
+ * @param originalUrl 原始URL地址
+ * @param shortCode 生成的短代碼
+ * @param expireAt 過期時間
+ * @param error 錯誤訊息
+ */
+public record BatchShortenResult(String originalUrl, String shortCode, LocalDateTime expireAt, String error) {
+
+    /**
+     * 成功結果
+     *
+     * @param url 已保存的URL實體
+     * @return BatchShortenResult 成功結果
+     */
+    public static BatchShortenResult success(Url url) {
+        return new BatchShortenResult(url.getOriginalUrl(), url.getShortCode(), url.getExpireAt(), null);
+    }
+
+    /**
+     * 失敗結果
+     *
+     * @param originalUrl 原始URL地址
+     * @param error 錯誤訊息
+     * @return BatchShortenResult 失敗結果
+     */
+    public static BatchShortenResult failure(String originalUrl, String error) {
+        return new BatchShortenResult(originalUrl, null, null, error);
+    }
+}
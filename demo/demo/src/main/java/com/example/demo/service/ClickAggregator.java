@@ -0,0 +1,381 @@
+package com.example.demo.service;
+
+import com.example.demo.config.RedisConfig;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.repository.UrlBatchRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 節點本地點擊聚合器
+ * 點擊先累加到以短碼為鍵的 LongAdder（分段計數，熱門短碼的並發累加不會互相爭用），
+ * 由背景執行緒定期以一次管線化的 HINCRBY 批量寫入 Redis 的 click:pending
+ * 熱門短碼每個刷新週期只產生一次 Redis 操作，而不是每次點擊一次
+ *
+ * 計數表以「世代」輪換：刷新時換上新的計數表，等舊計數表上進行中的累加完成（進出計數相等）後再求和，
+ * 點擊路徑不需要加鎖，也不會遺失在換表瞬間的累加
+ * 未刷新的點擊超過 max-pending 時會立即喚醒刷新；Redis 不可用時，刷新失敗的增量在未刷新點擊數低於 max-pending 時
+ * 放回計數表下一輪重試，達到 max-pending 後改為直接以批量 UPDATE 累加到資料庫（資料庫也失敗時捨棄並計數），
+ * 因此本地保留的點擊數最多為 max-pending 加上一個刷新週期內的新點擊，進程崩潰時最多遺失這麼多
+ *
+ * 訪客（IP + User-Agent 的 64 位雜湊）同樣按短碼與日期在本地去重，刷新時在同一個管線中以 PFADD
+ * 寫入每個短碼每天一個的 HyperLogLog（uv:{shortCode}:yyyyMMdd），供獨立訪客估算
+ */
+@Component
+public class ClickAggregator {
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private UrlBatchRepository urlBatchRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${shorturl.click.aggregator.flush-interval-ms:200}")
+    private long flushIntervalMs;
+    @Value("${shorturl.click.aggregator.max-pending:10000}")
+    private long maxPending;
+    @Value("${shorturl.visitors.retention-days:400}")
+    private long visitorRetentionDays;
+
+    private volatile Generation current = new Generation();
+    private final LongAdder pending = new LongAdder();
+    private final LongAdder flushedClicks = new LongAdder();
+    private final LongAdder failedFlushes = new LongAdder();
+    private final LongAdder droppedVisitors = new LongAdder();
+    private final LongAdder databaseClicks = new LongAdder();
+    private final LongAdder droppedClicks = new LongAdder();
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    private static final int PENDING_CHECK_MASK = 63;
+    private static final Logger log = LoggerFactory.getLogger(ClickAggregator.class);
+
+    /**
+     * 啟動背景刷新執行緒
+     */
+    @PostConstruct
+    void start() {
+        running = true;
+        flusher = new Thread(this::runFlusher, "click-aggregator-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * 關閉時停止刷新執行緒，並把所有未刷新的點擊寫入 Redis
+     */
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!write(drain())) {
+            // 關閉後不會再重試，剩下的增量直接寫入資料庫
+            writeToDatabase(drain().clicks());
+        }
+    }
+
+    /**
+     * 記錄一次點擊
+     * 只在本地累加，不做任何 I/O
+     *
+     * @param shortCode 短鏈接代碼
+     */
+    public void record(String shortCode) {
+        add(shortCode, 1);
+        pending.increment();
+        // 抽樣檢查未刷新數量，避免每次點擊都對 LongAdder 求和
+        if ((ThreadLocalRandom.current().nextInt() & PENDING_CHECK_MASK) == 0 && pending.sum() >= maxPending) {
+            Thread t = flusher;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+
+    /**
+     * 記錄一位訪客
+     * 只在本地按短碼與訪問日期去重，不做任何 I/O；IP 與 User-Agent 都沒有時無法識別訪客，略過
+     *
+     * @param event 訪問事件
+     */
+    public void recordVisitor(AccessEvent event) {
+        if (event.userIp() == null && event.userAgent() == null) return;
+        LocalDate day = LocalDate.ofInstant(Instant.ofEpochMilli(event.accessTimeMillis()), ZoneId.systemDefault());
+        addVisitor(RedisConfig.visitorKey(event.shortCode(), day), visitorHash(event.userIp(), event.userAgent()));
+    }
+
+    /**
+     * 訪客識別雜湊
+     * 以 64 位 FNV-1a 雜湊 IP 與 User-Agent，Redis 只收到固定長度的數字而非原始字串
+     *
+     * @param userIp 用戶IP
+     * @param userAgent User-Agent
+     * @return long 雜湊值
+     */
+    static long visitorHash(String userIp, String userAgent) {
+        long hash = 0xcbf29ce484222325L;
+        hash = fnv(hash, userIp);
+        hash = (hash ^ 0xff) * 0x100000001b3L; // 分隔符，避免 "a"+"bc" 與 "ab"+"c" 相同
+        return fnv(hash, userAgent);
+    }
+
+    private static long fnv(long hash, String value) {
+        if (value == null) return hash;
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * 立即刷新一輪
+     */
+    public void flush() {
+        write(drain());
+    }
+
+    /**
+     * 尚未寫入 Redis 的點擊數
+     *
+     * @return long 點擊數
+     */
+    public long pendingClicks() {
+        return pending.sum();
+    }
+
+    /**
+     * 啟動以來已寫入 Redis 的點擊數
+     *
+     * @return long 點擊數
+     */
+    public long flushedClicks() {
+        return flushedClicks.sum();
+    }
+
+    /**
+     * 寫入 Redis 失敗的刷新次數
+     *
+     * @return long 次數
+     */
+    public long failedFlushes() {
+        return failedFlushes.sum();
+    }
+
+    /**
+     * 因 Redis 不可用而捨棄的訪客數
+     *
+     * @return long 訪客數
+     */
+    public long droppedVisitors() {
+        return droppedVisitors.sum();
+    }
+
+    /**
+     * Redis 不可用且積壓達到上限時，直接寫入資料庫的點擊數
+     *
+     * @return long 點擊數
+     */
+    public long databaseClicks() {
+        return databaseClicks.sum();
+    }
+
+    /**
+     * Redis 與資料庫都無法寫入而捨棄的點擊數
+     *
+     * @return long 點擊數
+     */
+    public long droppedClicks() {
+        return droppedClicks.sum();
+    }
+
+    private void runFlusher() {
+        boolean healthy = true;
+        while (running) {
+            if (healthy) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushIntervalMs));
+            } else {
+                // Redis 不可用時不理會 max-pending 的喚醒，避免反覆失敗的空轉
+                try {
+                    Thread.sleep(flushIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+            try {
+                healthy = write(drain());
+            } catch (Exception e) {
+                log.warn("[runFlusher] flush failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 換上新的計數表並取出舊計數表的增量
+     * 先等舊計數表上進行中的累加全部完成，確保不會遺失
+     *
+     * @return Drained 短碼到點擊增量的映射，以及每個 HyperLogLog 鍵待加入的訪客
+     */
+    synchronized Drained drain() {
+        Generation old = current;
+        current = new Generation();
+        while (!old.isQuiescent()) {
+            Thread.onSpinWait();
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        old.counters.forEach((code, adder) -> {
+            long count = adder.sum();
+            if (count > 0) deltas.put(code, count);
+        });
+        return new Drained(deltas, old.visitors);
+    }
+
+    private void add(String shortCode, long count) {
+        while (true) {
+            Generation generation = current;
+            generation.entered.increment();
+            try {
+                // 進入後若已被換表，改到新的計數表累加
+                if (generation == current) {
+                    generation.counters.computeIfAbsent(shortCode, k -> new LongAdder()).add(count);
+                    return;
+                }
+            } finally {
+                generation.exited.increment();
+            }
+        }
+    }
+
+    private void addVisitor(String key, long hash) {
+        while (true) {
+            Generation generation = current;
+            generation.entered.increment();
+            try {
+                if (generation == current) {
+                    generation.visitors.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(hash);
+                    return;
+                }
+            } finally {
+                generation.exited.increment();
+            }
+        }
+    }
+
+    /**
+     * 以一次管線化的 HINCRBY 批量寫入 click:pending，並以 PFADD 寫入訪客 HyperLogLog
+     * Redis 不可用時把點擊增量放回當前計數表，下一輪重試；未刷新點擊數已達 max-pending 時改寫資料庫，不再放回；訪客直接捨棄，
+     * 獨立訪客本來就是估算值，而保留訪客集合會讓記憶體隨 Redis 中斷時間無限增長
+     *
+     * @return boolean 寫入成功（或沒有增量）返回true
+     */
+    private boolean write(Drained drained) {
+        Map<String, Long> deltas = drained.clicks();
+        Map<String, Set<Long>> visitors = drained.visitors();
+        if (deltas.isEmpty() && visitors.isEmpty()) return true;
+        long total = deltas.values().stream().mapToLong(Long::longValue).sum();
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    deltas.forEach((code, count) ->
+                            operations.opsForHash().increment(RedisConfig.CLICK_PENDING_KEY, code, count));
+                    visitors.forEach((key, hashes) -> {
+                        operations.opsForHyperLogLog().add(key, hashes.toArray());
+                        operations.expire(key, visitorRetentionDays, TimeUnit.DAYS);
+                    });
+                    return null;
+                }
+            });
+            pending.add(-total);
+            flushedClicks.add(total);
+            return true;
+        } catch (Exception e) {
+            failedFlushes.increment();
+            visitors.values().forEach(hashes -> droppedVisitors.add(hashes.size()));
+            if (pending.sum() < maxPending) {
+                log.debug("[write] flush of {} codes failed, retrying next round: {}", deltas.size(), e.getMessage());
+                deltas.forEach(this::add);
+            } else {
+                writeToDatabase(deltas);
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 繞過 Redis，把點擊增量直接累加到 short_url.click_count
+     * 這些增量不會進入 click:pending，Redis 恢復後的同步不會重複累加；資料庫也失敗時捨棄並計數
+     *
+     * @param deltas 短碼到點擊增量的映射
+     */
+    private void writeToDatabase(Map<String, Long> deltas) {
+        if (deltas.isEmpty()) return;
+        long total = deltas.values().stream().mapToLong(Long::longValue).sum();
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> urlBatchRepository.addClickCounts(deltas));
+            databaseClicks.add(total);
+            log.warn("[writeToDatabase] Redis unavailable, wrote {} clicks of {} codes directly to the database", total, deltas.size());
+        } catch (Exception e) {
+            droppedClicks.add(total);
+            log.error("[writeToDatabase] dropped {} clicks, Redis and database both unavailable: {}", total, e.getMessage());
+        } finally {
+            pending.add(-total);
+        }
+    }
+
+    /**
+     * 一輪取出的待寫入資料
+     *
+     * @param clicks 短碼到點擊增量的映射
+     * @param visitors HyperLogLog 鍵到訪客雜湊的映射
+     */
+    record Drained(Map<String, Long> clicks, Map<String, Set<Long>> visitors) {
+    }
+
+    /**
+     * 一代計數表
+     * entered / exited 記錄進行中的累加，兩者相等時這一代已無人寫入
+     */
+    private static final class Generation {
+
+        final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, Set<Long>> visitors = new ConcurrentHashMap<>();
+        final LongAdder entered = new LongAdder();
+        final LongAdder exited = new LongAdder();
+
+        boolean isQuiescent() {
+            // 先讀 exited 再讀 entered：兩者單調遞增，相等即代表讀取時沒有進行中的累加
+            long out = exited.sum();
+            return entered.sum() == out;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * 分散式鎖服務
+ * 以 Redis SET NX PX 實作帶租約的互斥鎖，用於多個應用實例之間協調定時任務
+ * 釋放與續約時比對持有者令牌，避免誤刪或延長租約過期後被其他實例取得的鎖
+ */
+@Service
+public class DistributedLockService {
+
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end",
+            Long.class);
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('PEXPIRE', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    /**
+     * 嘗試取得鎖
+     *
+     * @param key 鎖的鍵
+     * @param lease 租約時間，超時後鎖自動釋放
+     * @return String 持有者令牌，未取得鎖時返回null
+     */
+    public String tryLock(String key, Duration lease) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(key, token, lease);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    /**
+     * 續約
+     * 只有令牌相符時才延長租約；長時間執行的任務在每個步驟前呼叫，返回false時應中止，鎖可能已被其他實例取得
+     *
+     * @param key 鎖的鍵
+     * @param token 持有者令牌
+     * @param lease 新的租約時間
+     * @return boolean 仍持有鎖並已續約返回true
+     */
+    public boolean renew(String key, String token, Duration lease) {
+        Long renewed = redisTemplate.execute(RENEW_SCRIPT, List.of(key), token, String.valueOf(lease.toMillis()));
+        return renewed != null && renewed == 1L;
+    }
+
+    /**
+     * 釋放鎖
+     * 只有令牌相符時才刪除
+     *
+     * @param key 鎖的鍵
+     * @param token 持有者令牌
+     * @return boolean 釋放時仍持有鎖返回true；租約已過期或 Redis 不可用時返回false
+     */
+    public boolean unlock(String key, String token) {
+        try {
+            Long deleted = redisTemplate.execute(UNLOCK_SCRIPT, List.of(key), token);
+            return deleted != null && deleted == 1L;
+        } catch (Exception ignored) {
+            // 釋放失敗時等待租約過期
+            return false;
+        }
+    }
+}
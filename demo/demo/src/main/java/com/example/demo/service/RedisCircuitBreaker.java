@@ -0,0 +1,63 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Redis 斷路器
+ * 連續失敗達到門檻後在 open-ms 內跳過 Redis，讓請求直接走降級路徑，不必每次等待連線逾時
+ * 斷開期間過後放行請求試探，成功即恢復
+ */
+@Component
+public class RedisCircuitBreaker {
+
+    @Value("${shorturl.redis.failure-threshold:3}")
+    private int failureThreshold;
+    @Value("${shorturl.redis.open-ms:5000}")
+    private long openMs;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long openUntil;
+    private volatile boolean open;
+
+    private static final Logger log = LoggerFactory.getLogger(RedisCircuitBreaker.class);
+
+    /**
+     * Redis 是否可用
+     *
+     * @return boolean 未斷開或斷開期已過返回true
+     */
+    public boolean isAvailable() {
+        return System.currentTimeMillis() >= openUntil;
+    }
+
+    /**
+     * 記錄一次成功的 Redis 操作
+     */
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        if (open) {
+            open = false;
+            log.info("[RedisCircuitBreaker] Redis recovered");
+        }
+    }
+
+    /**
+     * 記錄一次失敗的 Redis 操作
+     *
+     * @param e 失敗原因
+     */
+    public void recordFailure(Exception e) {
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openUntil = System.currentTimeMillis() + openMs;
+            if (!open) {
+                open = true;
+                log.warn("[RedisCircuitBreaker] Redis unavailable, bypassing for {} ms: {}", openMs, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Url;
+import com.example.demo.repository.UrlBatchRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 相同原始網址去重
+ * 以正規化後原始網址的 128 位元雜湊（short_url.url_hash）查找既有短鏈接，雜湊相同時再比對正規化網址排除碰撞
+ * 過期時間必須相同才會重用：永久短鏈接不與有過期時間的合併，已過期的短鏈接不會被重用
+ * 查找結果以 Caffeine 快取在本地（鍵為雜湊 + 過期時間），同一網址反覆縮短時不必每次查詢資料庫
+ */
+@Component
+public class UrlDeduplicator {
+
+    private static final int MAX_CANDIDATES = 5;
+
+    @Autowired
+    private UrlBatchRepository urlBatchRepository;
+
+    @Value("${shorturl.dedup.cache.max-size:10000}")
+    private long cacheMaxSize;
+    @Value("${shorturl.dedup.cache.ttl-seconds:600}")
+    private long cacheTtlSeconds;
+
+    private Cache<Key, Url> cache;
+    private final LongAdder reused = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * 查找可重用的短鏈接
+     *
+     * @param originalUrl 原始URL地址
+     * @param expireAt 過期時間，null表示永久
+     * @return Url 可重用的短鏈接，沒有時返回null
+     */
+    public Url findReusable(String originalUrl, LocalDateTime expireAt) {
+        String normalized = normalize(originalUrl);
+        byte[] hash = fingerprint(normalized);
+        Key key = new Key(HexFormat.of().formatHex(hash), expireAt);
+        LocalDateTime now = LocalDateTime.now();
+
+        Url cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (isLive(cached, now)) {
+                cacheHits.increment();
+                reused.increment();
+                return cached;
+            }
+            cache.invalidate(key);
+        }
+
+        List<Url> candidates = urlBatchRepository.findByUrlHash(hash, expireAt, now, MAX_CANDIDATES);
+        for (Url candidate : candidates) {
+            if (normalized.equals(normalize(candidate.getOriginalUrl()))) {
+                cache.put(key, candidate);
+                reused.increment();
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 記住新建立的短鏈接，同一網址下次縮短時直接命中快取
+     *
+     * @param url 已保存的短鏈接，url_hash 必須已設定
+     */
+    public void remember(Url url) {
+        if (url.getUrlHash() == null) return;
+        cache.put(new Key(HexFormat.of().formatHex(url.getUrlHash()), url.getExpireAt()), url);
+    }
+
+    private static boolean isLive(Url url, LocalDateTime now) {
+        return url.getExpireAt() == null || url.getExpireAt().isAfter(now);
+    }
+
+    /**
+     * 計算原始網址的雜湊
+     *
+     * @param originalUrl 原始URL地址
+     * @return byte[] 正規化後網址的 MD5（16 位元組）
+     */
+    public static byte[] hash(String originalUrl) {
+        return fingerprint(normalize(originalUrl));
+    }
+
+    private static byte[] fingerprint(String normalized) {
+        try {
+            // 只作為定長指紋使用，不涉及安全性
+            return MessageDigest.getInstance("MD5").digest(normalized.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 正規化原始網址
+     * scheme 與主機名轉為小寫、去除預設埠、空路徑補為 /；路徑、查詢字串與片段保持原樣（大小寫有意義）
+     * 無法解析或不是絕對網址時只去除前後空白
+     *
+     * @param originalUrl 原始URL地址
+     * @return String 正規化後的網址
+     */
+    static String normalize(String originalUrl) {
+        String trimmed = originalUrl.trim();
+        URI uri;
+        try {
+            uri = new URI(trimmed);
+        } catch (URISyntaxException e) {
+            return trimmed;
+        }
+        if (uri.getScheme() == null || uri.getHost() == null) {
+            return trimmed;
+        }
+        String scheme = uri.getScheme().toLowerCase(Locale.ROOT);
+        int port = uri.getPort();
+        boolean defaultPort = port == -1 || ("http".equals(scheme) && port == 80) || ("https".equals(scheme) && port == 443);
+        StringBuilder sb = new StringBuilder(trimmed.length()).append(scheme).append("://");
+        if (uri.getRawUserInfo() != null) {
+            sb.append(uri.getRawUserInfo()).append('@');
+        }
+        sb.append(uri.getHost().toLowerCase(Locale.ROOT));
+        if (!defaultPort) {
+            sb.append(':').append(port);
+        }
+        String path = uri.getRawPath();
+        sb.append(path == null || path.isEmpty() ? "/" : path);
+        if (uri.getRawQuery() != null) {
+            sb.append('?').append(uri.getRawQuery());
+        }
+        if (uri.getRawFragment() != null) {
+            sb.append('#').append(uri.getRawFragment());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 累計重用既有短鏈接的次數
+     *
+     * @return long 次數
+     */
+    public long reusedCount() {
+        return reused.sum();
+    }
+
+    /**
+     * 累計由本地快取命中的重用次數
+     *
+     * @return long 次數
+     */
+    public long cacheHitCount() {
+        return cacheHits.sum();
+    }
+
+    private record Key(String hash, LocalDateTime expireAt) {
+    }
+}
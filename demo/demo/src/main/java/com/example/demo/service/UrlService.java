@@ -1,16 +1,45 @@
 package com.example.demo.service;
 
 
+import com.example.demo.cache.CachedUrl;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.cache.ShortCodeBloomFilter;
+import com.example.demo.cache.SingleFlightLoader;
 import com.example.demo.entity.Url;
+import com.example.demo.config.RedisConfig;
+import com.example.demo.datasource.ReadRouting;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.event.AccessEventCodec;
+import com.example.demo.metrics.CacheTier;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.publisher.AccessEventPublisher;
+import com.example.demo.repository.UrlBatchRepository;
 import com.example.demo.repository.UrlRepository;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import com.example.demo.shortcode.ShortCodeGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.RedisOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class UrlService {
@@ -20,42 +49,194 @@ public class UrlService {
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
     @Autowired
-    private RabbitTemplate rabbitTemplate;
+    private LocalUrlCache localUrlCache;
+    @Autowired
+    private ShortCodeBloomFilter shortCodeBloomFilter;
+    @Autowired
+    private ShortCodeGenerator shortCodeGenerator;
+    @Autowired
+    private UrlBatchRepository urlBatchRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private ClickAggregator clickAggregator;
+    @Autowired
+    private AccessEventPublisher accessEventPublisher;
+    @Autowired
+    private RedisCircuitBreaker redisCircuitBreaker;
+    @Autowired
+    private ShortUrlMetrics metrics;
+    @Autowired
+    private SingleFlightLoader singleFlightLoader;
+    @Autowired
+    private DistributedLockService lockService;
+    @Autowired
+    private UrlDeduplicator urlDeduplicator;
+    @Autowired
+    private ReadRouting readRouting;
 
-    private static final String CHAR_POOL = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-    private static final int SHORT_CODE_LENGTH = 6;
+    @Value("${shorturl.redirect.stream.enabled:false}")
+    private boolean accessStreamEnabled;
+    @Value("${shorturl.redirect.stream.max-length:1000000}")
+    private long accessStreamMaxLength;
+    @Value("${shorturl.cache.early-refresh.enabled:true}")
+    private boolean earlyRefreshEnabled;
+    @Value("${shorturl.cache.early-refresh.beta:1.0}")
+    private double earlyRefreshBeta;
+    @Value("${shorturl.cache.load-lock.enabled:false}")
+    private boolean loadLockEnabled;
+    @Value("${shorturl.cache.load-lock.lease-ms:3000}")
+    private long loadLockLeaseMs;
+    @Value("${shorturl.cache.load-lock.wait-ms:200}")
+    private long loadLockWaitMs;
 
     /**
-     * 生成隨機短代碼
-     * 使用大小寫字母和數字組成的字符池，生成指定長度的隨機字符串作為短鏈接代碼
-     * 
-     * @return 生成的6位隨機短代碼
+     * 資料庫載入耗時的指數移動平均（毫秒），作為提前刷新的重算成本
      */
-    private String generateShortCode() {
-        Random random = new Random();
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < SHORT_CODE_LENGTH; i++) {
-            sb.append(CHAR_POOL.charAt(random.nextInt(CHAR_POOL.length())));
-        }
-        return sb.toString();
-    }
+    private volatile double loadMillisAverage = 5;
+
+    private static final Logger log = LoggerFactory.getLogger(UrlService.class);
+
+    public static final String REDIS_URL_PREFIX = "shorturl:";
+    static final String LOAD_LOCK_PREFIX = "load:lock:";
+    private static final long LOAD_LOCK_POLL_MS = 20;
+    /**
+     * 剩餘時間超過 Δ·β 的這個倍數時觸發機率低於 e^-20，視為不需要刷新
+     */
+    private static final double EARLY_REFRESH_HORIZON = 20;
+
+    /**
+     * 重定向腳本：一次往返完成 GET、HINCRBY click:pending、可選的 XADD 與 PTTL
+     * 未命中時返回nil，不累加點擊
+     */
+    @SuppressWarnings("rawtypes")
+    public static final DefaultRedisScript<List> REDIRECT_SCRIPT = new DefaultRedisScript<>("""
+            local url = redis.call('GET', KEYS[1])
+            if not url then return nil end
+            redis.call('HINCRBY', KEYS[2], ARGV[1], 1)
+            if ARGV[2] == '1' then
+                redis.call('XADD', KEYS[3], 'MAXLEN', '~', ARGV[3], '*', 'e', ARGV[4])
+            end
+            return {url, redis.call('PTTL', KEYS[1])}
+            """, List.class);
+
+    private static final int MAX_CREATE_ATTEMPTS = 5;
+    private static final int BATCH_CHUNK_SIZE = 500;
 
     /**
      * 創建短鏈接
-     * 為原始URL生成唯一的短代碼，並保存到資料庫中
+     * 由短代碼生成器分配短代碼並保存到資料庫，正常情況下不需要額外的唯一性查詢
+     * 若與舊版隨機短碼衝突（唯一約束失敗），換下一個短代碼重試
      * 
      * @param originalUrl 原始URL地址
      * @param expireAt 過期時間，可為null表示永不過期
      * @return 創建的Url實體對象
      */
     public Url createShortUrl(String originalUrl, LocalDateTime expireAt) {
-        String shortCode;
-        do {
-            shortCode = generateShortCode();
-        } while (urlRepository.findByShortCode(shortCode).isPresent());
+        return createShortUrl(originalUrl, expireAt, false);
+    }
 
-        Url url = new Url(originalUrl, shortCode, expireAt);
-        return urlRepository.save(url);
+    /**
+     * 創建短鏈接，可選擇重用既有短鏈接
+     * reuseExisting 為true時先以原始網址雜湊查找過期時間相同的既有短鏈接，找到就直接返回，不新增資料列
+     *
+     * @param originalUrl 原始URL地址
+     * @param expireAt 過期時間，可為null表示永不過期
+     * @param reuseExisting 是否重用相同網址的既有短鏈接
+     * @return 創建或重用的Url實體對象
+     */
+    public Url createShortUrl(String originalUrl, LocalDateTime expireAt, boolean reuseExisting) {
+        if (reuseExisting) {
+            Url existing = urlDeduplicator.findReusable(originalUrl, expireAt);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        byte[] urlHash = UrlDeduplicator.hash(originalUrl);
+        for (int attempt = 1; ; attempt++) {
+            String shortCode = shortCodeGenerator.nextCode();
+            try {
+                long dbStart = System.nanoTime();
+                Url draft = new Url(originalUrl, shortCode, expireAt);
+                draft.setUrlHash(urlHash);
+                Url url = urlRepository.save(draft);
+                metrics.recordDb("insert", System.nanoTime() - dbStart);
+                shortCodeBloomFilter.add(shortCode);
+                readRouting.recordWrite(shortCode);
+                if (reuseExisting) {
+                    urlDeduplicator.remember(url);
+                }
+                return url;
+            } catch (DataIntegrityViolationException e) {
+                if (attempt >= MAX_CREATE_ATTEMPTS
+                        || ReadRouting.onPrimary(() -> urlRepository.findByShortCode(shortCode)).isEmpty()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量創建短鏈接
+     * 一次分配所有短代碼，每 500 筆以一個 JDBC batch 在單一交易中寫入
+     * 某批寫入失敗時整批回滾，改為逐筆寫入以定位失敗項目；短碼衝突的項目換碼重試
+     *
+     * @param drafts 待創建的URL實體（短代碼由本方法分配）
+     * @return List<BatchShortenResult> 與輸入順序一致的結果
+     */
+    public List<BatchShortenResult> createShortUrls(List<Url> drafts) {
+        List<BatchShortenResult> results = new ArrayList<>(drafts.size());
+        if (drafts.isEmpty()) {
+            return results;
+        }
+        List<String> codes = shortCodeGenerator.nextCodes(drafts.size());
+        for (int i = 0; i < drafts.size(); i++) {
+            drafts.get(i).setShortCode(codes.get(i));
+            drafts.get(i).setUrlHash(UrlDeduplicator.hash(drafts.get(i).getOriginalUrl()));
+        }
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        List<String> created = new ArrayList<>(drafts.size());
+        for (int from = 0; from < drafts.size(); from += BATCH_CHUNK_SIZE) {
+            List<Url> chunk = drafts.subList(from, Math.min(from + BATCH_CHUNK_SIZE, drafts.size()));
+            try {
+                tx.executeWithoutResult(status -> urlBatchRepository.insertAll(chunk));
+                for (Url url : chunk) {
+                    created.add(url.getShortCode());
+                    results.add(BatchShortenResult.success(url));
+                }
+            } catch (DataAccessException e) {
+                log.warn("[createShortUrls] batch insert failed, retrying {} rows one by one: {}",
+                        chunk.size(), e.getMostSpecificCause().getMessage());
+                for (Url url : chunk) {
+                    results.add(insertOne(url, created));
+                }
+            }
+        }
+        shortCodeBloomFilter.addAll(created);
+        created.forEach(readRouting::recordWrite);
+        return results;
+    }
+
+    /**
+     * 逐筆寫入短鏈接
+     * 短碼衝突時換碼重試，其他錯誤直接返回失敗結果
+     */
+    private BatchShortenResult insertOne(Url url, List<String> created) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                urlBatchRepository.insert(url);
+                created.add(url.getShortCode());
+                return BatchShortenResult.success(url);
+            } catch (DuplicateKeyException e) {
+                if (attempt >= MAX_CREATE_ATTEMPTS) {
+                    return BatchShortenResult.failure(url.getOriginalUrl(), "短碼衝突，重試失敗");
+                }
+                url.setShortCode(shortCodeGenerator.nextCode());
+            } catch (DataAccessException e) {
+                return BatchShortenResult.failure(url.getOriginalUrl(), "儲存失敗：" + e.getMostSpecificCause().getMessage());
+            }
+        }
     }
 
     /**
@@ -75,62 +256,421 @@ public class UrlService {
     }
     /**
      * 從快取中獲取原始URL
-     * 優先從Redis快取中查找URL，如果快取中沒有則從資料庫查詢並存入快取
-     * 支援Redis不可用時的降級處理，直接查詢資料庫
+     * 依序查找本地 L1 快取、負快取、布隆過濾器、Redis 快取，都未命中時從資料庫查詢並回填兩層快取
+     * 布隆過濾器判定不存在的短碼直接返回，不做任何 I/O；資料庫查無或已過期的短碼寫入負快取
+     * Redis 查詢以 pipeline 同時取得剩餘存活時間，確保本地快取不會超過映射的有效期
+     * 支援Redis不可用時的降級處理，直接查詢資料庫；斷路器斷開期間不嘗試連線 Redis
      * 
      * @param shortCode 短鏈接代碼
      * @return 原始URL地址，如果未找到則返回null
      */
     public String getOriginalUrlFromCache(String shortCode) {
-        String redisKey = "shorturl:" + shortCode;
-        String originalUrl = null;
+        return lookup(shortCode, System.nanoTime());
+    }
+
+    /**
+     * 依序查找各層快取與資料庫，並以命中的層級記錄重定向延遲
+     *
+     * @param shortCode 短鏈接代碼
+     * @param start 解析開始時間（System.nanoTime）
+     * @return 原始URL地址，如果未找到則返回null
+     */
+    private String lookup(String shortCode, long start) {
+        CachedUrl local = localUrlCache.get(shortCode);
+        if (local != null) {
+            refreshIfExpiring(shortCode, local);
+            metrics.recordRedirect(CacheTier.LOCAL, System.nanoTime() - start);
+            return local.originalUrl();
+        }
+        if (localUrlCache.isKnownMissing(shortCode)) {
+            metrics.recordRedirect(CacheTier.NEGATIVE, System.nanoTime() - start);
+            return null;
+        }
+        if (!shortCodeBloomFilter.mightContain(shortCode)) {
+            metrics.recordRedirect(CacheTier.BLOOM, System.nanoTime() - start);
+            return null;
+        }
+
+        String redisKey = REDIS_URL_PREFIX + shortCode;
+        if (redisCircuitBreaker.isAvailable()) {
+            long redisStart = System.nanoTime();
+            try {
+                List<Object> results = getWithTtl(redisKey);
+                metrics.recordRedis("get", System.nanoTime() - redisStart);
+                redisCircuitBreaker.recordSuccess();
+                String originalUrl = (String) results.get(0);
+                if (originalUrl != null) {
+                    refreshIfExpiring(shortCode, cacheLocally(shortCode, originalUrl, (Long) results.get(1)));
+                    metrics.recordRedirect(CacheTier.REDIS, System.nanoTime() - start);
+                    return originalUrl;
+                }
+            } catch (Exception e) {
+                // Redis 不可用時，直接走資料庫
+                metrics.fallback("redis", "get", e);
+                redisCircuitBreaker.recordFailure(e);
+            }
+        }
+        return loadAndRecord(shortCode, start);
+    }
+
+    /**
+     * 從資料庫載入，並以 database 或 missing 層級記錄重定向延遲
+     */
+    private String loadAndRecord(String shortCode, long start) {
+        String originalUrl = loadFromDatabase(shortCode);
+        metrics.recordRedirect(originalUrl != null ? CacheTier.DATABASE : CacheTier.MISSING, System.nanoTime() - start);
+        return originalUrl;
+    }
+
+    /**
+     * 解析短碼並記錄點擊
+     * 本地 L1 快取命中時不做任何 Redis 操作；未命中且 Redis 可用時以一次 Lua 腳本往返
+     * 同時取得URL與剩餘存活時間、累加 click:pending，並可選擇把訪問事件追加到 Redis Stream
+     * 腳本未命中時從資料庫載入；Redis 不可用時退回 getOriginalUrlFromCache + incrementClick
+     *
+     * @param shortCode 短鏈接代碼
+     * @param userIp 用戶IP
+     * @param userAgent User-Agent
+     * @param referer 來源頁面
+     * @return 原始URL地址，如果未找到則返回null
+     */
+    public String resolveAndRecordClick(String shortCode, String userIp, String userAgent, String referer) {
+        long start = System.nanoTime();
+        AccessEvent event = AccessEvent.of(shortCode, System.currentTimeMillis(), userIp, userAgent, referer);
+        CachedUrl local = localUrlCache.get(shortCode);
+        if (local != null) {
+            refreshIfExpiring(shortCode, local);
+            metrics.recordRedirect(CacheTier.LOCAL, System.nanoTime() - start);
+            recordClick(event);
+            return local.originalUrl();
+        }
+        if (!localUrlCache.isKnownMissing(shortCode)
+                && shortCodeBloomFilter.mightContain(shortCode) && redisCircuitBreaker.isAvailable()) {
+            long redisStart = System.nanoTime();
+            try {
+                List<Object> result = redisTemplate.execute(REDIRECT_SCRIPT,
+                        redirectScriptKeys(shortCode), redirectScriptArgs(shortCode, event).toArray());
+                metrics.recordRedis("redirect-script", System.nanoTime() - redisStart);
+                redisCircuitBreaker.recordSuccess();
+                String originalUrl = onRedirectScriptResult(shortCode, result, event);
+                if (originalUrl != null) {
+                    metrics.recordRedirect(CacheTier.REDIS, System.nanoTime() - start);
+                    return originalUrl;
+                }
+                originalUrl = loadAndRecord(shortCode, start);
+                if (originalUrl != null) {
+                    recordClick(event);
+                }
+                return originalUrl;
+            } catch (Exception e) {
+                // Redis 不可用時，退回原有流程
+                metrics.fallback("redis", "redirect-script", e);
+                redisCircuitBreaker.recordFailure(e);
+            }
+        }
+
+        String originalUrl = lookup(shortCode, start);
+        if (originalUrl != null) {
+            recordClick(event);
+        }
+        return originalUrl;
+    }
+
+    /**
+     * 重定向腳本的鍵：短網址快取、待同步點擊雜湊、訪問事件 Stream
+     *
+     * @param shortCode 短鏈接代碼
+     * @return List<String> 腳本的 KEYS
+     */
+    public List<String> redirectScriptKeys(String shortCode) {
+        return List.of(REDIS_URL_PREFIX + shortCode, RedisConfig.CLICK_PENDING_KEY, RedisConfig.ACCESS_STREAM_KEY);
+    }
+
+    /**
+     * 重定向腳本的參數：短碼、是否寫入 Stream、Stream 長度上限、編碼後的訪問事件
+     *
+     * @param shortCode 短鏈接代碼
+     * @param event 訪問事件
+     * @return List<String> 腳本的 ARGV
+     */
+    public List<String> redirectScriptArgs(String shortCode, AccessEvent event) {
+        return List.of(shortCode, accessStreamEnabled ? "1" : "0", String.valueOf(accessStreamMaxLength),
+                accessStreamEnabled ? Base64.getEncoder().encodeToString(AccessEventCodec.encode(List.of(event))) : "");
+    }
+
+    /**
+     * 處理重定向腳本的結果
+     * 命中時回填本地快取；點擊已在腳本中累加，訪客仍交給本地聚合器寫入 HyperLogLog，訪問事件寫入 Stream 時不再經 RabbitMQ
+     *
+     * @param shortCode 短鏈接代碼
+     * @param result 腳本結果（URL 與剩餘存活毫秒），未命中時為null或空
+     * @param event 訪問事件
+     * @return 原始URL地址，腳本未命中時返回null
+     */
+    public String onRedirectScriptResult(String shortCode, List<?> result, AccessEvent event) {
+        if (result == null || result.isEmpty()) {
+            return null;
+        }
+        String originalUrl = (String) result.get(0);
+        refreshIfExpiring(shortCode, cacheLocally(shortCode, originalUrl, (Long) result.get(1)));
+        clickAggregator.recordVisitor(event);
+        if (!accessStreamEnabled) {
+            accessEventPublisher.publish(event);
+        }
+        return originalUrl;
+    }
+
+    /**
+     * 以 Redis 回傳的剩餘存活時間回填本地快取
+     */
+    private CachedUrl cacheLocally(String shortCode, String originalUrl, Long pttl) {
+        long expireAtMillis = pttl != null && pttl > 0 ? System.currentTimeMillis() + pttl : CachedUrl.NEVER;
+        CachedUrl cached = new CachedUrl(originalUrl, expireAtMillis);
+        localUrlCache.put(shortCode, cached);
+        return cached;
+    }
+
+    /**
+     * 以一次管線取得 Redis 快取的值與剩餘存活毫秒
+     */
+    private List<Object> getWithTtl(String redisKey) {
+        return redisTemplate.executePipelined(new SessionCallback<Object>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public Object execute(RedisOperations operations) {
+                operations.opsForValue().get(redisKey);
+                operations.getExpire(redisKey, TimeUnit.MILLISECONDS);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * 機率性提前刷新（XFetch）
+     * 快取即將到期時，每次命中以 -Δ·β·ln(rand) ≥ 剩餘存活時間 的機率在背景重新載入，Δ 為資料庫載入耗時的移動平均；
+     * 越接近到期、載入越慢，觸發機率越高，熱門短碼通常在到期前就被刷新，不會所有節點同時未命中
+     * 剩餘時間遠大於 Δ·β 時只做一次比較，不產生隨機數
+     * 過期時間就是短鏈接本身 expireAt 的項目不刷新（重新載入也無法延長）；從 Redis 回填的項目無法區分，
+     * 第一次刷新從資料庫得知有 expireAt 後，本地項目即標記為固定過期，之後不再刷新
+     *
+     * @param shortCode 短鏈接代碼
+     * @param cached 命中的快取項目
+     */
+    public void refreshIfExpiring(String shortCode, CachedUrl cached) {
+        if (!earlyRefreshEnabled || cached.expireAtMillis() == CachedUrl.NEVER || cached.fixedExpiry()) return;
+        double window = loadMillisAverage * earlyRefreshBeta;
+        long remaining = cached.expireAtMillis() - System.currentTimeMillis();
+        if (remaining > window * EARLY_REFRESH_HORIZON) return;
+        if (shouldRefreshEarly(remaining, window, ThreadLocalRandom.current().nextDouble())) {
+            singleFlightLoader.refreshAsync(shortCode, () -> loadWithLease(shortCode));
+        }
+    }
+
+    /**
+     * XFetch 判斷
+     *
+     * @param remainingMillis 剩餘存活毫秒
+     * @param windowMillis Δ·β（毫秒）
+     * @param random (0, 1) 之間的隨機數
+     * @return boolean 應提前刷新返回true
+     */
+    static boolean shouldRefreshEarly(long remainingMillis, double windowMillis, double random) {
+        return -windowMillis * Math.log(random) >= remainingMillis;
+    }
+
+    /**
+     * 從資料庫載入映射並回填兩層快取
+     * 同一短碼在本節點同時只有一個請求查詢資料庫，其他請求等待同一個結果；
+     * 啟用 load-lock 時另以 Redis 租約鎖讓多個節點同時只有一個查詢，未取得鎖的節點短暫輪詢 Redis 等待回填
+     * 查無或已過期時寫入負快取；會阻塞，反應式模式下須在 offload 排程器上呼叫
+     *
+     * @param shortCode 短鏈接代碼
+     * @return 原始URL地址，如果未找到則返回null
+     */
+    public String loadFromDatabase(String shortCode) {
+        return singleFlightLoader.load(shortCode, () -> loadWithLease(shortCode));
+    }
+
+    /**
+     * 在跨節點租約鎖保護下載入
+     * 未啟用、Redis 不可用或取鎖失敗時直接載入；鎖被其他節點持有時等待 wait-ms，期間 Redis 已回填就直接使用
+     */
+    private String loadWithLease(String shortCode) {
+        if (!loadLockEnabled || !redisCircuitBreaker.isAvailable()) {
+            return loadNow(shortCode);
+        }
+        String lockKey = LOAD_LOCK_PREFIX + shortCode;
+        String token;
         try {
-            originalUrl = (String) redisTemplate.opsForValue().get(redisKey);
-        } catch (Exception ignored) {
-            // Redis 不可用時，直接走資料庫
-        }
-
-        if (originalUrl == null) {
-            Optional<Url> urlOpt = urlRepository.findByShortCode(shortCode)
-                    .filter(url -> url.getExpireAt() == null || url.getExpireAt().isAfter(LocalDateTime.now()));
-            if (urlOpt.isPresent()) {
-                originalUrl = urlOpt.get().getOriginalUrl();
-                long ttl = urlOpt.get().getExpireAt() != null ?
-                        java.time.Duration.between(LocalDateTime.now(), urlOpt.get().getExpireAt()).getSeconds()
-                        : 3600;
+            token = lockService.tryLock(lockKey, Duration.ofMillis(loadLockLeaseMs));
+        } catch (Exception e) {
+            // Redis 不可用時不做跨節點協調
+            metrics.fallback("redis", "load-lock", e);
+            redisCircuitBreaker.recordFailure(e);
+            return loadNow(shortCode);
+        }
+        if (token != null) {
+            try {
+                return loadNow(shortCode);
+            } finally {
+                lockService.unlock(lockKey, token);
+            }
+        }
+        String filled = awaitRedisFill(shortCode);
+        return filled != null ? filled : loadNow(shortCode);
+    }
+
+    /**
+     * 等待持有鎖的節點回填 Redis
+     *
+     * @return 原始URL地址，等待逾時或 Redis 不可用時返回null
+     */
+    private String awaitRedisFill(String shortCode) {
+        long deadline = System.currentTimeMillis() + loadLockWaitMs;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LOAD_LOCK_POLL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            try {
+                List<Object> results = getWithTtl(REDIS_URL_PREFIX + shortCode);
+                String originalUrl = (String) results.get(0);
+                if (originalUrl != null) {
+                    cacheLocally(shortCode, originalUrl, (Long) results.get(1));
+                    return originalUrl;
+                }
+            } catch (Exception e) {
+                // Redis 不可用時不再等待，直接查資料庫
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 查詢資料庫並回填兩層快取
+     */
+    private String loadNow(String shortCode) {
+        String redisKey = REDIS_URL_PREFIX + shortCode;
+        String originalUrl = null;
+        long dbStart = System.nanoTime();
+        Optional<Url> urlOpt = readRouting.read(shortCode, () -> urlRepository.findByShortCode(shortCode));
+        long dbNanos = System.nanoTime() - dbStart;
+        metrics.recordDb("find-by-short-code", dbNanos);
+        loadMillisAverage = loadMillisAverage * 0.9 + dbNanos / 1_000_000.0 * 0.1;
+        urlOpt = urlOpt.filter(url -> url.getExpireAt() == null || url.getExpireAt().isAfter(LocalDateTime.now()));
+        if (urlOpt.isPresent()) {
+            Url url = urlOpt.get();
+            originalUrl = url.getOriginalUrl();
+            long ttl = redisTtlSeconds(url.getExpireAt(), LocalDateTime.now());
+            localUrlCache.put(shortCode, new CachedUrl(originalUrl, toEpochMillis(url.getExpireAt()), url.getExpireAt() != null));
+            if (redisCircuitBreaker.isAvailable()) {
+                long redisStart = System.nanoTime();
                 try {
-                    redisTemplate.opsForValue().set(redisKey, originalUrl, ttl, java.util.concurrent.TimeUnit.SECONDS);
-                } catch (Exception ignored) {
+                    redisTemplate.opsForValue().set(redisKey, originalUrl, ttl, TimeUnit.SECONDS);
+                    metrics.recordRedis("set", System.nanoTime() - redisStart);
+                } catch (Exception e) {
                     // Redis 不可用就跳過快取
+                    metrics.fallback("redis", "set", e);
+                    redisCircuitBreaker.recordFailure(e);
                 }
             }
+        } else {
+            localUrlCache.markMissing(shortCode);
         }
         return originalUrl;
     }
+
+    /**
+     * 預先載入一批映射到兩層快取
+     * 本地快取直接寫入；Redis 以一次管線化的 SET ... EX 寫入，存活時間與 loadFromDatabase 相同
+     *
+     * @param urls 未過期的短鏈接
+     * @return boolean Redis 寫入成功返回true，Redis 不可用（只寫入本地快取）時返回false
+     */
+    public boolean preload(List<Url> urls) {
+        LocalDateTime now = LocalDateTime.now();
+        for (Url url : urls) {
+            localUrlCache.put(url.getShortCode(), new CachedUrl(url.getOriginalUrl(), toEpochMillis(url.getExpireAt()), url.getExpireAt() != null));
+        }
+        if (!redisCircuitBreaker.isAvailable()) {
+            return false;
+        }
+        long redisStart = System.nanoTime();
+        try {
+            redisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object execute(RedisOperations operations) {
+                    for (Url url : urls) {
+                        long ttl = redisTtlSeconds(url.getExpireAt(), now);
+                        if (ttl > 0) {
+                            operations.opsForValue().set(REDIS_URL_PREFIX + url.getShortCode(),
+                                    url.getOriginalUrl(), ttl, TimeUnit.SECONDS);
+                        }
+                    }
+                    return null;
+                }
+            });
+            metrics.recordRedis("preload", System.nanoTime() - redisStart);
+            return true;
+        } catch (Exception e) {
+            // Redis 不可用時只保留本地快取
+            metrics.fallback("redis", "preload", e);
+            redisCircuitBreaker.recordFailure(e);
+            return false;
+        }
+    }
+
+    /**
+     * Redis 快取的存活時間
+     * 有過期時間時到過期為止，永不過期時為一小時
+     *
+     * @param expireAt 過期時間，可為null
+     * @param now 當前時間
+     * @return long 存活秒數
+     */
+    static long redisTtlSeconds(LocalDateTime expireAt, LocalDateTime now) {
+        return expireAt != null ? Duration.between(now, expireAt).getSeconds() : 3600;
+    }
+
+    /**
+     * 將過期時間轉換為 epoch 毫秒
+     *
+     * @param expireAt 過期時間，可為null表示永不過期
+     * @return long epoch 毫秒，永不過期時返回 {@link CachedUrl#NEVER}
+     */
+    private static long toEpochMillis(LocalDateTime expireAt) {
+        if (expireAt == null) return CachedUrl.NEVER;
+        return expireAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
     /**
      * 增加點擊次數並記錄訪問日誌
-     * 在Redis中增加該短鏈接的點擊計數，並通過RabbitMQ發送訪問日誌訊息
-     * 用於統計分析和異步處理訪問記錄
+     * 點擊先在本地聚合，由 ClickAggregator 定期批量寫入Redis的 click:pending 雜湊；
+     * 訪問日誌放入 AccessEventPublisher 的緩衝區，由背景執行緒批量發送到RabbitMQ，請求執行緒不做任何 I/O
+     * 增量再由 ClickCountSyncScheduler 定期批量同步到資料庫
      * 
      * @param shortCode 短鏈接代碼
+     * @param userIp 用戶IP
+     * @param userAgent User-Agent
+     * @param referer 來源頁面
      */
-    public void incrementClick(String shortCode) {
-        String redisKey = "click:" + shortCode;
-        try {
-            redisTemplate.opsForValue().increment(redisKey, 1);
-        } catch (Exception ignored) {
-            // Redis 不可用時忽略
-        }
+    public void incrementClick(String shortCode, String userIp, String userAgent, String referer) {
+        recordClick(AccessEvent.of(shortCode, System.currentTimeMillis(), userIp, userAgent, referer));
+    }
 
-        // 發送訪問日誌到 RabbitMQ
-        try {
-            java.util.Map<String, Object> log = java.util.Map.of(
-                    "shortCode", shortCode,
-                    "accessTime", java.time.LocalDateTime.now()
-            );
-            rabbitTemplate.convertAndSend("access_log_exchange", "access.log", log);
-        } catch (Exception ignored) {
-        }
+    /**
+     * 記錄一次點擊
+     * 點擊與訪客交給本地聚合器，訪問日誌交給背景發布器批量發送到 RabbitMQ；兩者都不做 I/O
+     *
+     * @param event 訪問事件
+     */
+    public void recordClick(AccessEvent event) {
+        clickAggregator.record(event.shortCode());
+        clickAggregator.recordVisitor(event);
+        accessEventPublisher.publish(event);
     }
 
 
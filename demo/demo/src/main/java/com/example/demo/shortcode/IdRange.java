@@ -0,0 +1,11 @@
+package com.example.demo.shortcode;
+
+/**
+ * 號段
+ * 一段連續且僅由本節點使用的 ID 區間，左閉右開
+ *
+ * @param start 起始 ID（含）
+ * @param end 結束 ID（不含）
+ */
+public record IdRange(long start, long end) {
+}
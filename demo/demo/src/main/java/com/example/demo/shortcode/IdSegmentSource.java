@@ -0,0 +1,17 @@
+package com.example.demo.shortcode;
+
+/**
+ * 號段來源
+ * 由 {@code shorturl.code.segment.source} 選擇實作：db（預設）或 redis
+ */
+public interface IdSegmentSource {
+
+    /**
+     * 租用下一個號段
+     * 每次呼叫返回的區間在所有節點之間互不重疊
+     *
+     * @param step 號段大小
+     * @return IdRange 租用到的號段
+     */
+    IdRange lease(int step);
+}
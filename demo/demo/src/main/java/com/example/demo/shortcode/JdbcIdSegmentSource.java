@@ -0,0 +1,49 @@
+package com.example.demo.shortcode;
+
+import com.example.demo.entity.ShortCodeSegment;
+import com.example.demo.repository.ShortCodeSegmentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 資料庫號段來源
+ * 在 short_code_segment 表上以 UPDATE max_id = max_id + step 原子租用號段
+ * 使用獨立交易，不受呼叫端交易影響
+ */
+@Component
+@ConditionalOnProperty(name = "shorturl.code.segment.source", havingValue = "db", matchIfMissing = true)
+public class JdbcIdSegmentSource implements IdSegmentSource {
+
+    static final String BIZ_TAG = "short_url";
+
+    @Autowired
+    private ShortCodeSegmentRepository segmentRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Override
+    public IdRange lease(int step) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            return tx.execute(status -> advance(step));
+        } catch (DataIntegrityViolationException e) {
+            // 其他節點同時初始化了號段列，重試即可推進
+            return tx.execute(status -> advance(step));
+        }
+    }
+
+    private IdRange advance(int step) {
+        if (segmentRepository.advance(BIZ_TAG, step) == 0) {
+            segmentRepository.saveAndFlush(new ShortCodeSegment(BIZ_TAG, (long) step));
+            return new IdRange(0, step);
+        }
+        long maxId = segmentRepository.findById(BIZ_TAG).orElseThrow().getMaxId();
+        return new IdRange(maxId - step, maxId);
+    }
+}
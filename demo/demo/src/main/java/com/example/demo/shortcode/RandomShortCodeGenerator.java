@@ -0,0 +1,25 @@
+package com.example.demo.shortcode;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 隨機短代碼生成器
+ * 從字符池隨機選取 6 位字符；不保證唯一，衝突由資料庫唯一約束檢出後重試
+ */
+@Component
+@ConditionalOnProperty(name = "shorturl.code.generator", havingValue = "random")
+public class RandomShortCodeGenerator implements ShortCodeGenerator {
+
+    @Override
+    public String nextCode() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        char[] code = new char[ShortCodeCodec.CODE_LENGTH];
+        for (int i = 0; i < code.length; i++) {
+            code[i] = ShortCodeCodec.ALPHABET.charAt(random.nextInt(ShortCodeCodec.ALPHABET.length()));
+        }
+        return new String(code);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.demo.shortcode;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis 號段來源
+ * 以 INCRBY 原子租用號段；Redis 必須開啟持久化（AOF），否則計數器遺失後會重發已用過的 ID
+ */
+@Component
+@ConditionalOnProperty(name = "shorturl.code.segment.source", havingValue = "redis")
+public class RedisIdSegmentSource implements IdSegmentSource {
+
+    static final String COUNTER_KEY = "shortcode:segment:short_url";
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Override
+    public IdRange lease(int step) {
+        Long maxId = redisTemplate.opsForValue().increment(COUNTER_KEY, step);
+        if (maxId == null) {
+            throw new IllegalStateException("INCRBY returned null for " + COUNTER_KEY);
+        }
+        return new IdRange(maxId - step, maxId);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.demo.shortcode;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 號段短代碼生成器
+ * 每個節點向號段來源租用一段連續 ID，在本地以原子遞增分配，編碼為 base62 短碼
+ * 生成短碼不需要任何查詢；當前號段用到一定比例時在背景預取下一段（雙緩衝）
+ */
+@Component
+@ConditionalOnProperty(name = "shorturl.code.generator", havingValue = "segment", matchIfMissing = true)
+public class SegmentShortCodeGenerator implements ShortCodeGenerator {
+
+    @Autowired
+    private IdSegmentSource segmentSource;
+
+    @Value("${shorturl.code.segment.step:1000}")
+    private int step;
+    @Value("${shorturl.code.segment.prefetch-ratio:0.2}")
+    private double prefetchRatio;
+    @Value("${shorturl.code.scramble:true}")
+    private boolean scramble;
+    @Value("${shorturl.code.scramble-key:0}")
+    private long scrambleKey;
+
+    private ShortCodeCodec codec;
+    private ExecutorService loader;
+    private volatile Segment current;
+    private CompletableFuture<Segment> pending;
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentShortCodeGenerator.class);
+
+    /**
+     * 初始化編碼器與背景預取執行緒
+     * 開啟混淆時金鑰必須設定為非0的私有值，否則所有部署使用同一個公開的置換，短碼可被枚舉
+     */
+    @PostConstruct
+    void init() {
+        if (scramble && scrambleKey == 0) {
+            throw new IllegalStateException(
+                    "shorturl.code.scramble-key must be set to a private non-zero value when shorturl.code.scramble=true");
+        }
+        codec = new ShortCodeCodec(scramble, scrambleKey);
+        loader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "shortcode-segment-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 關閉背景預取執行緒
+     */
+    @PreDestroy
+    void shutdown() {
+        loader.shutdownNow();
+    }
+
+    @Override
+    public String nextCode() {
+        return codec.encode(nextId());
+    }
+
+    /**
+     * 批量生成短代碼
+     * 數量不小於號段大小時直接租用一段專屬號段，只需一次號段來源往返
+     *
+     * @param count 數量
+     * @return List<String> 互不相同的短代碼
+     */
+    @Override
+    public List<String> nextCodes(int count) {
+        if (count < step) {
+            return ShortCodeGenerator.super.nextCodes(count);
+        }
+        IdRange range = segmentSource.lease(count);
+        List<String> codes = new ArrayList<>(count);
+        for (long id = range.start(); id < range.end(); id++) {
+            codes.add(codec.encode(id));
+        }
+        return codes;
+    }
+
+    /**
+     * 分配下一個 ID
+     * 快速路徑只有一次原子遞增；號段耗盡時才進入同步區切換號段
+     *
+     * @return long 全域唯一的 ID
+     */
+    long nextId() {
+        while (true) {
+            Segment segment = current;
+            if (segment != null) {
+                long id = segment.cursor.getAndIncrement();
+                if (id < segment.end) {
+                    if (id == segment.prefetchAt) {
+                        prefetch();
+                    }
+                    return id;
+                }
+            }
+            switchSegment(segment);
+        }
+    }
+
+    private void prefetch() {
+        lock.lock();
+        try {
+            if (pending == null) {
+                pending = CompletableFuture.supplyAsync(this::leaseSegment, loader);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void switchSegment(Segment exhausted) {
+        // 使用 ReentrantLock 而非 synchronized：同步租用號段涉及 I/O，虛擬執行緒等待時不會釘住載體執行緒
+        lock.lock();
+        try {
+            if (current != exhausted) {
+                return; // 其他執行緒已完成切換
+            }
+            Segment next = null;
+            if (pending != null) {
+                try {
+                    next = pending.join();
+                } catch (Exception e) {
+                    log.warn("[switchSegment] prefetch failed, leasing synchronously: {}", e.getMessage());
+                }
+                pending = null;
+            }
+            current = next != null ? next : leaseSegment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Segment leaseSegment() {
+        IdRange range = segmentSource.lease(step);
+        log.debug("[leaseSegment] leased [{}, {})", range.start(), range.end());
+        return new Segment(range, prefetchRatio);
+    }
+
+    /**
+     * 本地使用中的號段
+     */
+    private static final class Segment {
+
+        final AtomicLong cursor;
+        final long end;
+        final long prefetchAt;
+
+        Segment(IdRange range, double prefetchRatio) {
+            this.cursor = new AtomicLong(range.start());
+            this.end = range.end();
+            long size = range.end() - range.start();
+            this.prefetchAt = range.start() + Math.max(0, (long) (size * (1 - prefetchRatio)) - 1);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.shortcode;
+
+/**
+ * 短代碼編碼器
+ * 將數字 ID 編碼為 base62 短代碼，6 位可容納 62^6 個 ID
+ * 開啟混淆時以 Feistel 網路在 [0, 62^6) 上做雙射置換，連續 ID 產生的短碼不可預測且不會重複
+ * 超出 6 位容量的 ID 直接編碼為 7 位以上，與 6 位短碼不會衝突
+ */
+public final class ShortCodeCodec {
+
+    static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    static final int CODE_LENGTH = 6;
+    static final long DOMAIN = pow(ALPHABET.length(), CODE_LENGTH);
+
+    private static final int HALF_BITS = 18;
+    private static final long HALF_MASK = (1L << HALF_BITS) - 1;
+    private static final int ROUNDS = 4;
+
+    private final boolean scramble;
+    private final long[] roundKeys = new long[ROUNDS];
+
+    /**
+     * 建構子
+     *
+     * @param scramble 是否混淆 ID
+     * @param key 混淆金鑰，不同金鑰產生不同的置換
+     */
+    public ShortCodeCodec(boolean scramble, long key) {
+        this.scramble = scramble;
+        for (int i = 0; i < ROUNDS; i++) {
+            roundKeys[i] = mix(key + 0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    /**
+     * 將 ID 編碼為短代碼
+     *
+     * @param id 非負數字 ID
+     * @return String 短代碼，ID 小於 62^6 時固定 6 位
+     */
+    public String encode(long id) {
+        if (id < 0) throw new IllegalArgumentException("id must not be negative: " + id);
+        if (id >= DOMAIN) {
+            return toBase62(id, 0);
+        }
+        return toBase62(scramble ? permute(id) : id, CODE_LENGTH);
+    }
+
+    /**
+     * 在 [0, 62^6) 上的雙射置換
+     * 36 位元 Feistel 網路本身是 [0, 2^36) 上的置換，以 cycle-walking 收斂到較小的定義域
+     */
+    long permute(long value) {
+        long v = value;
+        do {
+            v = feistel(v);
+        } while (v >= DOMAIN);
+        return v;
+    }
+
+    private long feistel(long value) {
+        long left = (value >>> HALF_BITS) & HALF_MASK;
+        long right = value & HALF_MASK;
+        for (int i = 0; i < ROUNDS; i++) {
+            long next = left ^ (mix(right ^ roundKeys[i]) & HALF_MASK);
+            left = right;
+            right = next;
+        }
+        return (left << HALF_BITS) | right;
+    }
+
+    private static String toBase62(long value, int minLength) {
+        char[] buf = new char[12];
+        int pos = buf.length;
+        long v = value;
+        do {
+            buf[--pos] = ALPHABET.charAt((int) (v % ALPHABET.length()));
+            v /= ALPHABET.length();
+        } while (v > 0);
+        while (buf.length - pos < minLength) {
+            buf[--pos] = ALPHABET.charAt(0);
+        }
+        return new String(buf, pos, buf.length - pos);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long pow(long base, int exponent) {
+        long result = 1;
+        for (int i = 0; i < exponent; i++) result *= base;
+        return result;
+    }
+}
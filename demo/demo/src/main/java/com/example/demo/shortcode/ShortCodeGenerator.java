@@ -0,0 +1,32 @@
+package com.example.demo.shortcode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 短代碼生成器
+ * 由 {@code shorturl.code.generator} 選擇實作：segment（預設，號段分配）或 random（隨機）
+ */
+public interface ShortCodeGenerator {
+
+    /**
+     * 生成下一個短代碼
+     *
+     * @return String 短代碼
+     */
+    String nextCode();
+
+    /**
+     * 批量生成短代碼
+     *
+     * @param count 數量
+     * @return List<String> 互不相同的短代碼
+     */
+    default List<String> nextCodes(int count) {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(nextCode());
+        }
+        return codes;
+    }
+}
@@ -0,0 +1,34 @@
+-- 基準結構：原本由 ddl-auto=update 從實體產生的三張表（short_url、url_access_log、url_notification）
+-- 之後新增的表放在後續遷移中
+-- 已有資料的資料庫以 spring.flyway.baseline-on-migrate 標記為第 1 版，不會執行本腳本
+
+CREATE TABLE short_url (
+    id           BIGINT        NOT NULL AUTO_INCREMENT,
+    original_url VARCHAR(2048) NOT NULL,
+    short_code   VARCHAR(20)   NOT NULL,
+    created_at   DATETIME(6)   NOT NULL,
+    expire_at    DATETIME(6),
+    click_count  BIGINT        NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_short_url_short_code UNIQUE (short_code)
+) ENGINE = InnoDB;
+
+CREATE TABLE url_access_log (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    short_code  VARCHAR(20),
+    user_ip     VARCHAR(50),
+    user_agent  VARCHAR(255),
+    referer     VARCHAR(255),
+    access_time DATETIME(6),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE url_notification (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    short_code VARCHAR(20),
+    type       VARCHAR(50),
+    message    VARCHAR(255),
+    created_at DATETIME(6),
+    status     VARCHAR(20),
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,26 @@
+-- 訪問日誌與通知改為按月 RANGE 分區，並加上 (short_code, 時間) 複合索引
+-- MySQL 要求分區欄位包含在每個唯一鍵中，主鍵改為 (id, 時間)；id 仍由 AUTO_INCREMENT 保證唯一
+-- 先只建立 p_future（MAXVALUE），按月分區由 LogPartitionScheduler 啟動時從 p_future 切出，
+-- 既有資料會落在切出的第一個月分區，隨該分區超過保留期一起刪除
+
+UPDATE url_access_log SET access_time = CURRENT_TIMESTAMP(6) WHERE access_time IS NULL;
+ALTER TABLE url_access_log
+    MODIFY access_time DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, access_time);
+CREATE INDEX idx_access_log_code_time ON url_access_log (short_code, access_time);
+ALTER TABLE url_access_log
+    PARTITION BY RANGE COLUMNS (access_time) (
+        PARTITION p_future VALUES LESS THAN (MAXVALUE)
+    );
+
+UPDATE url_notification SET created_at = CURRENT_TIMESTAMP(6) WHERE created_at IS NULL;
+ALTER TABLE url_notification
+    MODIFY created_at DATETIME(6) NOT NULL,
+    DROP PRIMARY KEY,
+    ADD PRIMARY KEY (id, created_at);
+CREATE INDEX idx_notification_code_time ON url_notification (short_code, created_at);
+ALTER TABLE url_notification
+    PARTITION BY RANGE COLUMNS (created_at) (
+        PARTITION p_future VALUES LESS THAN (MAXVALUE)
+    );
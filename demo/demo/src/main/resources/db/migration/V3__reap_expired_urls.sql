@@ -0,0 +1,16 @@
+-- 過期短網址回收：expire_at 索引讓 ExpiredUrlReaper 按過期時間分塊掃描，
+-- 回收前的資料（含最終點擊數）寫入 short_url_archive
+
+CREATE INDEX idx_short_url_expire_at ON short_url (expire_at);
+
+CREATE TABLE short_url_archive (
+    id           BIGINT        NOT NULL,
+    original_url VARCHAR(2048) NOT NULL,
+    short_code   VARCHAR(20)   NOT NULL,
+    created_at   DATETIME(6)   NOT NULL,
+    expire_at    DATETIME(6),
+    click_count  BIGINT        NOT NULL,
+    archived_at  DATETIME(6)   NOT NULL,
+    PRIMARY KEY (id),
+    KEY idx_short_url_archive_short_code (short_code)
+) ENGINE = InnoDB;
@@ -0,0 +1,7 @@
+-- 相同原始網址去重：url_hash 為正規化後 original_url 的 128 位元雜湊（MD5），
+-- 與 expire_at 組成索引，讓「重用既有短鏈接」模式以定長欄位查找，不需要對 2048 字元的 original_url 建索引
+-- 既有資料不回填（正規化在應用程式中進行），url_hash 為 NULL 的短鏈接不參與重用
+
+ALTER TABLE short_url
+    ADD COLUMN url_hash BINARY(16) NULL,
+    ADD INDEX idx_short_url_url_hash (url_hash, expire_at);
@@ -0,0 +1,18 @@
+-- 號段表（short_code_segment）與點擊彙總表（url_click_rollup）
+-- 以 baseline-on-migrate 標記為第 1 版的資料庫不會執行 V1，這兩張表必須在這裡建立；
+-- 曾以 ddl-auto=update 啟動過新版本的資料庫可能已經有這兩張表，因此使用 IF NOT EXISTS
+
+CREATE TABLE IF NOT EXISTS short_code_segment (
+    biz_tag    VARCHAR(32) NOT NULL,
+    max_id     BIGINT      NOT NULL,
+    updated_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (biz_tag)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS url_click_rollup (
+    short_code   VARCHAR(20) NOT NULL,
+    granularity  VARCHAR(10) NOT NULL,
+    bucket_start DATETIME(6) NOT NULL,
+    clicks       BIGINT      NOT NULL,
+    PRIMARY KEY (short_code, granularity, bucket_start)
+) ENGINE = InnoDB;
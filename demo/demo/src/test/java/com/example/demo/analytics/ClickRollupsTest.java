@@ -0,0 +1,55 @@
+package com.example.demo.analytics;
+
+import com.example.demo.event.AccessEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClickRollupsTest {
+
+    /**
+     * 測試批次內聚合
+     * 驗證：同一短碼同一桶的點擊合併為一筆增量，分鐘、小時、天三個粒度各自累加
+     */
+    @Test
+    void testEventsAreMergedPerBucket() {
+        Map<RollupKey, Long> deltas = ClickRollups.aggregate(List.of(
+                event("abc123", LocalDateTime.of(2025, 1, 1, 12, 0, 5)),
+                event("abc123", LocalDateTime.of(2025, 1, 1, 12, 0, 55)),
+                event("abc123", LocalDateTime.of(2025, 1, 1, 12, 59, 0)),
+                event("xyz789", LocalDateTime.of(2025, 1, 1, 13, 0, 0))));
+
+        assertEquals(2L, deltas.get(new RollupKey("abc123", RollupGranularity.MINUTE, LocalDateTime.of(2025, 1, 1, 12, 0))));
+        assertEquals(1L, deltas.get(new RollupKey("abc123", RollupGranularity.MINUTE, LocalDateTime.of(2025, 1, 1, 12, 59))));
+        assertEquals(3L, deltas.get(new RollupKey("abc123", RollupGranularity.HOUR, LocalDateTime.of(2025, 1, 1, 12, 0))));
+        assertEquals(3L, deltas.get(new RollupKey("abc123", RollupGranularity.DAY, LocalDateTime.of(2025, 1, 1, 0, 0))));
+        assertEquals(1L, deltas.get(new RollupKey("xyz789", RollupGranularity.HOUR, LocalDateTime.of(2025, 1, 1, 13, 0))));
+        assertEquals(7, deltas.size());
+    }
+
+    /**
+     * 測試鍵的順序
+     * 驗證：增量按短碼、粒度、桶起點排序，並發 upsert 時按相同順序鎖定資料列
+     */
+    @Test
+    void testKeysAreSorted() {
+        Map<RollupKey, Long> deltas = ClickRollups.aggregate(List.of(
+                event("zzz999", LocalDateTime.of(2025, 1, 1, 12, 0)),
+                event("aaa111", LocalDateTime.of(2025, 1, 1, 12, 0))));
+
+        List<RollupKey> keys = List.copyOf(deltas.keySet());
+        assertEquals("aaa111", keys.get(0).shortCode());
+        assertEquals(RollupGranularity.MINUTE, keys.get(0).granularity());
+        assertEquals("zzz999", keys.get(keys.size() - 1).shortCode());
+    }
+
+    private static AccessEvent event(String shortCode, LocalDateTime time) {
+        long millis = time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return AccessEvent.of(shortCode, millis, null, null, null);
+    }
+}
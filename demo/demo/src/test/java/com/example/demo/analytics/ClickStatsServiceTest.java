@@ -0,0 +1,89 @@
+package com.example.demo.analytics;
+
+import com.example.demo.entity.Url;
+import com.example.demo.repository.ClickRollupRepository;
+import com.example.demo.repository.UrlRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickStatsServiceTest {
+
+    @Mock
+    private ClickRollupRepository clickRollupRepository;
+
+    @Mock
+    private UrlRepository urlRepository;
+
+    @InjectMocks
+    private ClickStatsService clickStatsService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(clickStatsService, "maxBuckets", 48);
+    }
+
+    /**
+     * 測試補齊空桶
+     * 驗證：起點向下對齊到桶起點，只查詢一次彙總表，沒有點擊的桶補 0，總數為各桶之和
+     */
+    @Test
+    void testMissingBucketsAreZeroFilled() {
+        LocalDateTime from = LocalDateTime.of(2025, 1, 1, 10, 30);
+        LocalDateTime to = LocalDateTime.of(2025, 1, 1, 14, 0);
+        when(urlRepository.findByShortCode("abc123")).thenReturn(Optional.of(new Url()));
+        when(clickRollupRepository.findRange("abc123", RollupGranularity.HOUR, LocalDateTime.of(2025, 1, 1, 10, 0), to))
+                .thenReturn(Map.of(LocalDateTime.of(2025, 1, 1, 11, 0), 7L, LocalDateTime.of(2025, 1, 1, 13, 0), 2L));
+
+        ClickStats stats = clickStatsService.getStats("abc123", RollupGranularity.HOUR, from, to).orElseThrow();
+
+        assertEquals(LocalDateTime.of(2025, 1, 1, 10, 0), stats.from());
+        assertEquals(4, stats.buckets().size());
+        assertEquals(0L, stats.buckets().get(0).clicks());
+        assertEquals(7L, stats.buckets().get(1).clicks());
+        assertEquals(0L, stats.buckets().get(2).clicks());
+        assertEquals(2L, stats.buckets().get(3).clicks());
+        assertEquals(9L, stats.total());
+    }
+
+    /**
+     * 測試範圍限制
+     * 驗證：桶數超過上限或範圍為空時拒絕，不查詢資料庫
+     */
+    @Test
+    void testRejectsInvalidRanges() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> clickStatsService.getStats("abc123", RollupGranularity.MINUTE, now.minusHours(2), now));
+        assertThrows(IllegalArgumentException.class,
+                () -> clickStatsService.getStats("abc123", RollupGranularity.HOUR, now, now));
+        verifyNoInteractions(urlRepository, clickRollupRepository);
+    }
+
+    /**
+     * 測試不存在的短碼
+     * 驗證：返回空結果，不查詢彙總表
+     */
+    @Test
+    void testUnknownShortCode() {
+        LocalDateTime now = LocalDateTime.of(2025, 1, 1, 12, 0);
+        when(urlRepository.findByShortCode("nope00")).thenReturn(Optional.empty());
+
+        assertTrue(clickStatsService.getStats("nope00", RollupGranularity.DAY, now.minusDays(7), now).isEmpty());
+        verify(clickRollupRepository, never()).findRange(any(), any(), any(), any());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.analytics;
+
+import com.example.demo.entity.Url;
+import com.example.demo.repository.UrlRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HyperLogLogOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VisitorStatsServiceTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private UrlRepository urlRepository;
+
+    @InjectMocks
+    private VisitorStatsService visitorStatsService;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(visitorStatsService, "maxDays", 31);
+    }
+
+    /**
+     * 測試多日查詢
+     * 驗證：一次管線同時取得每天的 PFCOUNT 與所有天合併去重的 PFCOUNT，鍵以短碼為 hash tag
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPerDayAndMergedCountsInOnePipeline() {
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        HyperLogLogOperations<String, Object> hll = mock(HyperLogLogOperations.class);
+        when(operations.opsForHyperLogLog()).thenReturn(hll);
+        when(urlRepository.findByShortCode("abc123")).thenReturn(Optional.of(new Url()));
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            ((SessionCallback<Object>) inv.getArgument(0)).execute(operations);
+            return List.of(120L, 80L, 150L, 260L);
+        });
+
+        VisitorStats stats = visitorStatsService.getVisitors("abc123",
+                LocalDate.of(2025, 1, 1), LocalDate.of(2025, 1, 3)).orElseThrow();
+
+        assertEquals(List.of(120L, 80L, 150L), stats.days().stream().map(VisitorStats.Day::visitors).toList());
+        assertEquals(LocalDate.of(2025, 1, 2), stats.days().get(1).date());
+        assertEquals(260L, stats.uniqueVisitors());
+        verify(hll).size("uv:{abc123}:20250101");
+        verify(hll).size("uv:{abc123}:20250101", "uv:{abc123}:20250102", "uv:{abc123}:20250103");
+    }
+
+    /**
+     * 測試日期範圍限制
+     * 驗證：起始晚於結束或超過天數上限時拒絕，不訪問 Redis
+     */
+    @Test
+    void testRejectsInvalidRanges() {
+        LocalDate today = LocalDate.of(2025, 1, 1);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> visitorStatsService.getVisitors("abc123", today, today.minusDays(1)));
+        assertThrows(IllegalArgumentException.class,
+                () -> visitorStatsService.getVisitors("abc123", today.minusDays(31), today));
+        verifyNoInteractions(redisTemplate, urlRepository);
+    }
+}
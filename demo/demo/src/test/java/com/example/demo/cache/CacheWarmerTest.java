@@ -0,0 +1,104 @@
+package com.example.demo.cache;
+
+import com.example.demo.entity.Url;
+import com.example.demo.repository.UrlBatchRepository;
+import com.example.demo.service.UrlService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CacheWarmerTest {
+
+    @Mock
+    private UrlBatchRepository urlBatchRepository;
+
+    @Mock
+    private UrlService urlService;
+
+    @InjectMocks
+    private CacheWarmer cacheWarmer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cacheWarmer, "topN", 100);
+        ReflectionTestUtils.setField(cacheWarmer, "batchSize", 2);
+        ReflectionTestUtils.setField(cacheWarmer, "parallelism", 2);
+        ReflectionTestUtils.setField(cacheWarmer, "timeBudgetMs", 5000L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void streamCodes(int count) {
+        doAnswer(inv -> {
+            Consumer<Url> consumer = inv.getArgument(4);
+            for (int i = 0; i < count; i++) {
+                consumer.accept(new Url("https://example.com/" + i, "code" + i, null));
+            }
+            return null;
+        }).when(urlBatchRepository).streamHottest(any(), eq(100), eq(2), anyInt(), any(Consumer.class));
+    }
+
+    /**
+     * 測試分批預熱
+     * 驗證：5 個熱門短碼按每批 2 個分 3 批並行預載，全部在時間預算內完成
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testWarmUpLoadsHottestCodesInBatches() {
+        streamCodes(5);
+        when(urlService.preload(anyList())).thenReturn(true);
+
+        CacheWarmer.WarmupResult result = cacheWarmer.warmUp();
+
+        assertEquals(5, result.loaded());
+        assertEquals(3, result.batches());
+        assertEquals(0, result.failedBatches());
+        assertTrue(result.completed());
+        verify(urlService, times(3)).preload(anyList());
+        assertEquals(5, cacheWarmer.loadedCount());
+        assertFalse(cacheWarmer.isRunning());
+    }
+
+    /**
+     * 測試 Redis 不可用
+     * 驗證：批次只寫入本地快取時仍計入已預熱，另計為失敗批次
+     */
+    @Test
+    void testRedisFailureCountedPerBatch() {
+        streamCodes(3);
+        when(urlService.preload(anyList())).thenReturn(false);
+
+        CacheWarmer.WarmupResult result = cacheWarmer.warmUp();
+
+        assertEquals(3, result.loaded());
+        assertEquals(2, result.failedBatches());
+        assertEquals(2, cacheWarmer.failedBatches());
+    }
+
+    /**
+     * 測試時間預算
+     * 驗證：預算用完後中止讀取，不再送出批次，結果標記為未完成
+     */
+    @Test
+    void testStopsWhenTimeBudgetExceeded() {
+        ReflectionTestUtils.setField(cacheWarmer, "timeBudgetMs", 0L);
+        streamCodes(10);
+
+        CacheWarmer.WarmupResult result = cacheWarmer.warmUp();
+
+        assertFalse(result.completed());
+        assertEquals(0, result.loaded());
+        verifyNoInteractions(urlService);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HotKeyPinnerTest {
+
+    @Mock
+    private HotKeyDetector hotKeyDetector;
+
+    @Mock
+    private LocalUrlCache localUrlCache;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @InjectMocks
+    private HotKeyPinner pinner;
+
+    /**
+     * 測試熱點篩選
+     * 驗證：保證次數需同時達到視窗總數的比例與絕對下限
+     */
+    @Test
+    void testHotCodesUseGuaranteedCount() {
+        HotKeyDetector.Window window = new HotKeyDetector.Window(List.of(
+                new HotKey("viral", 5000, 0),
+                new HotKey("noisy", 900, 850),
+                new HotKey("warm", 150, 0)), 20000);
+
+        assertEquals(Set.of("viral"), HotKeyPinner.hotCodes(window, 0.01, 100));
+        assertEquals(Set.of("viral", "warm"), HotKeyPinner.hotCodes(window, 0.001, 100));
+    }
+
+    /**
+     * 測試視窗輪換
+     * 驗證：新熱點以 Redis 的映射與剩餘存活時間釘選，不再是熱點的短碼取消釘選，Redis 已沒有映射的熱點也取消釘選
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRefreshPinsHotCodesFromRedis() {
+        ReflectionTestUtils.setField(pinner, "topK", 10);
+        ReflectionTestUtils.setField(pinner, "minShare", 0.01);
+        ReflectionTestUtils.setField(pinner, "minCount", 100L);
+        when(hotKeyDetector.isEnabled()).thenReturn(true);
+        when(hotKeyDetector.rotate(10)).thenReturn(new HotKeyDetector.Window(List.of(new HotKey("viral", 5000, 0)), 6000));
+        when(localUrlCache.pinnedCodes()).thenReturn(Set.of("old"));
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(Arrays.asList("https://example.com/viral", 60_000L));
+
+        pinner.refresh();
+
+        verify(localUrlCache).unpin("old");
+        verify(localUrlCache).pin(eq("viral"), argThat(c -> c.originalUrl().equals("https://example.com/viral")
+                && c.expireAtMillis() > System.currentTimeMillis() + 50_000));
+
+        when(localUrlCache.pinnedCodes()).thenReturn(Set.of("viral"));
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenReturn(Arrays.asList(null, -2L));
+
+        pinner.refresh();
+
+        verify(localUrlCache).unpin("viral");
+    }
+
+    /**
+     * 測試 Redis 不可用
+     * 驗證：新熱點改用本地快取中的映射釘選
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRedisFailureFallsBackToLocalMapping() {
+        ReflectionTestUtils.setField(pinner, "topK", 10);
+        ReflectionTestUtils.setField(pinner, "minCount", 1L);
+        CachedUrl cached = new CachedUrl("https://example.com/viral", CachedUrl.NEVER);
+        when(hotKeyDetector.isEnabled()).thenReturn(true);
+        when(hotKeyDetector.rotate(10)).thenReturn(new HotKeyDetector.Window(List.of(new HotKey("viral", 50, 0)), 60));
+        when(localUrlCache.pinnedCodes()).thenReturn(Set.of());
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenThrow(new IllegalStateException("down"));
+        when(localUrlCache.peek("viral")).thenReturn(cached);
+
+        pinner.refresh();
+
+        verify(localUrlCache).pin("viral", cached);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.demo.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LocalUrlCacheTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private HotKeyDetector hotKeyDetector;
+
+    @InjectMocks
+    private LocalUrlCache localUrlCache;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(localUrlCache, "maxSize", 100L);
+        ReflectionTestUtils.setField(localUrlCache, "ttlSeconds", 60L);
+        localUrlCache.init();
+    }
+
+    /**
+     * 測試快取命中
+     * 驗證：寫入未過期的映射後可以讀回
+     */
+    @Test
+    void testPutAndGet() {
+        localUrlCache.put("abc123", new CachedUrl("https://example.com", CachedUrl.NEVER));
+
+        CachedUrl cached = localUrlCache.get("abc123");
+
+        assertNotNull(cached);
+        assertEquals("https://example.com", cached.originalUrl());
+        assertEquals(1, localUrlCache.stats().hitCount());
+    }
+
+    /**
+     * 測試過期映射
+     * 驗證：已超過 expireAt 的映射不會被返回
+     */
+    @Test
+    void testExpiredMappingIsNotReturned() {
+        localUrlCache.put("abc123", new CachedUrl("https://example.com", System.currentTimeMillis() - 1));
+
+        assertNull(localUrlCache.get("abc123"));
+    }
+
+    /**
+     * 測試跨節點失效
+     * 驗證：失效時本地移除映射，並在一次管線中透過 pub/sub 廣播所有短碼
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testInvalidateBroadcasts() {
+        localUrlCache.put("abc123", new CachedUrl("https://example.com", CachedUrl.NEVER));
+
+        localUrlCache.put("xyz789", new CachedUrl("https://example.org", CachedUrl.NEVER));
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            ((SessionCallback<Object>) inv.getArgument(0)).execute(operations);
+            return List.of();
+        });
+
+        localUrlCache.invalidate(List.of("abc123", "xyz789"));
+
+        assertNull(localUrlCache.get("abc123"));
+        assertNull(localUrlCache.get("xyz789"));
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+        verify(operations).convertAndSend(LocalUrlCache.INVALIDATE_CHANNEL, "abc123");
+        verify(operations).convertAndSend(LocalUrlCache.INVALIDATE_CHANNEL, "xyz789");
+    }
+
+    /**
+     * 測試熱點釘選
+     * 驗證：每次查詢都交給熱點偵測取樣；釘選的映射優先返回並另計命中，失效時連同釘選一起移除，取消釘選後回到一般快取
+     */
+    @Test
+    void testPinnedMappingServedUntilInvalidated() {
+        localUrlCache.pin("abc123", new CachedUrl("https://example.com/hot", CachedUrl.NEVER));
+
+        assertEquals("https://example.com/hot", localUrlCache.get("abc123").originalUrl());
+        assertEquals(1, localUrlCache.pinnedHits());
+        assertEquals(0, localUrlCache.stats().hitCount());
+        verify(hotKeyDetector).offer("abc123");
+
+        localUrlCache.unpin("abc123");
+        assertTrue(localUrlCache.pinnedCodes().isEmpty());
+        assertNotNull(localUrlCache.get("abc123"));
+
+        localUrlCache.pin("abc123", new CachedUrl("https://example.com/hot", CachedUrl.NEVER));
+        localUrlCache.invalidateLocal("abc123");
+        assertNull(localUrlCache.get("abc123"));
+    }
+}
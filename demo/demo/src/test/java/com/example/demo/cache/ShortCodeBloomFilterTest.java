@@ -0,0 +1,109 @@
+package com.example.demo.cache;
+
+import com.example.demo.repository.UrlRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ShortCodeBloomFilterTest {
+
+    @Mock
+    private UrlRepository urlRepository;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Mock
+    private LocalUrlCache localUrlCache;
+
+    @InjectMocks
+    private ShortCodeBloomFilter filter;
+
+    /**
+     * 測試布隆過濾器無漏判且誤判率在設定範圍內
+     * 驗證：
+     * 1. 所有加入的短碼都判定為可能存在
+     * 2. 未加入的短碼誤判率不超過設定值的兩倍
+     */
+    @Test
+    void testNoFalseNegativesAndBoundedFalsePositives() {
+        ShortCodeBloomFilter.Bits bits = new ShortCodeBloomFilter.Bits(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            bits.put("in" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bits.mightContain("in" + i));
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (bits.mightContain("out" + i)) falsePositives++;
+        }
+        assertTrue(falsePositives < 200, "false positives: " + falsePositives);
+    }
+
+    /**
+     * 測試漏收 pub/sub 通知
+     * 驗證：
+     * 1. 其他節點新建短碼的通知遺失時，定期補掃從資料庫補上該短碼
+     * 2. 訂閱中斷期間與重新訂閱後補掃完成前，判定不存在改為放行；補掃完成後恢復直接拒絕
+     */
+    @Test
+    void testDroppedNotificationIsRecoveredByCatchUp() {
+        ReflectionTestUtils.setField(filter, "expectedInsertions", 10_000L);
+        ReflectionTestUtils.setField(filter, "fpp", 0.01);
+        ReflectionTestUtils.setField(filter, "rebuildPageSize", 100);
+        List<Runnable> catchUps = new ArrayList<>();
+        ReflectionTestUtils.setField(filter, "catchUpExecutor", (Executor) catchUps::add);
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, "aaa111"});
+        when(urlRepository.findActiveShortCodesAfter(anyLong(), any(), any())).thenAnswer(invocation -> {
+            long afterId = invocation.getArgument(0);
+            return rows.stream().filter(row -> (Long) row[0] > afterId).toList();
+        });
+        when(listenerContainer.isListening()).thenReturn(true);
+
+        filter.onChannelSubscribed(ShortCodeBloomFilter.CREATED_CHANNEL.getBytes(), 1);
+        filter.rebuild();
+        assertTrue(filter.mightContain("aaa111"));
+        assertFalse(filter.mightContain("bbb222"));
+
+        // 其他節點建立 bbb222，通知遺失（onMessage 沒有被呼叫）
+        rows.add(new Object[]{2L, "bbb222"});
+        filter.catchUp();
+        assertTrue(filter.mightContain("bbb222"));
+        verify(localUrlCache).invalidateLocal("bbb222");
+
+        // 訂閱連線中斷：此時的判定不存在不可信
+        rows.add(new Object[]{3L, "ccc333"});
+        when(listenerContainer.isListening()).thenReturn(false);
+        assertTrue(filter.mightContain("ccc333"));
+
+        // 重新訂閱：補掃完成前仍放行，完成後補上遺失的短碼並恢復拒絕
+        when(listenerContainer.isListening()).thenReturn(true);
+        filter.onChannelSubscribed(ShortCodeBloomFilter.CREATED_CHANNEL.getBytes(), 1);
+        assertTrue(filter.mightContain("zzz999"));
+        catchUps.forEach(Runnable::run);
+        assertTrue(filter.mightContain("ccc333"));
+        assertFalse(filter.mightContain("zzz999"));
+        assertEquals(3, filter.count());
+        assertEquals(2, filter.uncertainCount());
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightLoaderTest {
+
+    private final SingleFlightLoader loader = new SingleFlightLoader();
+
+    @AfterEach
+    void tearDown() {
+        loader.shutdown();
+    }
+
+    /**
+     * 測試背景刷新去重
+     * 驗證：同一個鍵排隊等待期間的重複刷新不再提交，佇列不會被單一熱門鍵塞滿；
+     * 等待中的前景請求直接取得背景刷新的結果，刷新完成後可以再次提交
+     */
+    @Test
+    void testQueuedRefreshIsNotDuplicated() throws Exception {
+        ReflectionTestUtils.setField(loader, "waitMs", 3000L);
+        ReflectionTestUtils.setField(loader, "refreshThreads", 1);
+        ReflectionTestUtils.setField(loader, "refreshQueueSize", 10);
+        loader.init();
+
+        // 佔住唯一的刷新執行緒，讓之後的刷新停在佇列中
+        CountDownLatch release = new CountDownLatch(1);
+        assertTrue(loader.refreshAsync("busy", () -> {
+            await(release);
+            return "busy";
+        }));
+
+        AtomicInteger loads = new AtomicInteger();
+        assertTrue(loader.refreshAsync("hot", () -> "v" + loads.incrementAndGet()));
+        for (int i = 0; i < 100; i++) {
+            assertFalse(loader.refreshAsync("hot", () -> "v" + loads.incrementAndGet()));
+        }
+        assertEquals(2, loader.refreshCount());
+
+        CompletableFuture<String> foreground = CompletableFuture.supplyAsync(() -> loader.load("hot", () -> "foreground"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (loader.coalescedCount() == 0) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+        release.countDown();
+        assertEquals("v1", foreground.get(5, TimeUnit.SECONDS));
+        assertEquals(1, loads.get());
+
+        while (!loader.refreshAsync("hot", () -> "v" + loads.incrementAndGet())) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.demo.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingTest {
+
+    /**
+     * 測試偏斜流量
+     * 驗證：3 個熱門短碼混在 10 萬個只出現一次的短碼中，只用 100 個計數器仍排在前 3，
+     * 估計值不低於真實次數，誤差不超過 總數 / 計數器數
+     */
+    @Test
+    void testFindsHeavyHittersInBoundedMemory() {
+        SpaceSaving summary = new SpaceSaving(100);
+        Random random = new Random(42);
+        int[] hits = new int[3];
+        for (int i = 0; i < 100_000; i++) {
+            summary.offer("cold" + i);
+            int r = random.nextInt(10);
+            if (r < 3) {
+                hits[r]++;
+                summary.offer("hot" + r);
+            }
+        }
+
+        List<HotKey> top = summary.top(3, 1);
+
+        assertEquals(3, top.size());
+        long bound = summary.total() / 100;
+        for (HotKey key : top) {
+            assertTrue(key.shortCode().startsWith("hot"), key.shortCode());
+            int actual = hits[key.shortCode().charAt(3) - '0'];
+            assertTrue(key.count() >= actual);
+            assertTrue(key.guaranteed() <= actual);
+            assertTrue(key.error() <= bound);
+        }
+    }
+
+    /**
+     * 測試計數與放大
+     * 驗證：計數器未滿時計數精確，誤差為0，top 按次數遞減並乘上取樣率
+     */
+    @Test
+    void testExactCountsBeforeCapacityIsReached() {
+        SpaceSaving summary = new SpaceSaving(10);
+        for (int i = 0; i < 5; i++) summary.offer("a");
+        for (int i = 0; i < 2; i++) summary.offer("b");
+        summary.offer("c");
+
+        assertEquals(List.of(new HotKey("a", 80, 0), new HotKey("b", 32, 0)), summary.top(2, 16));
+        assertEquals(8, summary.total());
+    }
+}
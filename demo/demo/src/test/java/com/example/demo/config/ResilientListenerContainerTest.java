@@ -0,0 +1,38 @@
+package com.example.demo.config;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ResilientListenerContainerTest {
+
+    /**
+     * 測試 Redis 不可用時的訂閱重試
+     * 驗證：訂閱失敗不拋出例外而是排程重試；容器停止或銷毀後取消待執行的重試
+     */
+    @Test
+    void testRetryIsCancelledOnShutdown() throws Exception {
+        RedisConnectionFactory factory = mock(RedisConnectionFactory.class);
+        when(factory.getConnection()).thenThrow(new RedisConnectionFailureException("down"));
+        RedisConfig.ResilientListenerContainer container = new RedisConfig.ResilientListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener((message, pattern) -> { }, new ChannelTopic("test"));
+        container.afterPropertiesSet();
+
+        container.start();
+        assertTrue(container.retryPending());
+        assertFalse(container.isRunning());
+
+        container.stop();
+        assertFalse(container.retryPending());
+
+        container.start();
+        assertTrue(container.retryPending());
+        container.destroy();
+        assertFalse(container.retryPending());
+    }
+}
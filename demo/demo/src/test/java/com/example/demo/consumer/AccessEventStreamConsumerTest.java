@@ -0,0 +1,101 @@
+package com.example.demo.consumer;
+
+import com.example.demo.config.RedisConfig;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.event.AccessEventCodec;
+import com.example.demo.metrics.ShortUrlMetrics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccessEventStreamConsumerTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private StreamOperations<String, Object, Object> streamOperations;
+
+    @Mock
+    private AccessLogConsumer accessLogConsumer;
+
+    @Mock
+    private ShortUrlMetrics metrics;
+
+    @InjectMocks
+    private AccessEventStreamConsumer consumer;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(consumer, "batchSize", 500);
+        ReflectionTestUtils.setField(consumer, "claimIdleMs", 60_000L);
+        ReflectionTestUtils.setField(consumer, "consumerName", "");
+        consumer.init();
+    }
+
+    /**
+     * 測試預設消費者名稱
+     * 驗證：未設定時包含 PID 且每次產生的名稱不同，不會有多個節點共用同一個消費者
+     */
+    @Test
+    void testDefaultConsumerNameIsUniquePerProcess() {
+        String name = (String) ReflectionTestUtils.getField(consumer, "consumerName");
+
+        assertTrue(name.contains("-" + ProcessHandle.current().pid() + "-"), name);
+        assertNotEquals(AccessEventStreamConsumer.defaultConsumerName(), AccessEventStreamConsumer.defaultConsumerName());
+    }
+
+    /**
+     * 測試接手中斷節點的事件
+     * 驗證：只接手其他消費者閒置超過 claim-idle-ms 的事件，寫入後確認
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testClaimsIdleEventsFromOtherConsumers() {
+        String self = (String) ReflectionTestUtils.getField(consumer, "consumerName");
+        RecordId idle = RecordId.of("1-0");
+        RecordId fresh = RecordId.of("2-0");
+        RecordId own = RecordId.of("3-0");
+        PendingMessages pending = new PendingMessages(AccessEventStreamConsumer.GROUP, Range.unbounded(), List.of(
+                new PendingMessage(idle, Consumer.from(AccessEventStreamConsumer.GROUP, "dead-node"), Duration.ofMinutes(5), 1),
+                new PendingMessage(fresh, Consumer.from(AccessEventStreamConsumer.GROUP, "live-node"), Duration.ofSeconds(1), 1),
+                new PendingMessage(own, Consumer.from(AccessEventStreamConsumer.GROUP, self), Duration.ofMinutes(5), 1)));
+        String payload = Base64.getEncoder().encodeToString(
+                AccessEventCodec.encode(List.of(AccessEvent.of("abc123", 1L, null, null, null))));
+        MapRecord<String, Object, Object> record = StreamRecords.<String, Object, Object>mapBacked(Map.of("e", payload))
+                .withStreamKey(RedisConfig.ACCESS_STREAM_KEY).withId(idle);
+        when(redisTemplate.opsForStream()).thenReturn((StreamOperations) streamOperations);
+        when(streamOperations.pending(eq(RedisConfig.ACCESS_STREAM_KEY), eq(AccessEventStreamConsumer.GROUP), any(Range.class), eq(500L)))
+                .thenReturn(pending);
+        when(streamOperations.claim(RedisConfig.ACCESS_STREAM_KEY, AccessEventStreamConsumer.GROUP, self,
+                Duration.ofMinutes(1), idle)).thenReturn(List.of(record));
+
+        assertEquals(1, consumer.claimAbandoned());
+
+        verify(accessLogConsumer).receive(argThat(events -> events.size() == 1 && events.get(0).shortCode().equals("abc123")));
+        verify(streamOperations).acknowledge(RedisConfig.ACCESS_STREAM_KEY, AccessEventStreamConsumer.GROUP, idle);
+    }
+}
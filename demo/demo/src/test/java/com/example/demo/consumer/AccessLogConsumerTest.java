@@ -0,0 +1,147 @@
+package com.example.demo.consumer;
+
+import com.example.demo.analytics.RollupKey;
+import com.example.demo.entity.UrlAccessLog;
+import com.example.demo.entity.UrlNotification;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.event.AccessEventMessageConverter;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.repository.AccessLogBatchRepository;
+import com.example.demo.repository.ClickRollupRepository;
+import com.example.demo.repository.UrlAccessLogRepository;
+import com.example.demo.repository.UrlNotificationRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccessLogConsumerTest {
+
+    @Mock
+    private UrlAccessLogRepository logRepository;
+
+    @Mock
+    private UrlNotificationRepository notificationRepository;
+
+    @Mock
+    private AccessLogBatchRepository accessLogBatchRepository;
+
+    @Spy
+    private AccessEventMessageConverter converter = new AccessEventMessageConverter();
+
+    @Mock
+    private ClickRollupRepository clickRollupRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ShortUrlMetrics metrics;
+
+    @InjectMocks
+    private AccessLogConsumer consumer;
+
+    /**
+     * 測試批量消費
+     * 驗證：一批消息只呼叫一次批量寫入，日誌與通知數量一致，並在同一交易中累加每個短碼各粒度的彙總
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBatchIsWrittenOnce() {
+        consumer.receive(List.of(
+                AccessEvent.of("abc123", 1735732800000L, "203.0.113.7", "Mozilla/5.0", "https://example.com/"),
+                AccessEvent.of("xyz789", 1735732801000L, null, null, null)));
+
+        ArgumentCaptor<List<UrlAccessLog>> logs = ArgumentCaptor.forClass(List.class);
+        ArgumentCaptor<List<UrlNotification>> notifications = ArgumentCaptor.forClass(List.class);
+        verify(accessLogBatchRepository).insertAll(logs.capture(), notifications.capture());
+        assertEquals(2, logs.getValue().size());
+        assertEquals(2, notifications.getValue().size());
+        assertEquals("xyz789", logs.getValue().get(1).getShortCode());
+        assertEquals("203.0.113.7", logs.getValue().get(0).getUserIp());
+        assertEquals("Mozilla/5.0", logs.getValue().get(0).getUserAgent());
+        assertEquals("https://example.com/", logs.getValue().get(0).getReferer());
+        verifyNoInteractions(logRepository, notificationRepository);
+        ArgumentCaptor<Map<RollupKey, Long>> rollups = ArgumentCaptor.forClass(Map.class);
+        verify(clickRollupRepository).upsertAll(rollups.capture());
+        assertEquals(6, rollups.getValue().size());
+        verify(transactionManager).commit(any());
+    }
+
+    /**
+     * 測試批量寫入失敗的回退
+     * 驗證：整批失敗時改為逐筆保存，保存成功的事件另外補寫彙總
+     */
+    @Test
+    void testFallsBackToSingleSaves() {
+        doThrow(new RuntimeException("db down")).when(accessLogBatchRepository).insertAll(anyList(), anyList());
+
+        consumer.receive(List.of(
+                AccessEvent.of("abc123", 1735732800000L, null, null, null),
+                AccessEvent.of("xyz789", 1735732801000L, null, null, null)));
+
+        verify(logRepository, times(2)).save(any(UrlAccessLog.class));
+        verify(notificationRepository, times(2)).save(any(UrlNotification.class));
+        verify(clickRollupRepository).upsertAll(anyMap());
+    }
+
+    /**
+     * 測試二進位與舊版消息混合
+     * 驗證：二進位批量消息展開為多筆事件，舊版 JSON 消息照常處理，合併為一次批量寫入
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testBinaryAndLegacyMessagesAreFlattened() {
+        Message binary = converter.toMessage(List.of(
+                AccessEvent.of("abc123", 1735732800000L, null, null, null),
+                AccessEvent.of("def456", 1735732801000L, null, null, null)), new MessageProperties());
+        consumer.onMessages(List.of(
+                binary,
+                new Message("{\"shortCode\":\"xyz789\",\"accessTime\":\"2025-01-01T12:00:02\"}"
+                        .getBytes(StandardCharsets.UTF_8))));
+
+        ArgumentCaptor<List<UrlAccessLog>> logs = ArgumentCaptor.forClass(List.class);
+        verify(accessLogBatchRepository).insertAll(logs.capture(), anyList());
+        assertEquals(List.of("abc123", "def456", "xyz789"),
+                logs.getValue().stream().map(UrlAccessLog::getShortCode).toList());
+    }
+
+    /**
+     * 測試按事件數切分交易
+     * 驗證：超過 max-events-per-transaction 的批次切成多個交易，只有失敗的那一塊改為逐筆保存
+     */
+    @Test
+    void testLargeBatchesAreSplitByEventCount() {
+        ReflectionTestUtils.setField(consumer, "maxEventsPerTransaction", 2);
+        doNothing().doThrow(new RuntimeException("db down")).doNothing()
+                .when(accessLogBatchRepository).insertAll(anyList(), anyList());
+
+        consumer.receive(List.of(
+                AccessEvent.of("a00001", 1735732800000L, null, null, null),
+                AccessEvent.of("a00002", 1735732800000L, null, null, null),
+                AccessEvent.of("a00003", 1735732800000L, null, null, null),
+                AccessEvent.of("a00004", 1735732800000L, null, null, null),
+                AccessEvent.of("a00005", 1735732800000L, null, null, null)));
+
+        verify(accessLogBatchRepository, times(3)).insertAll(anyList(), anyList());
+        verify(logRepository, times(2)).save(any(UrlAccessLog.class));
+        verify(transactionManager, times(2)).commit(any());
+    }
+}
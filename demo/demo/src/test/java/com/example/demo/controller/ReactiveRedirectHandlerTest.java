@@ -0,0 +1,138 @@
+package com.example.demo.controller;
+
+import com.example.demo.cache.CachedUrl;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.cache.ShortCodeBloomFilter;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.service.RedisCircuitBreaker;
+import com.example.demo.service.UrlService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.web.reactive.function.server.RequestPredicates.GET;
+
+@ExtendWith(MockitoExtension.class)
+class ReactiveRedirectHandlerTest {
+
+    @Mock
+    private UrlService urlService;
+
+    @Mock
+    private LocalUrlCache localUrlCache;
+
+    @Mock
+    private ShortCodeBloomFilter shortCodeBloomFilter;
+
+    @Mock
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Mock
+    private ReactiveStringRedisTemplate reactiveRedisTemplate;
+
+    @Mock
+    private ShortUrlMetrics metrics;
+
+    private WebTestClient client;
+
+    @BeforeEach
+    void setUp() {
+        ReactiveRedirectHandler handler = new ReactiveRedirectHandler(urlService, localUrlCache, shortCodeBloomFilter,
+                redisCircuitBreaker, reactiveRedisTemplate, Schedulers.boundedElastic(), metrics);
+        client = WebTestClient.bindToRouterFunction(RouterFunctions.route(GET("/api/url/{shortCode}"), handler::redirect))
+                .build();
+    }
+
+    /**
+     * 測試本地快取命中
+     * 驗證：直接 302 重定向，記錄點擊並攜帶請求上下文，不訪問 Redis
+     */
+    @Test
+    void testLocalHitRedirectsWithoutRedis() {
+        when(localUrlCache.get("abc123")).thenReturn(new CachedUrl("https://example.com", CachedUrl.NEVER));
+
+        client.get().uri("/api/url/abc123")
+                .header("X-Forwarded-For", "203.0.113.7, 10.0.0.1")
+                .header("User-Agent", "Mozilla/5.0")
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().location("https://example.com");
+
+        ArgumentCaptor<AccessEvent> event = ArgumentCaptor.forClass(AccessEvent.class);
+        verify(urlService).recordClick(event.capture());
+        assertEquals("203.0.113.7", event.getValue().userIp());
+        assertEquals("Mozilla/5.0", event.getValue().userAgent());
+        verifyNoInteractions(reactiveRedisTemplate);
+    }
+
+    /**
+     * 測試腳本未命中
+     * 驗證：在 offload 排程器上查詢資料庫，找到時重定向並記錄點擊
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testScriptMissLoadsFromDatabase() {
+        when(shortCodeBloomFilter.mightContain("abc123")).thenReturn(true);
+        when(redisCircuitBreaker.isAvailable()).thenReturn(true);
+        when(reactiveRedisTemplate.execute(any(RedisScript.class), anyList(), anyList())).thenReturn(Flux.empty());
+        when(urlService.loadFromDatabase("abc123")).thenReturn("https://example.com");
+
+        client.get().uri("/api/url/abc123")
+                .header("User-Agent", "Mozilla/5.0")
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().location("https://example.com");
+
+        verify(urlService).recordClick(any(AccessEvent.class));
+    }
+
+    /**
+     * 測試 Redis 不可用與不存在的短碼
+     * 驗證：腳本失敗時記錄到斷路器並走降級流程，查無時返回 404
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRedisFailureFallsBackAndReturnsNotFound() {
+        when(shortCodeBloomFilter.mightContain("zzz999")).thenReturn(true);
+        when(redisCircuitBreaker.isAvailable()).thenReturn(true);
+        when(reactiveRedisTemplate.execute(any(RedisScript.class), anyList(), anyList()))
+                .thenReturn(Flux.error(new RedisConnectionFailureException("down")));
+
+        client.get().uri("/api/url/zzz999")
+                .header("User-Agent", "Mozilla/5.0")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(redisCircuitBreaker).recordFailure(any(Exception.class));
+        verify(urlService).getOriginalUrlFromCache("zzz999");
+        verify(urlService, never()).recordClick(any());
+    }
+
+    /**
+     * 測試缺少 User-Agent
+     * 驗證：與 UrlController 一致返回 400，即使本地快取命中也不重定向、不記錄點擊
+     */
+    @Test
+    void testMissingUserAgentIsRejectedLikeServletPath() {
+        client.get().uri("/api/url/abc123").exchange()
+                .expectStatus().isBadRequest();
+
+        verifyNoInteractions(urlService, localUrlCache, reactiveRedisTemplate, metrics);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.controller;
+
+import com.example.demo.cache.CachedUrl;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.service.UrlService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+/**
+ * 重定向記憶體配置比較
+ * 以同一個本地快取命中的重定向，比較經由 DispatcherServlet → UrlController 與經由 RedirectFastPathFilter
+ * 每個請求在請求執行緒上配置的位元組數（扣除 MockMvc 與模擬請求/響應本身的配置）
+ * 執行：mvn -Pbenchmark test
+ */
+@Tag("benchmark")
+class RedirectAllocationBenchmarkTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int REQUESTS = 200_000;
+    private static final String URL = "https://example.com/landing?utm_source=newsletter";
+
+    private static final Logger log = LoggerFactory.getLogger(RedirectAllocationBenchmarkTest.class);
+
+    /**
+     * 比較兩條路徑
+     * 驗證：兩者都返回相同的 302；快速路徑的每請求配置量低於 MVC 路徑
+     */
+    @Test
+    void compareMvcAndFastPath() throws Exception {
+        UrlService urlService = new CachedUrlService();
+        UrlController controller = new UrlController();
+        ReflectionTestUtils.setField(controller, "urlService", urlService);
+
+        RedirectFastPathFilter filter = new RedirectFastPathFilter();
+        ReflectionTestUtils.setField(filter, "localUrlCache", new FixedLocalUrlCache(new CachedUrl(URL, CachedUrl.NEVER)));
+        ReflectionTestUtils.setField(filter, "urlService", urlService);
+        ReflectionTestUtils.setField(filter, "metrics", new ShortUrlMetrics(new SimpleMeterRegistry()));
+
+        // 基準：請求在第一個過濾器就結束，只剩 MockMvc 與模擬請求/響應本身的配置
+        MockMvc baseline = MockMvcBuilders.standaloneSetup(controller)
+                .addFilters((request, response, chain) -> { }).build();
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(controller).build();
+        MockMvc fastPath = MockMvcBuilders.standaloneSetup(controller).addFilters(filter).build();
+
+        for (MockMvc path : new MockMvc[]{baseline, mvc, fastPath}) {
+            measure(path, WARMUP);
+        }
+        double base = measure(baseline, REQUESTS);
+        double mvcBytes = measure(mvc, REQUESTS) - base;
+        double fastBytes = measure(fastPath, REQUESTS) - base;
+
+        log.info("[benchmark] DispatcherServlet + UrlController: {} bytes/request", String.format("%.0f", mvcBytes));
+        log.info("[benchmark] RedirectFastPathFilter:            {} bytes/request", String.format("%.0f", fastBytes));
+        assertTrue(fastBytes < mvcBytes);
+    }
+
+    /**
+     * 執行指定次數的重定向，返回每個請求在本執行緒上配置的平均位元組數
+     */
+    private static double measure(MockMvc mockMvc, int requests) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        int redirects = 0;
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < requests; i++) {
+            MockHttpServletResponse response = mockMvc.perform(get("/api/url/abc123")
+                    .header("User-Agent", "bench")
+                    .with(request -> {
+                        request.setRemoteAddr("203.0.113.7");
+                        return request;
+                    })).andReturn().getResponse();
+            if (response.getStatus() == HttpServletResponse.SC_FOUND) {
+                redirects++;
+                assertEquals(URL, response.getHeader("Location"));
+            }
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(redirects == 0 || redirects == requests);
+        return (double) allocated / requests;
+    }
+
+    /**
+     * 永遠命中本地快取、點擊記錄不做任何事的服務層
+     */
+    private static final class CachedUrlService extends UrlService {
+        @Override
+        public String resolveAndRecordClick(String shortCode, String userIp, String userAgent, String referer) {
+            recordClick(AccessEvent.of(shortCode, System.currentTimeMillis(), userIp, userAgent, referer));
+            return URL;
+        }
+
+        @Override
+        public void recordClick(AccessEvent event) {
+        }
+    }
+
+    /**
+     * 固定返回同一筆映射的本地快取
+     */
+    private static final class FixedLocalUrlCache extends LocalUrlCache {
+
+        private final CachedUrl cached;
+
+        FixedLocalUrlCache(CachedUrl cached) {
+            this.cached = cached;
+        }
+
+        @Override
+        public CachedUrl get(String shortCode) {
+            return cached;
+        }
+    }
+}
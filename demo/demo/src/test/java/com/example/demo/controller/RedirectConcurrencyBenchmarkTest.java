@@ -0,0 +1,111 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.UrlService;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 重定向並發效能比較
+ * 以 10000 個同時進行的重定向比較平台執行緒池（Tomcat 預設 200 執行緒）與虛擬執行緒
+ * 服務層以固定延遲模擬 Redis / MySQL / AMQP 的阻塞 I/O，測量吞吐量與延遲分位數
+ * 執行：mvn -Pbenchmark test（-Dbenchmark.io-millis 調整模擬的 I/O 延遲，預設 20 毫秒）
+ */
+@Tag("benchmark")
+class RedirectConcurrencyBenchmarkTest {
+
+    private static final int IN_FLIGHT = 10_000;
+    private static final int PLATFORM_THREADS = 200;
+    private static final long BLOCKING_IO_MILLIS = Long.getLong("benchmark.io-millis", 20);
+
+    private static final Logger log = LoggerFactory.getLogger(RedirectConcurrencyBenchmarkTest.class);
+
+    /**
+     * 比較兩種執行模式
+     * 驗證：所有請求都返回 302；虛擬執行緒模式的吞吐量不低於平台執行緒池
+     */
+    @Test
+    void comparePlatformAndVirtualThreads() throws Exception {
+        UrlController controller = new UrlController();
+        ReflectionTestUtils.setField(controller, "urlService", new BlockingUrlService());
+
+        // 預熱
+        run(controller, Executors.newFixedThreadPool(PLATFORM_THREADS), 2_000);
+        run(controller, Executors.newVirtualThreadPerTaskExecutor(), 2_000);
+
+        Result platform = run(controller, Executors.newFixedThreadPool(PLATFORM_THREADS), IN_FLIGHT);
+        Result virtual = run(controller, Executors.newVirtualThreadPerTaskExecutor(), IN_FLIGHT);
+
+        log.info("[benchmark] platform({} threads): {}", PLATFORM_THREADS, platform);
+        log.info("[benchmark] virtual threads:      {}", virtual);
+        assertTrue(virtual.throughput() >= platform.throughput());
+    }
+
+    private static Result run(UrlController controller, ExecutorService executor, int requests) throws Exception {
+        long[] latencies = new long[requests];
+        AtomicInteger redirects = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(requests);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            int index = i;
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/url/abc123");
+                request.setRemoteAddr("203.0.113.7");
+                ResponseEntity<?> response = controller.redirect("abc123", null, "bench", null, request);
+                if (response.getStatusCode() == HttpStatus.FOUND) redirects.incrementAndGet();
+                latencies[index] = System.nanoTime() - submitted;
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.MINUTES));
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        assertEquals(requests, redirects.get());
+
+        Arrays.sort(latencies);
+        return new Result(requests * 1e9 / elapsed,
+                percentile(latencies, 0.50), percentile(latencies, 0.99), percentile(latencies, 0.999));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))] / 1e6;
+    }
+
+    private record Result(double throughput, double p50Millis, double p99Millis, double p999Millis) {
+        @Override
+        public String toString() {
+            return String.format("%.0f req/s, p50=%.1fms p99=%.1fms p999=%.1fms",
+                    throughput, p50Millis, p99Millis, p999Millis);
+        }
+    }
+
+    /**
+     * 以固定延遲模擬阻塞 I/O 的服務層
+     */
+    private static final class BlockingUrlService extends UrlService {
+        @Override
+        public String resolveAndRecordClick(String shortCode, String userIp, String userAgent, String referer) {
+            try {
+                Thread.sleep(BLOCKING_IO_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "https://example.com/" + shortCode;
+        }
+    }
+}
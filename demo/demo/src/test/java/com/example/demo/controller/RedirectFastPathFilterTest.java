@@ -0,0 +1,114 @@
+package com.example.demo.controller;
+
+import com.example.demo.cache.CachedUrl;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.service.UrlService;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RedirectFastPathFilterTest {
+
+    @Mock
+    private LocalUrlCache localUrlCache;
+
+    @Mock
+    private UrlService urlService;
+
+    @Mock
+    private FilterChain chain;
+
+    @Mock
+    private ShortUrlMetrics metrics;
+
+    @InjectMocks
+    private RedirectFastPathFilter filter;
+
+    /**
+     * 測試本地快取命中
+     * 驗證：直接返回 302 與預先編碼的 Location，記錄點擊，不進入 MVC
+     */
+    @Test
+    void testLocalHitWritesRedirectDirectly() throws Exception {
+        when(localUrlCache.get("abc123")).thenReturn(new CachedUrl("https://example.com/路徑?q=1", CachedUrl.NEVER));
+        MockHttpServletRequest request = get("/api/url/abc123");
+        request.addHeader("X-Forwarded-For", "203.0.113.7, 10.0.0.1");
+        request.addHeader("Referer", "https://ref.example");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(302, response.getStatus());
+        assertEquals("https://example.com/%E8%B7%AF%E5%BE%91?q=1", response.getHeader("Location"));
+        verifyNoInteractions(chain);
+        ArgumentCaptor<AccessEvent> event = ArgumentCaptor.forClass(AccessEvent.class);
+        verify(urlService).recordClick(event.capture());
+        assertEquals("abc123", event.getValue().shortCode());
+        assertEquals("203.0.113.7", event.getValue().userIp());
+        assertEquals("https://ref.example", event.getValue().referer());
+    }
+
+    /**
+     * 測試交回 MVC 的情況
+     * 驗證：快取未命中、缺少 User-Agent、URL 無法解析為 URI 時都交給 UrlController，不記錄點擊
+     */
+    @Test
+    void testFallsThroughWhenNotServableFromCache() throws Exception {
+        when(localUrlCache.get("miss01")).thenReturn(null);
+        when(localUrlCache.get("bad001")).thenReturn(new CachedUrl("https://example.com/a b", CachedUrl.NEVER));
+        when(localUrlCache.get("abc123")).thenReturn(new CachedUrl("https://example.com", CachedUrl.NEVER));
+
+        MockHttpServletRequest noUserAgent = get("/api/url/abc123");
+        noUserAgent.removeHeader("User-Agent");
+        for (MockHttpServletRequest request : new MockHttpServletRequest[]{
+                get("/api/url/miss01"), get("/api/url/bad001"), noUserAgent}) {
+            MockHttpServletResponse response = new MockHttpServletResponse();
+            filter.doFilter(request, response, chain);
+            verify(chain).doFilter(request, response);
+        }
+        verify(urlService, never()).recordClick(any());
+    }
+
+    /**
+     * 測試路徑匹配
+     * 驗證：只處理 GET 與單一路徑段；其他方法、子路徑、編碼字元與 context path 前綴依規則處理
+     */
+    @Test
+    void testShortCodeExtraction() throws Exception {
+        assertEquals("abc123", RedirectFastPathFilter.shortCode(get("/api/url/abc123")));
+        assertNull(RedirectFastPathFilter.shortCode(get("/api/url/")));
+        assertNull(RedirectFastPathFilter.shortCode(get("/api/url/shorten/batch")));
+        assertNull(RedirectFastPathFilter.shortCode(get("/api/url/abc%31")));
+        assertNull(RedirectFastPathFilter.shortCode(get("/api/admin/abc123")));
+
+        MockHttpServletRequest withContext = get("/app/api/url/abc123");
+        withContext.setContextPath("/app");
+        assertEquals("abc123", RedirectFastPathFilter.shortCode(withContext));
+
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/api/url/shorten");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(post, response, chain);
+        verify(chain).doFilter(post, response);
+        verifyNoInteractions(localUrlCache);
+    }
+
+    private static MockHttpServletRequest get(String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("User-Agent", "Mozilla/5.0");
+        request.setRemoteAddr("198.51.100.1");
+        return request;
+    }
+}
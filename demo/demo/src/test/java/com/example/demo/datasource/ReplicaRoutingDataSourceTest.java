@@ -0,0 +1,169 @@
+package com.example.demo.datasource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 以兩個（或三個）H2 內嵌資料庫模擬主庫與讀取副本
+ * 同一短碼在各資料庫存放不同的值，從讀到的值判斷查詢落在哪個資料庫
+ */
+class ReplicaRoutingDataSourceTest {
+
+    private DataSource primary;
+    private DataSource replica;
+    private DataSource replica2;
+
+    @BeforeEach
+    void setUp() {
+        primary = database("primary");
+        replica = database("replica");
+        replica2 = database("replica2");
+        new JdbcTemplate(primary).update("INSERT INTO short_url VALUES ('fresh1', 'primary')");
+    }
+
+    /**
+     * 測試讀寫分離
+     * 驗證：唯讀交易讀副本，讀寫交易與交易外的查詢讀主庫
+     */
+    @Test
+    void testReadOnlyTransactionsGoToReplica() {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica));
+        Routed routed = new Routed(routing);
+
+        assertEquals("replica", routed.read(true, "abc123"));
+        assertEquals("primary", routed.read(false, "abc123"));
+        assertEquals("primary", routed.jdbc.queryForObject("SELECT url FROM short_url WHERE code = 'abc123'", String.class));
+        assertEquals(1, routing.replicaConnections());
+        assertEquals(0, routing.primaryReadConnections());
+    }
+
+    /**
+     * 測試指定帳號密碼取得連線
+     * 驗證：以 JDBC 的 SQLFeatureNotSupportedException 拒絕，呼叫端可按 SQLException 處理
+     */
+    @Test
+    void testCredentialsAreNotSupported() {
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica));
+
+        assertThrows(SQLFeatureNotSupportedException.class, () -> routing.getConnection("user", "secret"));
+    }
+
+    /**
+     * 測試負載平衡與健康檢查
+     * 驗證：唯讀連線在副本間輪詢；取不到連線的副本標記為不健康並退出輪詢，全部不可用時改讀主庫
+     */
+    @Test
+    void testRoundRobinSkipsUnhealthyReplicas() {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-0", replica);
+        replicas.put("replica-1", replica2);
+        Routed balanced = new Routed(new ReplicaRoutingDataSource(primary, replicas));
+        assertEquals("replica", balanced.read(true, "abc123"));
+        assertEquals("replica2", balanced.read(true, "abc123"));
+        assertEquals("replica", balanced.read(true, "abc123"));
+
+        replicas.put("replica-1", missingDatabase());
+        ReplicaRoutingDataSource routing = new ReplicaRoutingDataSource(primary, replicas);
+        routing.checkHealth(1);
+        assertEquals(1, routing.healthyReplicas());
+        Routed routed = new Routed(routing);
+        for (int i = 0; i < 4; i++) {
+            assertEquals("replica", routed.read(true, "abc123"));
+        }
+
+        ReplicaRoutingDataSource allDown = new ReplicaRoutingDataSource(primary, Map.of("replica-0", missingDatabase()));
+        assertEquals("primary", new Routed(allDown).read(true, "abc123"));
+        assertEquals(0, allDown.healthyReplicas());
+        assertEquals(1, allDown.primaryReadConnections());
+    }
+
+    /**
+     * 測試複寫延遲的處理
+     * 驗證：副本上還沒有的短碼改到主庫再查一次；read-your-writes 期間內剛寫入的短碼直接讀主庫；指定主庫時不使用副本
+     */
+    @Test
+    void testReadRoutingHidesReplicationLag() {
+        ReadRouting readRouting = new ReadRouting();
+        ReflectionTestUtils.setField(readRouting, "enabled", true);
+        ReflectionTestUtils.setField(readRouting, "readYourWritesMs", 60_000L);
+        ReflectionTestUtils.setField(readRouting, "missFallback", true);
+        readRouting.init();
+        Routed routed = new Routed(new ReplicaRoutingDataSource(primary, Map.of("replica-0", replica)));
+
+        assertEquals(Optional.of("primary"), readRouting.read("fresh1", () -> routed.find("fresh1")));
+        assertEquals(1, readRouting.primaryRetries());
+
+        assertEquals(Optional.of("replica"), readRouting.read("abc123", () -> routed.find("abc123")));
+        readRouting.recordWrite("abc123");
+        assertEquals(Optional.of("primary"), readRouting.read("abc123", () -> routed.find("abc123")));
+        assertEquals(1, readRouting.primaryRetries());
+
+        assertEquals("primary", ReadRouting.onPrimary(() -> routed.read(true, "abc123")));
+        assertFalse(ReadRouting.isPrimaryForced());
+    }
+
+    private static DataSource database(String name) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("DROP TABLE IF EXISTS short_url");
+        jdbc.execute("CREATE TABLE short_url (code VARCHAR(20) PRIMARY KEY, url VARCHAR(100))");
+        jdbc.update("INSERT INTO short_url VALUES ('abc123', ?)", name);
+        return dataSource;
+    }
+
+    private static DataSource missingDatabase() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:missing;IFEXISTS=TRUE");
+        return dataSource;
+    }
+
+    /**
+     * 應用程式看到的資料來源：LazyConnectionDataSourceProxy 包住路由
+     */
+    private static final class Routed {
+        private final JdbcTemplate jdbc;
+        private final DataSourceTransactionManager transactionManager;
+
+        Routed(ReplicaRoutingDataSource routing) {
+            DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.transactionManager = new DataSourceTransactionManager(dataSource);
+        }
+
+        String read(boolean readOnly, String code) {
+            return find(readOnly, code).orElse(null);
+        }
+
+        Optional<String> find(String code) {
+            return find(true, code);
+        }
+
+        private Optional<String> find(boolean readOnly, String code) {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setReadOnly(readOnly);
+            return tx.execute(status -> {
+                try {
+                    return Optional.of(jdbc.queryForObject("SELECT url FROM short_url WHERE code = ?", String.class, code));
+                } catch (EmptyResultDataAccessException e) {
+                    return Optional.empty();
+                }
+            });
+        }
+    }
+}
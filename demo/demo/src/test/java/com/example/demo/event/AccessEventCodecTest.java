@@ -0,0 +1,71 @@
+package com.example.demo.event;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccessEventCodecTest {
+
+    /**
+     * 測試編碼與解碼
+     * 驗證：所有欄位（含null與多位元組字元）往返一致
+     */
+    @Test
+    void testRoundTrip() {
+        List<AccessEvent> events = List.of(
+                AccessEvent.of("abc123", 1735732800123L, "203.0.113.7", "Mozilla/5.0 (測試)", "https://example.com/頁面"),
+                AccessEvent.of("xyz789", 0L, null, null, null));
+
+        assertEquals(events, AccessEventCodec.decode(AccessEventCodec.encode(events)));
+    }
+
+    /**
+     * 測試欄位截斷與客戶端IP
+     * 驗證：超長欄位截斷到資料表欄位長度，X-Forwarded-For 取第一個位址
+     */
+    @Test
+    void testTruncationAndClientIp() {
+        char[] longUa = new char[1000];
+        Arrays.fill(longUa, 'a');
+        AccessEvent event = AccessEvent.of("abc123", 0L, null, new String(longUa), null);
+
+        assertEquals(AccessEvent.USER_AGENT_LENGTH, event.userAgent().length());
+        assertEquals("203.0.113.7", AccessEvent.clientIp("203.0.113.7, 10.0.0.1", "10.0.0.2"));
+        assertEquals("10.0.0.2", AccessEvent.clientIp(null, "10.0.0.2"));
+    }
+
+    /**
+     * 測試舊版 JSON 消息
+     * 驗證：升級前的 JSON 消息仍可解碼，字串時間正確轉換
+     */
+    @Test
+    void testLegacyJsonMessage() {
+        Message legacy = new Message("{\"shortCode\":\"abc123\",\"accessTime\":\"2025-01-01T12:00:00\"}"
+                .getBytes(StandardCharsets.UTF_8), new MessageProperties());
+
+        List<AccessEvent> events = new AccessEventMessageConverter().fromMessage(legacy);
+
+        assertEquals(1, events.size());
+        assertEquals("abc123", events.get(0).shortCode());
+        assertEquals(LocalDateTime.of(2025, 1, 1, 12, 0), events.get(0).accessTime());
+    }
+
+    /**
+     * 測試不完整的內容
+     * 驗證：截斷的二進位內容拋出IllegalArgumentException而非讀取越界
+     */
+    @Test
+    void testTruncatedInputIsRejected() {
+        byte[] encoded = AccessEventCodec.encode(List.of(AccessEvent.of("abc123", 1L, "ip", "ua", "ref")));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> AccessEventCodec.decode(Arrays.copyOf(encoded, encoded.length - 2)));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShortUrlMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private ShortUrlMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new ShortUrlMetrics(registry);
+    }
+
+    /**
+     * 測試重定向計時器
+     * 驗證：每個快取層級各有一個計時器，記錄只計入對應層級
+     */
+    @Test
+    void testRedirectTimerSplitByTier() {
+        metrics.recordRedirect(CacheTier.LOCAL, TimeUnit.MICROSECONDS.toNanos(5));
+        metrics.recordRedirect(CacheTier.LOCAL, TimeUnit.MICROSECONDS.toNanos(7));
+        metrics.recordRedirect(CacheTier.DATABASE, TimeUnit.MILLISECONDS.toNanos(3));
+
+        assertEquals(CacheTier.values().length, registry.find("shorturl.redirect").timers().size());
+        assertEquals(2, registry.get("shorturl.redirect").tag("tier", "local").timer().count());
+        assertEquals(1, registry.get("shorturl.redirect").tag("tier", "database").timer().count());
+        assertEquals(0, registry.get("shorturl.redirect").tag("tier", "redis").timer().count());
+    }
+
+    /**
+     * 測試降級計數器
+     * 驗證：依依賴、操作與例外類型分別計數
+     */
+    @Test
+    void testFallbackCounterTaggedByException() {
+        metrics.fallback("redis", "get", new IllegalStateException("down"));
+        metrics.fallback("redis", "get", new IllegalStateException("down"));
+
+        assertEquals(2, registry.get("shorturl.fallbacks")
+                .tags("component", "redis", "operation", "get", "exception", "IllegalStateException")
+                .counter().count());
+    }
+
+    /**
+     * 測試消費與同步指標
+     * 驗證：批次大小、消費延遲與同步的短碼數、點擊數都有記錄
+     */
+    @Test
+    void testConsumerAndSyncMetrics() {
+        metrics.recordConsumerBatch("amqp", 3, System.currentTimeMillis() - 1000);
+        metrics.recordSync(4, 10, 1, 25);
+
+        assertEquals(3, registry.get("shorturl.consumer.batch.size").tag("consumer", "amqp").summary().totalAmount());
+        assertTrue(registry.get("shorturl.consumer.lag").tag("consumer", "amqp").timer()
+                .totalTime(TimeUnit.MILLISECONDS) >= 1000);
+        assertEquals(4, registry.get("shorturl.click.sync.keys").counter().count());
+        assertEquals(10, registry.get("shorturl.click.sync.clicks").counter().count());
+        assertEquals(25, registry.get("shorturl.click.sync").timer().totalTime(TimeUnit.MILLISECONDS));
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.demo.publisher;
+
+import com.example.demo.event.AccessEvent;
+import com.example.demo.metrics.ShortUrlMetrics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AccessEventPublisherTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private ConnectionFactory connectionFactory;
+
+    @Mock
+    private ShortUrlMetrics metrics;
+
+    @InjectMocks
+    private AccessEventPublisher publisher;
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        publisher.shutdown();
+    }
+
+    private void start(OverflowPolicy policy, int capacity) {
+        ReflectionTestUtils.setField(publisher, "capacity", capacity);
+        ReflectionTestUtils.setField(publisher, "batchSize", 100);
+        ReflectionTestUtils.setField(publisher, "lingerMs", 5L);
+        ReflectionTestUtils.setField(publisher, "overflowPolicy", policy);
+        ReflectionTestUtils.setField(publisher, "blockTimeoutMs", 1L);
+        ReflectionTestUtils.setField(publisher, "confirmTimeoutMs", 1000L);
+        ReflectionTestUtils.setField(publisher, "spillPath", tempDir.resolve("spill.log").toString());
+        publisher.start();
+    }
+
+    /**
+     * 測試批量發布
+     * 驗證：多個事件被打包成少量 AMQP 消息發送，全部計入已發布
+     */
+    @Test
+    void testEventsArePublishedInBatches() throws Exception {
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        start(OverflowPolicy.DROP, 1024);
+
+        for (int i = 0; i < 250; i++) {
+            publisher.publish(AccessEvent.of("abc123", System.currentTimeMillis(), null, null, null));
+        }
+        waitFor(() -> publisher.publishedCount() == 250);
+
+        verify(rabbitTemplate, atMost(10)).convertAndSend(anyString(), anyString(), any(List.class), any(CorrelationData.class));
+        assertEquals(0, publisher.droppedCount());
+    }
+
+    /**
+     * 測試 broker 不可用時的丟棄策略
+     * 驗證：發布執行緒退避重試期間緩衝區填滿，之後的事件被丟棄並計數，請求執行緒不阻塞
+     */
+    @Test
+    void testDropWhenBufferIsFull() throws Exception {
+        doThrow(new AmqpConnectException(new RuntimeException("down")))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+        start(OverflowPolicy.DROP, 16);
+
+        for (int i = 0; i < 200; i++) {
+            publisher.publish(AccessEvent.of("abc123", System.currentTimeMillis(), null, null, null));
+        }
+
+        assertTrue(publisher.droppedCount() >= 200 - 16 - 100);
+        assertEquals(0, publisher.publishedCount());
+    }
+
+    /**
+     * 測試溢出檔策略
+     * 驗證：發送失敗的批次寫入溢出檔，broker 恢復後重新發布
+     */
+    @Test
+    void testSpillAndReplay() throws Exception {
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        doThrow(new AmqpConnectException(new RuntimeException("down")))
+                .doNothing()
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+        start(OverflowPolicy.SPILL, 1024);
+
+        publisher.publish(AccessEvent.of("abc123", System.currentTimeMillis(), null, null, null));
+        waitFor(() -> publisher.spilledCount() == 1);
+        publisher.publish(AccessEvent.of("xyz789", System.currentTimeMillis(), null, null, null));
+        waitFor(() -> publisher.publishedCount() == 2);
+
+        assertEquals(0, publisher.droppedCount());
+    }
+
+    /**
+     * 測試溢出檔策略下緩衝區滿載
+     * 驗證：溢出的事件由發布執行緒寫入溢出檔，不丟棄，broker 恢復後全部重新發布
+     */
+    @Test
+    void testOverflowIsSpilledByPublisherThread() throws Exception {
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        doThrow(new AmqpConnectException(new RuntimeException("down")))
+                .when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+        start(OverflowPolicy.SPILL, 16);
+
+        for (int i = 0; i < 30; i++) {
+            publisher.publish(AccessEvent.of("abc123", System.currentTimeMillis(), null, null, null));
+        }
+        waitFor(() -> publisher.spilledCount() == 30);
+        assertEquals(0, publisher.droppedCount());
+
+        doNothing().when(rabbitTemplate).convertAndSend(anyString(), anyString(), any(Object.class), any(CorrelationData.class));
+        publisher.publish(AccessEvent.of("xyz789", System.currentTimeMillis(), null, null, null));
+        waitFor(() -> publisher.publishedCount() == 31);
+    }
+
+    /**
+     * 測試崩潰後殘留的重放檔
+     * 驗證：上次讀取途中留下的 .replay 檔先取回，不被新的溢出檔覆蓋
+     */
+    @Test
+    void testLeftoverReplayFileIsNotOverwritten() throws Exception {
+        Path path = tempDir.resolve("spill.log");
+        SpillFile spillFile = new SpillFile(path);
+        spillFile.append(List.of(AccessEvent.of("crash1", 1L, null, null, null)));
+        Files.move(path, tempDir.resolve("spill.log.replay"));
+        spillFile.append(List.of(AccessEvent.of("newer1", 2L, null, null, null)));
+
+        assertTrue(spillFile.hasData());
+        assertEquals("crash1", drainReplay(spillFile).get(0));
+        assertEquals("newer1", drainReplay(spillFile).get(0));
+        assertFalse(spillFile.hasData());
+    }
+
+    /**
+     * 測試溢出檔中的損壞行
+     * 驗證：崩潰時寫到一半的行被略過並計數，之後的行照常讀回，讀完後刪除 .replay 檔
+     */
+    @Test
+    void testCorruptSpillLineIsSkipped() throws Exception {
+        Path path = tempDir.resolve("spill.log");
+        SpillFile spillFile = new SpillFile(path);
+        spillFile.append(List.of(AccessEvent.of("before", 1L, null, null, null)));
+        Files.writeString(path, "AQAAAAEAAAA\n", StandardOpenOption.APPEND);
+        spillFile.append(List.of(AccessEvent.of("after1", 2L, null, null, null)));
+
+        SpillFile.Replay replay = spillFile.openReplay();
+        assertEquals("before", replay.next().get(0).shortCode());
+        assertEquals("after1", replay.next().get(0).shortCode());
+        assertNull(replay.next());
+        assertEquals(1, replay.corruptLines());
+        replay.finish();
+        assertFalse(spillFile.hasData());
+    }
+
+    /**
+     * 測試損壞的溢出檔不阻擋重放
+     * 驗證：重放略過損壞行並計入丟棄，其餘批次重新發布，.replay 檔被刪除
+     */
+    @Test
+    void testCorruptSpillDoesNotBlockReplay() throws Exception {
+        when(rabbitTemplate.getConnectionFactory()).thenReturn(connectionFactory);
+        Path path = tempDir.resolve("spill.log");
+        Files.writeString(path, "not-base64!\n");
+        new SpillFile(path).append(List.of(AccessEvent.of("spill1", 1L, null, null, null)));
+        start(OverflowPolicy.SPILL, 1024);
+
+        publisher.publish(AccessEvent.of("abc123", System.currentTimeMillis(), null, null, null));
+        waitFor(() -> publisher.publishedCount() == 2);
+
+        assertEquals(1, publisher.droppedCount());
+        waitFor(() -> !Files.exists(tempDir.resolve("spill.log.replay")));
+    }
+
+    private static List<String> drainReplay(SpillFile spillFile) throws Exception {
+        List<String> codes = new ArrayList<>();
+        SpillFile.Replay replay = spillFile.openReplay();
+        for (List<AccessEvent> batch = replay.next(); batch != null; batch = replay.next()) {
+            batch.forEach(event -> codes.add(event.shortCode()));
+        }
+        replay.finish();
+        return codes;
+    }
+
+    /**
+     * 測試反應式模式下的 BLOCK 策略
+     * 驗證：啟動時拒絕，避免停住事件迴圈
+     */
+    @Test
+    void testBlockIsRejectedInReactiveMode() {
+        ReflectionTestUtils.setField(publisher, "applicationContext", mock(ReactiveWebApplicationContext.class));
+        assertThrows(IllegalStateException.class, () -> start(OverflowPolicy.BLOCK, 16));
+    }
+
+    private static void waitFor(java.util.function.BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.demo.publisher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MpscRingBufferTest {
+
+    /**
+     * 測試容量上限
+     * 驗證：容量向上取整為 2 的冪，滿載後 offer 返回false，取出後可再放入
+     */
+    @Test
+    void testBoundedCapacity() {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(3);
+        assertEquals(4, buffer.capacity());
+        for (int i = 0; i < 4; i++) assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(4));
+
+        List<Integer> sink = new ArrayList<>();
+        assertEquals(2, buffer.drainTo(sink, 2));
+        assertEquals(List.of(0, 1), sink);
+        assertTrue(buffer.offer(4));
+        assertEquals(3, buffer.size());
+    }
+
+    /**
+     * 測試多生產者並發
+     * 驗證：所有放入成功的元素都被取出且不重複
+     */
+    @Test
+    void testConcurrentProducers() throws Exception {
+        MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 50000;
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            pool.execute(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) Thread.onSpinWait();
+                    accepted.incrementAndGet();
+                }
+                done.countDown();
+            });
+        }
+
+        Set<Integer> seen = new HashSet<>();
+        List<Integer> sink = new ArrayList<>();
+        while (!done.await(0, TimeUnit.MILLISECONDS) || buffer.size() > 0) {
+            sink.clear();
+            buffer.drainTo(sink, 256);
+            for (Integer value : sink) assertTrue(seen.add(value), "duplicate " + value);
+        }
+        pool.shutdown();
+
+        assertEquals(producers * perProducer, accepted.get());
+        assertEquals(producers * perProducer, seen.size());
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.demo.scheduler;
+
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.repository.UrlBatchRepository;
+import com.example.demo.service.DistributedLockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static com.example.demo.config.RedisConfig.CLICK_DRAINING_KEY;
+import static com.example.demo.config.RedisConfig.CLICK_PENDING_KEY;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClickCountSyncSchedulerTest {
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @Mock
+    private UrlBatchRepository urlBatchRepository;
+
+    @Mock
+    private DistributedLockService lockService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ShortUrlMetrics metrics;
+
+    @InjectMocks
+    private ClickCountSyncScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "chunkSize", 2);
+    }
+
+    /**
+     * 測試分塊同步
+     * 驗證：3 個短碼按每塊 2 個分兩次批量 UPDATE，每塊提交後 HDEL，最後刪除 click:draining，並記錄同步指標
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testDrainAppliesDeltasInChunks() {
+        Cursor<Map.Entry<Object, Object>> cursor = cursorOf(
+                Map.entry("abc123", "3"), Map.entry("xyz789", 2L), Map.entry("def456", "5"));
+        when(lockService.tryLock(anyString(), any())).thenReturn("token");
+        when(lockService.renew(anyString(), eq("token"), any())).thenReturn(true);
+        when(redisTemplate.hasKey(CLICK_DRAINING_KEY)).thenReturn(false);
+        when(redisTemplate.renameIfAbsent(CLICK_PENDING_KEY, CLICK_DRAINING_KEY)).thenReturn(true);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.scan(eq(CLICK_DRAINING_KEY), any(ScanOptions.class))).thenReturn(cursor);
+        when(urlBatchRepository.addClickCounts(anyMap())).thenAnswer(inv -> ((Map<?, ?>) inv.getArgument(0)).size());
+
+        ClickCountSyncScheduler.SyncResult result = scheduler.drainNow();
+
+        ArgumentCaptor<Map<String, Long>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(urlBatchRepository, times(2)).addClickCounts(deltas.capture());
+        assertEquals(Map.of("abc123", 3L, "xyz789", 2L), deltas.getAllValues().get(0));
+        assertEquals(Map.of("def456", 5L), deltas.getAllValues().get(1));
+        verify(hashOperations, times(2)).delete(eq(CLICK_DRAINING_KEY), any(Object[].class));
+        verify(redisTemplate).delete(CLICK_DRAINING_KEY);
+        verify(lockService).unlock(anyString(), eq("token"));
+        assertEquals(3, result.keys());
+        assertEquals(10, result.clicks());
+        assertEquals(0, result.unknownKeys());
+        verify(metrics).recordSync(eq(3L), eq(10L), eq(0L), anyLong());
+    }
+
+    /**
+     * 測試多實例互斥
+     * 驗證：未取得分散式鎖時不讀取 Redis 也不寫資料庫
+     */
+    @Test
+    void testSkipsWhenLockHeldElsewhere() {
+        when(lockService.tryLock(anyString(), any())).thenReturn(null);
+
+        assertNull(scheduler.drainNow());
+
+        verifyNoInteractions(redisTemplate, urlBatchRepository);
+    }
+
+    /**
+     * 測試沒有待同步的點擊
+     * 驗證：返回各項為0的結果（與未取得鎖的null區分），不寫資料庫
+     */
+    @Test
+    void testNothingPendingReturnsEmptyResult() {
+        when(lockService.tryLock(anyString(), any())).thenReturn("token");
+        when(redisTemplate.hasKey(CLICK_DRAINING_KEY)).thenReturn(false);
+        when(redisTemplate.renameIfAbsent(CLICK_PENDING_KEY, CLICK_DRAINING_KEY)).thenThrow(new IllegalStateException("no such key"));
+
+        ClickCountSyncScheduler.SyncResult result = scheduler.drainNow();
+
+        assertNotNull(result);
+        assertEquals(0, result.keys());
+        verifyNoInteractions(urlBatchRepository);
+    }
+
+        /**
+     * 測試同步期間失去鎖
+     * 驗證：續約失敗（租約已過期）時中止，不再寫入之後的塊，也不刪除 click:draining，剩下的增量留給持有鎖的實例
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testAbortsWhenLockIsLost() {
+        Cursor<Map.Entry<Object, Object>> cursor = cursorOf(
+                Map.entry("abc123", "3"), Map.entry("xyz789", 2L), Map.entry("def456", "5"));
+        when(lockService.tryLock(anyString(), any())).thenReturn("token");
+        when(lockService.renew(anyString(), eq("token"), any())).thenReturn(true, false);
+        when(redisTemplate.hasKey(CLICK_DRAINING_KEY)).thenReturn(true);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.scan(eq(CLICK_DRAINING_KEY), any(ScanOptions.class))).thenReturn(cursor);
+        when(urlBatchRepository.addClickCounts(anyMap())).thenAnswer(inv -> ((Map<?, ?>) inv.getArgument(0)).size());
+
+        assertNull(scheduler.drainNow());
+
+        verify(urlBatchRepository, times(1)).addClickCounts(anyMap());
+        verify(redisTemplate, never()).delete(CLICK_DRAINING_KEY);
+        verify(lockService).unlock(anyString(), eq("token"));
+    }
+
+    /**
+     * 測試單一塊寫入期間失去鎖
+     * 驗證：寫入前續約成功、寫入後提交前續約失敗時該塊回滾，不 HDEL 也不刪除 click:draining，交易設有低於租約的逾時
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testRollsBackChunkWhenLeaseExpiresDuringWrite() {
+        Cursor<Map.Entry<Object, Object>> cursor = cursorOf(Map.entry("abc123", "3"), Map.entry("xyz789", 2L));
+        when(lockService.tryLock(anyString(), any())).thenReturn("token");
+        when(lockService.renew(anyString(), eq("token"), any())).thenReturn(true, false);
+        when(redisTemplate.hasKey(CLICK_DRAINING_KEY)).thenReturn(true);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        when(hashOperations.scan(eq(CLICK_DRAINING_KEY), any(ScanOptions.class))).thenReturn(cursor);
+        when(urlBatchRepository.addClickCounts(anyMap())).thenReturn(2);
+
+        assertNull(scheduler.drainNow());
+
+        ArgumentCaptor<TransactionDefinition> definition = ArgumentCaptor.forClass(TransactionDefinition.class);
+        verify(transactionManager).getTransaction(definition.capture());
+        assertTrue(definition.getValue().getTimeout() > 0 && definition.getValue().getTimeout() < 60);
+        verify(transactionManager).rollback(any());
+        verify(transactionManager, never()).commit(any());
+        verify(hashOperations, never()).delete(eq(CLICK_DRAINING_KEY), any(Object[].class));
+        verify(redisTemplate, never()).delete(CLICK_DRAINING_KEY);
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("unchecked")
+    private static Cursor<Map.Entry<Object, Object>> cursorOf(Map.Entry<Object, Object>... entries) {
+        Iterator<Map.Entry<Object, Object>> iterator = List.of(entries).iterator();
+        Cursor<Map.Entry<Object, Object>> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(inv -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(inv -> iterator.next());
+        return cursor;
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.demo.scheduler;
+
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.repository.UrlBatchRepository;
+import com.example.demo.repository.UrlBatchRepository.ExpiredUrl;
+import com.example.demo.service.ClickAggregator;
+import com.example.demo.service.DistributedLockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+
+import static com.example.demo.config.RedisConfig.CLICK_PENDING_KEY;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ExpiredUrlReaperTest {
+
+    @Mock
+    private UrlBatchRepository urlBatchRepository;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private LocalUrlCache localUrlCache;
+
+    @Mock
+    private ClickAggregator clickAggregator;
+
+    @Mock
+    private ClickCountSyncScheduler clickCountSyncScheduler;
+
+    @Mock
+    private DistributedLockService lockService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @InjectMocks
+    private ExpiredUrlReaper reaper;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(reaper, "chunkSize", 2);
+        ReflectionTestUtils.setField(reaper, "maxChunks", 2);
+        ReflectionTestUtils.setField(reaper, "pauseMs", 0L);
+        ReflectionTestUtils.setField(reaper, "archive", true);
+    }
+
+    /**
+     * 測試分塊回收
+     * 驗證：先刷新待同步的點擊，再逐塊歸檔並刪除，提交後以管線清除 Redis 快取與點擊計數，之後由 LocalUrlCache 失效並廣播；
+     * 達到每輪塊數上限後停止，留給下一輪
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testReapsInBoundedChunksAfterFlushingClicks() {
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(operations.opsForHash()).thenReturn(hashOperations);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            ((SessionCallback<Object>) inv.getArgument(0)).execute(operations);
+            return List.of();
+        });
+        when(lockService.tryLock(eq(ExpiredUrlReaper.REAPER_LOCK_KEY), any())).thenReturn("token");
+        when(urlBatchRepository.findExpired(any(), eq(2))).thenReturn(
+                List.of(new ExpiredUrl(1, "abc123"), new ExpiredUrl(2, "xyz789")),
+                List.of(new ExpiredUrl(3, "def456"), new ExpiredUrl(4, "ghi000")));
+        when(urlBatchRepository.deleteAll(anyList())).thenReturn(2);
+        when(clickCountSyncScheduler.drainNow()).thenReturn(new ClickCountSyncScheduler.SyncResult(0, 0, 0, 0));
+
+        assertEquals(4, reaper.reapNow());
+
+        InOrder order = inOrder(clickAggregator, clickCountSyncScheduler, urlBatchRepository);
+        order.verify(clickAggregator).flush();
+        order.verify(clickCountSyncScheduler).drainNow();
+        order.verify(urlBatchRepository).archive(eq(List.of(1L, 2L)), any());
+        order.verify(urlBatchRepository).deleteAll(List.of(1L, 2L));
+        order.verify(urlBatchRepository).archive(eq(List.of(3L, 4L)), any());
+        order.verify(urlBatchRepository).deleteAll(List.of(3L, 4L));
+        verify(urlBatchRepository, times(2)).findExpired(any(), eq(2));
+        verify(operations).delete("shorturl:abc123");
+        verify(operations).delete("click:abc123");
+        verify(hashOperations).delete(CLICK_PENDING_KEY, "abc123", "xyz789");
+        InOrder eviction = inOrder(redisTemplate, localUrlCache);
+        eviction.verify(redisTemplate).executePipelined(any(SessionCallback.class));
+        eviction.verify(localUrlCache).invalidate(List.of("abc123", "xyz789"));
+        verify(localUrlCache).invalidate(List.of("def456", "ghi000"));
+        verify(transactionManager, times(2)).commit(any());
+        verify(lockService).unlock(ExpiredUrlReaper.REAPER_LOCK_KEY, "token");
+        assertEquals(4, reaper.reapedCount());
+    }
+
+    /**
+     * 測試點擊同步未完成
+     * 驗證：同步鎖被定時同步持有（drainNow 返回null）時不刪除資料列也不清除 click:pending，避免丟失點擊
+     */
+    @Test
+    void testSkipsReapWhenClickSyncDidNotRun() {
+        when(lockService.tryLock(anyString(), any())).thenReturn("token");
+        when(urlBatchRepository.findExpired(any(), anyInt())).thenReturn(List.of(new ExpiredUrl(1, "abc123")));
+        when(clickCountSyncScheduler.drainNow()).thenReturn(null);
+
+        assertEquals(0, reaper.reapNow());
+
+        verify(clickAggregator).flush();
+        verify(urlBatchRepository, never()).deleteAll(anyList());
+        verify(urlBatchRepository, never()).archive(anyList(), any());
+        verifyNoInteractions(transactionManager, redisTemplate, localUrlCache);
+        verify(lockService).unlock(anyString(), eq("token"));
+    }
+
+    /**
+     * 測試沒有過期短網址
+     * 驗證：不刷新點擊、不開交易、不訪問 Redis
+     */
+    @Test
+    void testNothingExpired() {
+        when(lockService.tryLock(anyString(), any())).thenReturn("token");
+        when(urlBatchRepository.findExpired(any(), anyInt())).thenReturn(List.of());
+
+        assertEquals(0, reaper.reapNow());
+
+        verifyNoInteractions(clickAggregator, clickCountSyncScheduler, transactionManager, redisTemplate);
+        verify(lockService).unlock(anyString(), eq("token"));
+    }
+
+    /**
+     * 測試 Redis 不可用
+     * 驗證：資料庫已刪除的短網址仍計入回收數，快取照常交給 LocalUrlCache 失效
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testEvictionFailureDoesNotFailReap() {
+        ReflectionTestUtils.setField(reaper, "archive", false);
+        when(lockService.tryLock(anyString(), any())).thenReturn("token");
+        when(urlBatchRepository.findExpired(any(), anyInt())).thenReturn(List.of(new ExpiredUrl(1, "abc123")));
+        when(urlBatchRepository.deleteAll(List.of(1L))).thenReturn(1);
+        when(clickCountSyncScheduler.drainNow()).thenReturn(new ClickCountSyncScheduler.SyncResult(0, 0, 0, 0));
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenThrow(new IllegalStateException("down"));
+
+        assertEquals(1, reaper.reapNow());
+
+        verify(urlBatchRepository, never()).archive(anyList(), any());
+        verify(localUrlCache).invalidate(List.of("abc123"));
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.demo.scheduler;
+
+import com.example.demo.repository.LogPartitionRepository;
+import com.example.demo.repository.LogPartitionRepository.Partition;
+import com.example.demo.service.DistributedLockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LogPartitionSchedulerTest {
+
+    private static final Partition FUTURE = new Partition(LogPartitionRepository.FUTURE_PARTITION, null);
+
+    @Mock
+    private LogPartitionRepository partitionRepository;
+
+    @Mock
+    private DistributedLockService lockService;
+
+    @InjectMocks
+    private LogPartitionScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(scheduler, "retentionMonths", 6);
+        ReflectionTestUtils.setField(scheduler, "partitionsAhead", 3);
+    }
+
+    /**
+     * 測試新增分區的計算
+     * 驗證：剛遷移只有 p_future 時從當月開始建立；已有分區時從最後一個上界接續到當月之後 ahead 個月
+     */
+    @Test
+    void testPartitionsToAdd() {
+        YearMonth current = YearMonth.of(2025, 11);
+
+        List<Partition> fresh = LogPartitionScheduler.partitionsToAdd(List.of(FUTURE), current, 2);
+        assertEquals(List.of(
+                new Partition("p202511", LocalDate.of(2025, 12, 1)),
+                new Partition("p202512", LocalDate.of(2026, 1, 1)),
+                new Partition("p202601", LocalDate.of(2026, 2, 1))), fresh);
+
+        List<Partition> existing = List.of(
+                new Partition("p202511", LocalDate.of(2025, 12, 1)),
+                new Partition("p202512", LocalDate.of(2026, 1, 1)),
+                FUTURE);
+        assertEquals(List.of(new Partition("p202601", LocalDate.of(2026, 2, 1))),
+                LogPartitionScheduler.partitionsToAdd(existing, current, 2));
+        assertTrue(LogPartitionScheduler.partitionsToAdd(existing, current, 1).isEmpty());
+    }
+
+    /**
+     * 測試刪除分區的計算
+     * 驗證：只刪除整個月份都早於保留期的分區，p_future 不刪除，保留月數為0時不刪除
+     */
+    @Test
+    void testPartitionsToDrop() {
+        List<Partition> existing = List.of(
+                new Partition("p202503", LocalDate.of(2025, 4, 1)),
+                new Partition("p202504", LocalDate.of(2025, 5, 1)),
+                new Partition("p202505", LocalDate.of(2025, 6, 1)),
+                FUTURE);
+
+        assertEquals(List.of("p202503", "p202504"),
+                LogPartitionScheduler.partitionsToDrop(existing, YearMonth.of(2025, 11), 6));
+        assertTrue(LogPartitionScheduler.partitionsToDrop(existing, YearMonth.of(2025, 11), 0).isEmpty());
+    }
+
+    /**
+     * 測試維護流程
+     * 驗證：取得鎖後每張表先切出未來分區、再整個刪除過期分區，最後釋放鎖
+     */
+    @Test
+    void testMaintainAddsAndDropsPartitionsPerTable() {
+        YearMonth current = YearMonth.now();
+        Partition expired = new Partition("p_old", current.minusMonths(12).atDay(1));
+        Partition thisMonth = new Partition("p_now", current.plusMonths(1).atDay(1));
+        when(partitionRepository.isSupported()).thenReturn(true);
+        when(lockService.tryLock(eq(LogPartitionScheduler.PARTITION_LOCK_KEY), any())).thenReturn("token");
+        when(partitionRepository.findPartitions(anyString())).thenReturn(List.of(expired, thisMonth, FUTURE));
+
+        scheduler.maintain();
+
+        for (String table : LogPartitionScheduler.TABLES) {
+            verify(partitionRepository).addPartitions(eq(table), argThat(p -> p.size() == 3));
+            verify(partitionRepository).dropPartitions(table, List.of("p_old"));
+        }
+        verify(lockService).unlock(LogPartitionScheduler.PARTITION_LOCK_KEY, "token");
+    }
+
+    /**
+     * 測試非 MySQL 資料庫
+     * 驗證：不支援分區時直接略過，不取得鎖也不執行 DDL
+     */
+    @Test
+    void testSkipsUnsupportedDatabase() {
+        when(partitionRepository.isSupported()).thenReturn(false);
+
+        scheduler.maintain();
+
+        verify(partitionRepository, never()).findPartitions(anyString());
+        verifyNoInteractions(lockService);
+    }
+}
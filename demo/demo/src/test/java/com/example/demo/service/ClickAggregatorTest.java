@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.config.RedisConfig;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.repository.UrlBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ClickAggregatorTest {
+
+    /**
+     * 測試並發累加不遺失
+     * 驗證：多執行緒持續點擊、同時反覆換表，所有輪次取出的增量加總等於實際點擊數
+     */
+    @Test
+    void testConcurrentRecordsAreNotLost() throws Exception {
+        ClickAggregator aggregator = new ClickAggregator();
+        int threads = 8;
+        int clicksPerThread = 20000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                for (int i = 0; i < clicksPerThread; i++) {
+                    aggregator.record(i % 10 == 0 ? "cold" + (i % 7) : "viral");
+                }
+                done.countDown();
+            });
+        }
+
+        Map<String, Long> totals = new ConcurrentHashMap<>();
+        while (!done.await(1, TimeUnit.MILLISECONDS)) {
+            aggregator.drain().clicks().forEach((code, count) -> totals.merge(code, count, Long::sum));
+        }
+        pool.shutdown();
+        aggregator.drain().clicks().forEach((code, count) -> totals.merge(code, count, Long::sum));
+
+        long expected = (long) threads * clicksPerThread;
+        assertEquals(expected, totals.values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(expected * 9 / 10, totals.get("viral"));
+        assertEquals(expected, aggregator.pendingClicks());
+    }
+
+    /**
+     * 測試訪客本地去重
+     * 驗證：同一天同一 IP 與 User-Agent 只留一個雜湊，不同 User-Agent 或不同日期分開記錄，無法識別的訪客略過
+     */
+    @Test
+    void testVisitorsAreDedupedPerCodeAndDay() {
+        ClickAggregator aggregator = new ClickAggregator();
+        long noon = LocalDateTime.of(2025, 1, 1, 12, 0).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        aggregator.recordVisitor(AccessEvent.of("abc123", noon, "203.0.113.7", "Mozilla/5.0", null));
+        aggregator.recordVisitor(AccessEvent.of("abc123", noon + 1000, "203.0.113.7", "Mozilla/5.0", null));
+        aggregator.recordVisitor(AccessEvent.of("abc123", noon, "203.0.113.7", "curl/8.0", null));
+        aggregator.recordVisitor(AccessEvent.of("abc123", noon + TimeUnit.DAYS.toMillis(1), "203.0.113.7", "Mozilla/5.0", null));
+        aggregator.recordVisitor(AccessEvent.of("abc123", noon, null, null, null));
+
+        Map<String, Set<Long>> visitors = aggregator.drain().visitors();
+
+        assertEquals(2, visitors.get(RedisConfig.visitorKey("abc123", LocalDate.of(2025, 1, 1))).size());
+        assertEquals(1, visitors.get(RedisConfig.visitorKey("abc123", LocalDate.of(2025, 1, 2))).size());
+        assertEquals(2, visitors.size());
+        assertTrue(aggregator.drain().visitors().isEmpty());
+        assertNotEquals(ClickAggregator.visitorHash("a", "bc"), ClickAggregator.visitorHash("ab", "c"));
+    }
+
+    /**
+     * 測試 Redis 中斷期間的積壓上限
+     * 驗證：
+     * 1. 未刷新點擊數低於 max-pending 時，刷新失敗的增量放回本地重試
+     * 2. 達到 max-pending 後改為直接寫入資料庫，本地不再累積
+     * 3. 資料庫也失敗時捨棄並計數
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPendingIsBoundedWhileRedisIsDown() {
+        ClickAggregator aggregator = new ClickAggregator();
+        RedisTemplate<String, Object> redisTemplate = mock(RedisTemplate.class);
+        UrlBatchRepository urlBatchRepository = mock(UrlBatchRepository.class);
+        ReflectionTestUtils.setField(aggregator, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(aggregator, "urlBatchRepository", urlBatchRepository);
+        ReflectionTestUtils.setField(aggregator, "transactionManager", mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(aggregator, "maxPending", 100L);
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        for (int i = 0; i < 60; i++) aggregator.record("abc123");
+        aggregator.flush();
+        assertEquals(60, aggregator.pendingClicks());
+        verifyNoInteractions(urlBatchRepository);
+
+        for (int i = 0; i < 60; i++) aggregator.record("abc123");
+        aggregator.flush();
+        verify(urlBatchRepository).addClickCounts(Map.of("abc123", 120L));
+        assertEquals(0, aggregator.pendingClicks());
+        assertEquals(120, aggregator.databaseClicks());
+
+        when(urlBatchRepository.addClickCounts(anyMap())).thenThrow(new DataAccessResourceFailureException("down"));
+        for (int i = 0; i < 150; i++) aggregator.record("xyz789");
+        aggregator.flush();
+        assertEquals(0, aggregator.pendingClicks());
+        assertEquals(150, aggregator.droppedClicks());
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.Url;
+import com.example.demo.repository.UrlBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UrlDeduplicatorTest {
+
+    @Mock
+    private UrlBatchRepository urlBatchRepository;
+
+    @InjectMocks
+    private UrlDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(deduplicator, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(deduplicator, "cacheTtlSeconds", 600L);
+        deduplicator.init();
+    }
+
+    /**
+     * 測試網址正規化
+     * 驗證：scheme、主機名大小寫與預設埠不影響雜湊，路徑、查詢字串的大小寫與非預設埠會影響
+     */
+    @Test
+    void testNormalizationIgnoresOnlyInsignificantDifferences() {
+        assertEquals("https://example.com/", UrlDeduplicator.normalize(" HTTPS://Example.COM:443 "));
+        assertEquals("http://example.com:8080/A?q=B#C", UrlDeduplicator.normalize("http://EXAMPLE.com:8080/A?q=B#C"));
+        assertEquals("not a url", UrlDeduplicator.normalize("not a url"));
+
+        assertArrayEquals(UrlDeduplicator.hash("https://example.com"), UrlDeduplicator.hash("HTTPS://EXAMPLE.COM:443/"));
+        assertFalse(Arrays.equals(UrlDeduplicator.hash("https://example.com/a"), UrlDeduplicator.hash("https://example.com/A")));
+        assertEquals(16, UrlDeduplicator.hash("https://example.com").length);
+    }
+
+    /**
+     * 測試重用與快取
+     * 驗證：雜湊相同但網址不同（碰撞）的候選不重用；找到後結果快取在本地，第二次查找不查詢資料庫
+     */
+    @Test
+    void testReusesMatchingCandidateAndCachesLookup() {
+        Url collision = new Url("https://other.example/", "zzz999", null);
+        Url existing = new Url("https://Example.com/page", "abc123", null);
+        when(urlBatchRepository.findByUrlHash(any(), isNull(), any(), anyInt())).thenReturn(List.of(collision, existing));
+
+        assertSame(existing, deduplicator.findReusable("https://example.com/page", null));
+        assertSame(existing, deduplicator.findReusable("https://EXAMPLE.com/page", null));
+
+        verify(urlBatchRepository, times(1)).findByUrlHash(any(), isNull(), any(), anyInt());
+        assertEquals(2, deduplicator.reusedCount());
+        assertEquals(1, deduplicator.cacheHitCount());
+    }
+
+    /**
+     * 測試過期時間隔離
+     * 驗證：有過期時間的請求只以相同過期時間查詢，不會命中永久短鏈接的快取；已過期的快取項目不再重用
+     */
+    @Test
+    void testExpiryIsPartOfTheKey() {
+        LocalDateTime expireAt = LocalDateTime.now().plusDays(1);
+        Url permanent = new Url("https://example.com/", "abc123", null);
+        permanent.setUrlHash(UrlDeduplicator.hash("https://example.com/"));
+        deduplicator.remember(permanent);
+
+        assertNull(deduplicator.findReusable("https://example.com/", expireAt));
+        verify(urlBatchRepository).findByUrlHash(any(), eq(expireAt), any(), anyInt());
+
+        Url expired = new Url("https://example.com/old", "old001", LocalDateTime.now().minusSeconds(1));
+        expired.setUrlHash(UrlDeduplicator.hash("https://example.com/old"));
+        deduplicator.remember(expired);
+        assertNull(deduplicator.findReusable("https://example.com/old", expired.getExpireAt()));
+        assertEquals(0, deduplicator.reusedCount());
+    }
+}
@@ -1,18 +1,49 @@
 package com.example.demo.service;
 
+import com.example.demo.cache.CachedUrl;
+import com.example.demo.cache.LocalUrlCache;
+import com.example.demo.cache.ShortCodeBloomFilter;
+import com.example.demo.cache.SingleFlightLoader;
+import com.example.demo.datasource.ReadRouting;
 import com.example.demo.entity.Url;
+import com.example.demo.event.AccessEvent;
+import com.example.demo.metrics.CacheTier;
+import com.example.demo.metrics.ShortUrlMetrics;
+import com.example.demo.publisher.AccessEventPublisher;
+import com.example.demo.repository.UrlBatchRepository;
 import com.example.demo.repository.UrlRepository;
 import com.example.demo.service.UrlService;
+import com.example.demo.shortcode.RandomShortCodeGenerator;
+import com.example.demo.shortcode.ShortCodeGenerator;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +52,48 @@ class UrlServiceTest {
     @Mock
     private UrlRepository urlRepository; // 假的 DB
 
+    @Mock
+    private LocalUrlCache localUrlCache;
+
+    @Mock
+    private ShortCodeBloomFilter shortCodeBloomFilter;
+
+    @Spy
+    private ShortCodeGenerator shortCodeGenerator = new RandomShortCodeGenerator();
+
+    @Mock
+    private UrlBatchRepository urlBatchRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Mock
+    private RedisCircuitBreaker redisCircuitBreaker;
+
+    @Mock
+    private ClickAggregator clickAggregator;
+
+    @Mock
+    private AccessEventPublisher accessEventPublisher;
+
+    @Mock
+    private ShortUrlMetrics metrics;
+
+    @Mock
+    private DistributedLockService lockService;
+
+    @Spy
+    private SingleFlightLoader singleFlightLoader = new SingleFlightLoader();
+
+    @Mock
+    private UrlDeduplicator urlDeduplicator;
+
+    @Spy
+    private ReadRouting readRouting = new ReadRouting();
+
     @InjectMocks
     private UrlService urlService; // 自動把 Mock 塞進去
 
@@ -32,9 +105,6 @@ class UrlServiceTest {
      */
     @Test
     void testShortCodeGeneration() {
-        // 模擬資料庫中沒有重複的短碼
-        when(urlRepository.findByShortCode(anyString())).thenReturn(Optional.empty());
-
         // 模擬 save 回傳值
         when(urlRepository.save(any(Url.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
@@ -44,22 +114,22 @@ class UrlServiceTest {
         // 驗證結果
         assertNotNull(url.getShortCode());
         assertEquals(6, url.getShortCode().length());
+        // 生成短碼不需要唯一性查詢
+        verify(urlRepository, never()).findByShortCode(anyString());
     }
     /**
      * 測試短碼唯一性功能
      * 驗證：
-     * 1. 當短碼重複時，會重新生成新的短碼
+     * 1. 當短碼與既有資料衝突（唯一約束失敗）時，會換下一個短碼重試
      * 2. 最終生成的短碼不為空且長度為 6 位
      */
     @Test
     void testShortCodeUniqueness() {
-        // 模擬第一次查詢時短碼已存在（衝突），第二次查詢時不存在
-        when(urlRepository.findByShortCode(anyString()))
-                .thenReturn(Optional.of(new Url()))  // 第一次衝突
-                .thenReturn(Optional.empty());       // 第二次沒衝突
-
-        // 模擬 save 回傳值
-        when(urlRepository.save(any(Url.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        // 模擬第一次寫入時短碼已存在（衝突），第二次寫入成功
+        when(urlRepository.save(any(Url.class)))
+                .thenThrow(new DataIntegrityViolationException("Duplicate entry"))  // 第一次衝突
+                .thenAnswer(invocation -> invocation.getArgument(0));             // 第二次沒衝突
+        when(urlRepository.findByShortCode(anyString())).thenReturn(Optional.of(new Url()));
 
         // 執行測試
         Url url = urlService.createShortUrl("https://example.com", LocalDateTime.now().plusDays(1));
@@ -67,7 +137,215 @@ class UrlServiceTest {
         // 驗證結果
         assertNotNull(url.getShortCode());
         assertEquals(6, url.getShortCode().length());
+        verify(urlRepository, times(2)).save(any(Url.class));
+    }
+
+    /**
+     * 測試不存在的短碼
+     * 驗證：布隆過濾器判定不存在時直接返回null，不查詢資料庫，並以 bloom 層級記錄延遲
+     */
+    @Test
+    void testUnknownShortCodeSkipsDatabase() {
+        when(shortCodeBloomFilter.mightContain("nope00")).thenReturn(false);
+
+        assertNull(urlService.getOriginalUrlFromCache("nope00"));
+        verify(urlRepository, never()).findByShortCode(anyString());
+        verify(metrics).recordRedirect(eq(CacheTier.BLOOM), anyLong());
     }
-}
 
+    /**
+     * 測試批量生成的失敗回退
+     * 驗證：
+     * 1. 整批寫入失敗時改為逐筆寫入
+     * 2. 短碼衝突的項目換碼後成功，結果順序與輸入一致
+     */
+    @Test
+    void testBatchCreateFallsBackToSingleInserts() {
+        doThrow(new DuplicateKeyException("Duplicate entry")).when(urlBatchRepository).insertAll(anyList());
+        doThrow(new DuplicateKeyException("Duplicate entry"))
+                .doNothing()
+                .when(urlBatchRepository).insert(any(Url.class));
+
+        List<Url> drafts = List.of(
+                new Url("https://a.example.com", null, null),
+                new Url("https://b.example.com", null, null));
+        List<BatchShortenResult> results = urlService.createShortUrls(drafts);
+
+        assertEquals(2, results.size());
+        assertEquals("https://a.example.com", results.get(0).originalUrl());
+        assertEquals("https://b.example.com", results.get(1).originalUrl());
+        assertTrue(results.stream().allMatch(r -> r.error() == null && r.shortCode().length() == 6));
+        verify(urlBatchRepository, times(3)).insert(any(Url.class));
+    }
+
+    /**
+     * 測試重定向腳本命中
+     * 驗證：一次腳本往返即取得URL並在 Redis 累加點擊，點擊不再經本地聚合器（訪客仍交給聚合器），訪問事件照常發布，並以 redis 層級記錄延遲
+     */
+    @Test
+    void testScriptHitResolvesAndCountsInOneRoundTrip() {
+        when(shortCodeBloomFilter.mightContain("abc123")).thenReturn(true);
+        when(redisCircuitBreaker.isAvailable()).thenReturn(true);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any()))
+                .thenReturn(List.of("https://example.com", 60000L));
 
+        String originalUrl = urlService.resolveAndRecordClick("abc123", "203.0.113.7", "Mozilla/5.0", null);
+
+        assertEquals("https://example.com", originalUrl);
+        verify(localUrlCache).put(eq("abc123"), any(CachedUrl.class));
+        verify(accessEventPublisher).publish(any(AccessEvent.class));
+        verify(clickAggregator, never()).record(anyString());
+        verify(clickAggregator).recordVisitor(any(AccessEvent.class));
+        verifyNoInteractions(urlRepository);
+        verify(metrics).recordRedirect(eq(CacheTier.REDIS), anyLong());
+    }
+
+    /**
+     * 測試 Redis 不可用時的降級
+     * 驗證：腳本失敗時記錄到斷路器與降級計數器，改從資料庫解析並以原有流程記錄點擊
+     */
+    @Test
+    void testScriptFailureFallsBackToDatabase() {
+        Url url = new Url();
+        url.setShortCode("abc123");
+        url.setOriginalUrl("https://example.com");
+        when(shortCodeBloomFilter.mightContain("abc123")).thenReturn(true);
+        when(redisCircuitBreaker.isAvailable()).thenReturn(true, false);
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(), any(), any(), any()))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        when(urlRepository.findByShortCode("abc123")).thenReturn(Optional.of(url));
+
+        String originalUrl = urlService.resolveAndRecordClick("abc123", null, null, null);
+
+        assertEquals("https://example.com", originalUrl);
+        verify(redisCircuitBreaker).recordFailure(any(Exception.class));
+        verify(metrics).fallback(eq("redis"), eq("redirect-script"), any(RedisConnectionFailureException.class));
+        verify(clickAggregator).record("abc123");
+        verify(accessEventPublisher).publish(any(AccessEvent.class));
+        verify(metrics).recordRedirect(eq(CacheTier.DATABASE), anyLong());
+    }
+
+    /**
+     * 測試批次預載
+     * 驗證：每筆寫入本地快取，Redis 以一次管線寫入，有過期時間的短鏈接存活時間到過期為止
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPreloadFillsBothTiersInOnePipeline() {
+        RedisOperations<String, Object> operations = mock(RedisOperations.class);
+        ValueOperations<String, Object> valueOperations = mock(ValueOperations.class);
+        when(operations.opsForValue()).thenReturn(valueOperations);
+        when(redisCircuitBreaker.isAvailable()).thenReturn(true);
+        when(redisTemplate.executePipelined(any(SessionCallback.class))).thenAnswer(inv -> {
+            ((SessionCallback<Object>) inv.getArgument(0)).execute(operations);
+            return List.of();
+        });
+        Url forever = new Url("https://example.com/a", "abc123", null);
+        Url expiring = new Url("https://example.com/b", "xyz789", LocalDateTime.now().plusMinutes(10));
+
+        assertTrue(urlService.preload(List.of(forever, expiring)));
+
+        verify(localUrlCache).put(eq("abc123"), any(CachedUrl.class));
+        verify(localUrlCache).put(eq("xyz789"), any(CachedUrl.class));
+        verify(valueOperations).set("shorturl:abc123", "https://example.com/a", 3600, TimeUnit.SECONDS);
+        verify(valueOperations).set(eq("shorturl:xyz789"), eq("https://example.com/b"),
+                longThat(ttl -> ttl > 590 && ttl <= 600), eq(TimeUnit.SECONDS));
+        verify(redisTemplate, times(1)).executePipelined(any(SessionCallback.class));
+    }
+
+    /**
+     * 測試快取擊穿保護
+     * 驗證：同一短碼 1000 個並發未命中只查詢一次資料庫，其餘 999 個等待同一個結果
+     */
+    @Test
+    void testConcurrentMissesQueryDatabaseOnce() throws Exception {
+        ReflectionTestUtils.setField(singleFlightLoader, "waitMs", 10_000L);
+        Url url = new Url("https://example.com/hot", "hot001", null);
+        when(shortCodeBloomFilter.mightContain("hot001")).thenReturn(true);
+        when(urlRepository.findByShortCode("hot001")).thenAnswer(inv -> {
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (singleFlightLoader.coalescedCount() < 999 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            return Optional.of(url);
+        });
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                results.add(executor.submit(() -> urlService.getOriginalUrlFromCache("hot001")));
+            }
+        }
+
+        for (Future<String> result : results) {
+            assertEquals("https://example.com/hot", result.get());
+        }
+        verify(urlRepository, times(1)).findByShortCode("hot001");
+        assertEquals(1, singleFlightLoader.loadCount());
+        assertEquals(999, singleFlightLoader.coalescedCount());
+    }
+
+    /**
+     * 測試跨節點載入鎖
+     * 驗證：其他節點持有載入鎖時不查詢資料庫，輪詢 Redis 取得對方回填的映射
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    void testLoadLockHeldElsewhereWaitsForRedisFill() {
+        ReflectionTestUtils.setField(urlService, "loadLockEnabled", true);
+        ReflectionTestUtils.setField(urlService, "loadLockLeaseMs", 3000L);
+        ReflectionTestUtils.setField(urlService, "loadLockWaitMs", 1000L);
+        when(shortCodeBloomFilter.mightContain("abc123")).thenReturn(true);
+        when(redisCircuitBreaker.isAvailable()).thenReturn(true);
+        when(redisTemplate.executePipelined(any(SessionCallback.class)))
+                .thenReturn(Arrays.asList(null, -2L), Arrays.asList(null, -2L), List.of("https://example.com", 60000L));
+        when(lockService.tryLock(eq("load:lock:abc123"), any())).thenReturn(null);
+
+        assertEquals("https://example.com", urlService.getOriginalUrlFromCache("abc123"));
+
+        verifyNoInteractions(urlRepository);
+        verify(localUrlCache).put(eq("abc123"), argThat(c -> c.originalUrl().equals("https://example.com")));
+    }
+
+    /**
+     * 測試機率性提前刷新
+     * 驗證：已到期邊緣的項目一定提交背景刷新，離到期很遠的項目不提交，過期時間為短鏈接本身 expireAt 的項目不提交；
+     * XFetch 條件 -Δ·β·ln(rand) ≥ 剩餘時間
+     */
+    @Test
+    void testEarlyRefreshNearExpiry() {
+        ReflectionTestUtils.setField(urlService, "earlyRefreshEnabled", true);
+        ReflectionTestUtils.setField(urlService, "earlyRefreshBeta", 1.0);
+        doReturn(true).when(singleFlightLoader).refreshAsync(anyString(), any());
+
+        urlService.refreshIfExpiring("abc123", new CachedUrl("https://example.com", System.currentTimeMillis()));
+        urlService.refreshIfExpiring("xyz789", new CachedUrl("https://example.com", System.currentTimeMillis() + 60_000));
+        urlService.refreshIfExpiring("never0", new CachedUrl("https://example.com", CachedUrl.NEVER));
+        urlService.refreshIfExpiring("fixed0", new CachedUrl("https://example.com", System.currentTimeMillis(), true));
+
+        verify(singleFlightLoader).refreshAsync(eq("abc123"), any());
+        verify(singleFlightLoader, never()).refreshAsync(eq("xyz789"), any());
+        verify(singleFlightLoader, never()).refreshAsync(eq("never0"), any());
+        verify(singleFlightLoader, never()).refreshAsync(eq("fixed0"), any());
+        assertTrue(UrlService.shouldRefreshEarly(100, 10, Math.exp(-11)));
+        assertFalse(UrlService.shouldRefreshEarly(100, 10, Math.exp(-9)));
+    }
+
+    /**
+     * 測試重用既有短鏈接
+     * 驗證：要求重用且找到既有短鏈接時不寫入資料庫；找不到時新建並帶上網址雜湊，記住結果供下次重用
+     */
+    @Test
+    void testReuseExistingSkipsInsert() {
+        Url existing = new Url("https://example.com", "abc123", null);
+        when(urlDeduplicator.findReusable("https://example.com", null)).thenReturn(existing);
+        when(urlRepository.save(any(Url.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        assertSame(existing, urlService.createShortUrl("https://example.com", null, true));
+        verify(urlRepository, never()).save(any(Url.class));
+
+        Url created = urlService.createShortUrl("https://example.com/new", null, true);
+        assertArrayEquals(UrlDeduplicator.hash("https://example.com/new"), created.getUrlHash());
+        verify(urlDeduplicator).remember(created);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.demo.shortcode;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentShortCodeGeneratorTest {
+
+    private final AtomicLong counter = new AtomicLong();
+    private final AtomicInteger leases = new AtomicInteger();
+    private SegmentShortCodeGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        generator = new SegmentShortCodeGenerator();
+        IdSegmentSource source = step -> {
+            leases.incrementAndGet();
+            long end = counter.addAndGet(step);
+            return new IdRange(end - step, end);
+        };
+        ReflectionTestUtils.setField(generator, "segmentSource", source);
+        ReflectionTestUtils.setField(generator, "step", 100);
+        ReflectionTestUtils.setField(generator, "prefetchRatio", 0.2);
+        ReflectionTestUtils.setField(generator, "scramble", true);
+        ReflectionTestUtils.setField(generator, "scrambleKey", 42L);
+        generator.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        generator.shutdown();
+    }
+
+    /**
+     * 測試多執行緒下短碼唯一
+     * 驗證：
+     * 1. 8 個執行緒共生成 20000 個短碼，沒有任何重複
+     * 2. 每個短碼長度為 6 位
+     * 3. 租用的號段數量與用量相符（預取不會浪費大量號段）
+     */
+    @Test
+    void testConcurrentCodesAreUnique() throws Exception {
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 2500; i++) {
+                    String code = generator.nextCode();
+                    assertEquals(6, code.length());
+                    codes.add(code);
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        assertEquals(20_000, codes.size());
+        assertTrue(leases.get() <= 201, "leases: " + leases.get());
+    }
+
+    /**
+     * 測試混淆編碼為雙射
+     * 驗證：連續 ID 編碼後互不相同，且不是簡單遞增
+     */
+    @Test
+    void testScrambledEncodingIsInjective() {
+        ShortCodeCodec codec = new ShortCodeCodec(true, 42L);
+        Set<String> codes = new HashSet<>();
+        for (long id = 0; id < 100_000; id++) {
+            assertTrue(codes.add(codec.encode(id)));
+        }
+        assertNotEquals(codec.encode(1).charAt(0), codec.encode(2).charAt(0) - 1);
+        assertEquals(7, codec.encode(ShortCodeCodec.DOMAIN).length());
+    }
+
+    /**
+     * 測試未設定混淆金鑰
+     * 驗證：開啟混淆但金鑰為0（未設定）時啟動失敗，不使用公開可預測的置換
+     */
+    @Test
+    void testScrambleRequiresKey() {
+        SegmentShortCodeGenerator unkeyed = new SegmentShortCodeGenerator();
+        ReflectionTestUtils.setField(unkeyed, "scramble", true);
+        ReflectionTestUtils.setField(unkeyed, "scrambleKey", 0L);
+
+        assertThrows(IllegalStateException.class, unkeyed::init);
+    }
+}